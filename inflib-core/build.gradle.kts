@@ -9,11 +9,30 @@ repositories {
     mavenCentral()
 }
 
+// Microbenchmarks of the inference hot paths, run with: gradle :inflib-core:jmh
+// JMH options go in --args, e.g. --args="TableKernels -f 1 -wi 3 -i 5"
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets["main"].output
+    runtimeClasspath += sourceSets["main"].output
+}
+
+val jmhVersion = "1.37"
+
 dependencies {
     testImplementation("org.junit.jupiter:junit-jupiter-api:5.8.1")
     testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine:5.8.1")
+
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:$jmhVersion")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:$jmhVersion")
 }
 
 tasks.getByName<Test>("test") {
     useJUnitPlatform()
-}
\ No newline at end of file
+}
+
+tasks.register<JavaExec>("jmh") {
+    description = "Runs the JMH benchmarks."
+    group = "verification"
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+}
@@ -0,0 +1,73 @@
+package il2.bench;
+
+import il2.bridge.Converter;
+import il2.inf.JointEngine;
+import il2.inf.jointree.*;
+import il2.model.*;
+import il2.util.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/** Jointree compilation, from a fixed elimination order, against
+    propagation of a fresh evidence case, for the Hugin, single precision
+    Hugin, Shenoy-Shafer and zero-conscious Hugin engines.
+
+    @since 20261018 */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations=3)
+@Measurement(iterations=5)
+public class JoinTreeBenchmark{
+    @Param({"hugin","hugin32","ss","zc"})
+    public String algorithm;
+
+    @Param({"100","400"})
+    public int nodes;
+
+    @Param({"4","8"})
+    public int connectivity;
+
+    private Converter converter;
+    private BayesianNetwork network;
+    private IntList order;
+    private JointEngine engine;
+    private IntMap[] cases;
+    private int next;
+
+    @Setup
+    public void setup(){
+	Networks nets=new Networks(nodes,connectivity);
+	converter=nets.converter;
+	network=nets.il2;
+	order=nets.minfill();
+	engine=compile();
+	cases=nets.evidence(16,Math.max(1,nodes/20));
+    }
+
+    @Benchmark
+    public JointEngine compile(){
+	if(algorithm.equals("hugin")){
+	    return UnindexedHuginAlgorithm.create(converter,network,order);
+	}else if(algorithm.equals("hugin32")){
+	    return FloatHuginAlgorithm.create(converter,network,order);
+	}else if(algorithm.equals("ss")){
+	    return UnindexedSSAlgorithm.create(converter,network,order);
+	}else if(algorithm.equals("zc")){
+	    return UnindexedZCAlgorithm.create(converter,network,order);
+	}
+	throw new IllegalArgumentException(algorithm);
+    }
+
+    /** a different case every invocation, so every call propagates */
+    @Benchmark
+    public double propagate(){
+	engine.setEvidence(cases[next]);
+	next=(next+1)%cases.length;
+	double pe=engine.prEvidence();
+	return pe+engine.varConditional(0).values()[0];
+    }
+}
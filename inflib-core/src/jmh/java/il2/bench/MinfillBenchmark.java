@@ -0,0 +1,51 @@
+package il2.bench;
+
+import il2.inf.structure.EliminationOrders;
+import il2.model.*;
+import il2.util.*;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/** Elimination orders by {@link EliminationOrders#minfill2}.
+
+    @since 20261018 */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations=3)
+@Measurement(iterations=5)
+public class MinfillBenchmark{
+    @Param({"100","400","1000"})
+    public int nodes;
+
+    @Param({"4","8"})
+    public int connectivity;
+
+    @Param({"1","4"})
+    public int reps;
+
+    private Collection subDomains;
+    private IntSet[] vars;
+
+    @Setup
+    public void setup(){
+	BayesianNetwork bn=new Networks(nodes,connectivity).il2;
+	subDomains=Arrays.asList(bn.cpts());
+	IntSet all=new IntSet(bn.size());
+	for(int v=0;v<bn.size();v++){
+	    all.add(v);
+	}
+	vars=new IntSet[]{all};
+    }
+
+    @Benchmark
+    public EliminationOrders.Record minfill2(){
+	return EliminationOrders.minfill2(subDomains,vars,reps,new Random(Networks.SEED));
+    }
+}
@@ -0,0 +1,51 @@
+package il2.bench;
+
+import il2.bridge.Converter;
+import il2.model.*;
+import il2.util.*;
+import il2.inf.structure.EliminationOrders;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/** Reproducible inputs shared by the benchmarks: a network from
+    edu.ucla.belief.RandomNetworks with a fixed seed, and its il2
+    conversion numbered by {@link il2.model.RandomNetworks#convert}, so
+    every fork and every run measures the same network, and the same
+    evidence, for the same parameters.
+
+    @since 20261018 */
+class Networks{
+    static final long SEED=20261018L;
+
+    final edu.ucla.belief.BeliefNetwork il1;
+    final Converter converter;
+    final BayesianNetwork il2;
+
+    /** <b>nodes</b> binary variables, width roughly <b>connectivity</b> */
+    Networks(int nodes,int connectivity){
+	il1=edu.ucla.belief.RandomNetworks.randomNetwork(nodes,connectivity,new Random(SEED));
+	converter=new Converter();
+	il2=RandomNetworks.convert(il1,converter);
+    }
+
+    IntList minfill(){
+	return EliminationOrders.minFill(Arrays.asList(il2.cpts()),1,new Random(SEED)).order;
+    }
+
+    /** <b>count</b> evidence cases, each observing <b>observed</b> random
+	variables */
+    IntMap[] evidence(int count,int observed){
+	Random r=new Random(SEED);
+	Domain d=il2.domain();
+	IntMap[] cases=new IntMap[count];
+	for(int c=0;c<count;c++){
+	    cases[c]=new IntMap();
+	    for(int i=0;i<observed;i++){
+		int var=r.nextInt(il2.size());
+		cases[c].put(var,r.nextInt(d.size(var)));
+	    }
+	}
+	return cases;
+    }
+}
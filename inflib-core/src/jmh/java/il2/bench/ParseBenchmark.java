@@ -0,0 +1,54 @@
+package il2.bench;
+
+import edu.ucla.belief.BeliefNetwork;
+import edu.ucla.belief.io.NetworkIO;
+import il2.bridge.Converter;
+import il2.model.BayesianNetwork;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/** Reading a .net file, and converting the result for the il2 engines.
+
+    @since 20261018 */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations=3)
+@Measurement(iterations=5)
+public class ParseBenchmark{
+    @Param({"100","1000"})
+    public int nodes;
+
+    @Param({"4","8"})
+    public int connectivity;
+
+    private File file;
+    private BeliefNetwork parsed;
+
+    @Setup
+    public void setup() throws Exception{
+	file=File.createTempFile("bench"+nodes+"-"+connectivity,".net");
+	file.deleteOnExit();
+	NetworkIO.writeNetwork(new Networks(nodes,connectivity).il1,file);
+	parsed=NetworkIO.read(file);
+    }
+
+    @TearDown
+    public void tearDown(){
+	file.delete();
+    }
+
+    @Benchmark
+    public BeliefNetwork read() throws Exception{
+	return NetworkIO.read(file);
+    }
+
+    @Benchmark
+    public BayesianNetwork convert(){
+	return new Converter().convert(parsed);
+    }
+}
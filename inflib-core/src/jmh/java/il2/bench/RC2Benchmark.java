@@ -0,0 +1,51 @@
+package il2.bench;
+
+import edu.ucla.belief.BeliefNetwork;
+import edu.ucla.belief.rc2.caching.RC2CachingScheme_Full;
+import edu.ucla.belief.rc2.creation.RC2CreatorEO;
+import edu.ucla.belief.rc2.structure.RC2;
+import il2.bridge.Converter;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/** {@link RC2#compute_Pe()} over a dtree built from the minfill order,
+    with full caching flushed before every invocation.
+
+    @since 20261018 */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations=3)
+@Measurement(iterations=5)
+public class RC2Benchmark{
+    @Param({"100","400"})
+    public int nodes;
+
+    @Param({"4","8"})
+    public int connectivity;
+
+    private RC2 rc;
+
+    @Setup
+    public void setup() throws Exception{
+	Networks nets=new Networks(nodes,connectivity);
+	BeliefNetwork bn=nets.il1;
+	Converter c=nets.converter;
+	bn.getEvidenceController().observe(c.convert(nets.evidence(1,Math.max(1,nodes/20))[0]));
+	List eo=c.convert(nets.minfill());
+	RC2.RCCreationParams rcParam=new RC2.RCCreationParams(bn);
+	RC2CreatorEO.Params eoParam=new RC2CreatorEO.Params(bn,false,RC2CreatorEO.Params.EO_DEFAULT,eo,new RC2CachingScheme_Full());
+	rc=RC2CreatorEO.createDtree(rcParam,eoParam);
+	rc.synchEvidWithBN();
+    }
+
+    @Benchmark
+    public double computePe(){
+	rc.flushCaches();
+	return rc.compute_Pe();
+    }
+}
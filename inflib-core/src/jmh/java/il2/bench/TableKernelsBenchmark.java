@@ -0,0 +1,95 @@
+package il2.bench;
+
+import il2.model.*;
+import il2.util.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/** The flip-change kernels of {@link Table} on a large table over
+    <b>bigVars</b> binary variables and tables over <b>smallVars</b> of
+    them, the shapes seen in jointree messages.
+
+    @since 20261018 */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations=3)
+@Measurement(iterations=5)
+public class TableKernelsBenchmark{
+    @Param({"16","20"})
+    public int bigVars;
+
+    @Param({"4","12"})
+    public int smallVars;
+
+    private Table big;
+    private Table small;
+    private Table ones;
+    private Table left,right,dest;
+
+    @Setup
+    public void setup(){
+	Random r=new Random(Networks.SEED);
+	Domain d=new Domain();
+	for(int i=0;i<bigVars;i++){
+	    d.addDim("v"+i,2);
+	}
+	int[] all=new int[bigVars];
+	for(int i=0;i<bigVars;i++){
+	    all[i]=i;
+	}
+	big=fill(new Table(d,new IntSet(all)),r);
+	//every other variable, so the small table is not a prefix of the big one
+	int[] some=new int[smallVars];
+	for(int i=0;i<smallVars;i++){
+	    some[i]=(2*i)%bigVars+(2*i)/bigVars;
+	}
+	small=new Table(d,new IntSet(some));
+	ones=new Table(d,new IntSet(some));
+	java.util.Arrays.fill(ones.values(),1.0);
+	//two overlapping halves whose product spans every variable
+	int half=bigVars/2;
+	left=fill(new Table(d,range(0,half+2)),r);
+	right=fill(new Table(d,range(half-2,bigVars)),r);
+	dest=new Table(d,new IntSet(some));
+    }
+
+    private static IntSet range(int from,int to){
+	int[] vars=new int[to-from];
+	for(int i=0;i<vars.length;i++){
+	    vars[i]=from+i;
+	}
+	return new IntSet(vars);
+    }
+
+    private static Table fill(Table t,Random r){
+	double[] vals=t.values();
+	for(int i=0;i<vals.length;i++){
+	    vals[i]=r.nextDouble();
+	}
+	return t;
+    }
+
+    @Benchmark
+    public Table projectInto2(){
+	small.projectInto2(big);
+	return small;
+    }
+
+    /** multiplies by ones, so repeated invocations leave the values alone */
+    @Benchmark
+    public Table multiplyInto2(){
+	big.multiplyInto2(ones);
+	return big;
+    }
+
+    @Benchmark
+    public Table multiplyAndProjectInto(){
+	dest.multiplyAndProjectInto(new Table[]{left,right});
+	return dest;
+    }
+}
@@ -89,12 +89,36 @@ public class NoisyOrShellHenrion implements NoisyOrShell
 		for (int i = 1; i < gx; i++)
 			cLeaks[i] = cLeaks[i-1] - myWeights[pos++];
 
+		if (isValidPerParent()) return;
 		double[] cpt = expandNoisyOr();
 		for (int i = 0; i < cpt.length; i++)
 			if (cpt[i] < 0.0 || cpt[i] > 1.0)
 				throw new Exception("Invalid noisy-or weights");
 	}
 
+	/**	Sufficient for a valid cpt, without expanding it: the leak and
+		every parent state over the leak are non-increasing in [0,1], so
+		that each is a distribution of its own.
+		@since 20261018
+	*/
+	private boolean isValidPerParent() {
+		double prev = 1.0;
+		for (int x = 0; x < cLeaks.length; x++) {
+			if (!(cLeaks[x] > 0.0 && cLeaks[x] <= prev)) return false;
+			prev = cLeaks[x];
+		}
+		for (int i = 0; i < (cLeaks.length == 0 ? 0 : cParams[0].length); i++)
+			for (int j = 0; j < cParams[0][i].length; j++) {
+				prev = 1.0;
+				for (int x = 0; x < cLeaks.length; x++) {
+					double f = cParams[x][i][j] / cLeaks[x];
+					if (!(f >= 0.0 && f <= prev)) return false;
+					prev = f;
+				}
+			}
+		return true;
+	}
+
 	public static final String STR_ERROR_WEIGHTS_LEN =
 		"NoisyOrShell.setWeights() called with incorrect size list.";
 
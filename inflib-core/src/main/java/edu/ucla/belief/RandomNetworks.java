@@ -19,10 +19,19 @@ public class RandomNetworks {
      */
     public static DirectedGraph randomGraph(Object[] nodes,
             int connectivity) {
+        return randomGraph(nodes, connectivity, rand);
+    }
+    /**
+     * randomGraph(nodes, connectivity) drawing from random, so that a
+     * seeded generator reproduces the same graph.
+     * @since 20261018
+     */
+    public static DirectedGraph randomGraph(Object[] nodes,
+            int connectivity, Random random) {
         int nodeCount = nodes.length;
         int[] numparents = new int[nodeCount];
         for (int i = 0; i < nodeCount; i++) {
-            double r = Math.random();
+            double r = random.nextDouble();
             if (r <= .2) {
                 numparents[i] = 0;
             } else if (r <= .3) {
@@ -47,9 +56,9 @@ public class RandomNetworks {
                 int parent;
                 if (i > connectivity) {
                     parent = (int)(i - 1 -
-                            Math.floor(connectivity * Math.random()));
+                            Math.floor(connectivity * random.nextDouble()));
                 } else {
-                    parent = (int) Math.floor(i * Math.random());
+                    parent = (int) Math.floor(i * random.nextDouble());
                 }
                 Object p = nodes[parent];
                 if (graph.addEdge(p, node)) {
@@ -87,6 +96,11 @@ public class RandomNetworks {
      * consistent with it being a CPT.
      */
     public static Table randomCPT(Collection condvars, FiniteVariable var) {
+        return randomCPT(condvars, var, rand);
+    }
+    /** @since 20261018 */
+    public static Table randomCPT(Collection condvars, FiniteVariable var,
+            Random random) {
         int vsize = var.size();
         int size = vsize;
         for (Iterator iter = condvars.iterator(); iter.hasNext();) {
@@ -96,7 +110,7 @@ public class RandomNetworks {
         for (int i = 0; i < size; i += vsize) {
             double total = 0;
             for (int j = 0; j < vsize; j++) {
-                prob[i + j] = Math.random();
+                prob[i + j] = random.nextDouble();
                 total += prob[i + j];
             }
             for (int j = 0; j < vsize; j++) {
@@ -218,6 +232,33 @@ public class RandomNetworks {
         DirectedGraph g = randomGraph(vars, connectivity);
         return randomNetwork(g);
     }
+    /**
+     * randomNetwork(nodeCount, connectivity) drawing from random, so that
+     * a seeded generator reproduces the same network.
+     * @since 20261018
+     */
+    public static BeliefNetwork randomNetwork(int nodeCount,
+            int connectivity, Random random) {
+        FiniteVariable[] vars = createBooleanVars(nodeCount);
+        DirectedGraph g = randomGraph(vars, connectivity, random);
+        final Map position = new HashMap(nodeCount);
+        for (int i = 0; i < nodeCount; i++) {
+            position.put(vars[i], Integer.valueOf(i));
+        }
+        Comparator byPosition = new Comparator() {
+            public int compare(Object o1, Object o2) {
+                return ((Integer) position.get(o1)).compareTo((Integer) position.get(o2));
+            }
+        };
+        Map tables = new HashMap(nodeCount);
+        for (int i = 0; i < nodeCount; i++) {
+            //parents in creation order, not the order of the graph's sets
+            List parents = new ArrayList(g.inComing(vars[i]));
+            Collections.sort(parents, byPosition);
+            tables.put(vars[i], randomCPT(parents, vars[i], random));
+        }
+        return new BeliefNetworkImpl(g, tables);
+    }
     public static BeliefNetwork randomNetwork(int nodeCount,
             int connectivity,double bias) {
         FiniteVariable[] vars = createBooleanVars(nodeCount);
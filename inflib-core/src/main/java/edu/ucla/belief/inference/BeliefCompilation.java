@@ -173,6 +173,25 @@ public class BeliefCompilation implements java.io.Serializable
 		return ret.intValue();
     }
 
+	/**
+		A compilation of the same network over the same join tree, with
+		the parameters and likelihoods of this one, for another thread
+		to use: the two share no mutable state.
+
+		@since 20261018
+	*/
+	public BeliefCompilation copy()
+	{
+		if( (myJoinTree == null) || (expr == null) ) throw new UnsupportedOperationException( "compilation without a join tree" );
+		BeliefCompilation ret = S4Compiler.compile( myBeliefNetwork, myJoinTree );
+		for( Iterator it = variables.iterator(); it.hasNext(); ){
+			FiniteVariable var = (FiniteVariable) it.next();
+			ret.setFamily(     var, expr.getParameter( getIndex( familyLocations,     var ) ) );
+			ret.setLikelihood( var, expr.getParameter( getIndex( likelihoodLocations, var ) ) );
+		}
+		return ret;
+	}
+
     public double getValue() {
         return expr.getValue();
     }
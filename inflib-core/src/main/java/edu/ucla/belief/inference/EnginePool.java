@@ -0,0 +1,184 @@
+package edu.ucla.belief.inference;
+
+import edu.ucla.belief.*;
+import il2.bridge.Converter;
+import il2.inf.JointEngine;
+import il2.inf.jointree.*;
+import il2.inf.structure.EliminationOrders;
+import il2.util.*;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/** Answers queries about one network from many threads at once.
+
+	<p>The network is compiled once, into a join tree that every engine
+	in the pool shares, together with the CPTs.  A query borrows an
+	engine, which owns only its cluster and separator tables, asserts
+	the evidence passed with the query, and gives the engine back.  Queries
+	never wait for one another, as they do behind {@link
+	SynchronizedInferenceEngine}; the pool grows to as many engines as
+	there are concurrent queries and no further.
+
+	<p>The pool ignores the network's {@link EvidenceController}.  An
+	engine keeps its evidence between queries, so consecutive queries
+	with similar evidence propagate incrementally.
+
+	@since 20261018 */
+public class EnginePool
+{
+	/** Makes the engines of a pool, each sharing the join tree and the tables. */
+	public interface Factory{
+		public JointEngine create( il2.model.Table[] tables, EliminationOrders.JT jt );
+	}
+
+	public static final Factory HUGIN = new Factory(){
+		public JointEngine create( il2.model.Table[] tables, EliminationOrders.JT jt ){ return UnindexedHuginAlgorithm.create( tables, jt ); }
+		public String toString(){ return "hugin"; }
+	};
+	public static final Factory SHENOY_SHAFER = new Factory(){
+		public JointEngine create( il2.model.Table[] tables, EliminationOrders.JT jt ){ return UnindexedSSAlgorithm.create( tables, jt ); }
+		public String toString(){ return "shenoy-shafer"; }
+	};
+	public static final Factory ZERO_CONSCIOUS = new Factory(){
+		public JointEngine create( il2.model.Table[] tables, EliminationOrders.JT jt ){ return UnindexedZCAlgorithm.create( tables, jt ); }
+		public String toString(){ return "zc-hugin"; }
+	};
+
+	/** min-fill order, hugin engines */
+	public EnginePool( BeliefNetwork bn ){
+		this( bn, (List)null, HUGIN );
+	}
+
+	/** @param eliminationOrder null for min-fill */
+	public EnginePool( BeliefNetwork bn, List eliminationOrder, Factory factory ){
+		Converter          c   = new Converter();
+		il2.model.BayesianNetwork bn2 = c.convert( bn );
+		Collection subdomains  = Arrays.asList( bn2.cpts() );
+		IntList order          = eliminationOrder == null ? EliminationOrders.minFill( subdomains, 1, (Random)null ).order : c.convert( eliminationOrder );
+		myJoinTree             = EliminationOrders.traditionalJoinTree( subdomains, order, c, bn2 );
+		myConverter            = c;
+		myFactory              = factory;
+		myGeneration           = new Generation( bn2.cpts() );
+	}
+
+	/** share a join tree compiled elsewhere, e.g. by a {@link HuginWrapper} */
+	public EnginePool( EliminationOrders.JT jt, Factory factory ){
+		if( jt.converter == null || jt.network == null ){ throw new IllegalArgumentException( "join tree has no network" ); }
+		myJoinTree             = jt;
+		myConverter            = jt.converter;
+		myFactory              = factory;
+		myGeneration           = new Generation( jt.network.cpts() );
+	}
+
+	public EliminationOrders.JT getJoinTree(){ return myJoinTree; }
+	public Converter           getConverter(){ return myConverter; }
+
+	/** the number of idle engines */
+	public int size(){ return myIdle.size(); }
+
+	/** Let go of the idle engines. */
+	public void clear(){ myIdle.clear(); }
+
+	/** Pr(evidence) */
+	public double prEvidence( Map evidence ){
+		Borrowed b = borrow( evidence );
+		try{ return b.engine.prEvidence(); }
+		finally{ giveBack( b ); }
+	}
+
+	public Table joint( FiniteVariable var, Map evidence ){
+		Borrowed b = borrow( evidence );
+		try{ return myConverter.convert( b.engine.varJoint( myConverter.convert( var ) ) ); }
+		finally{ giveBack( b ); }
+	}
+
+	public Table conditional( FiniteVariable var, Map evidence ){
+		Borrowed b = borrow( evidence );
+		try{ return myConverter.convert( b.engine.varConditional( myConverter.convert( var ) ) ); }
+		finally{ giveBack( b ); }
+	}
+
+	public Table familyJoint( FiniteVariable var, Map evidence ){
+		Borrowed b = borrow( evidence );
+		try{ return myConverter.convert( b.engine.tableJoint( myConverter.convert( var ) ), var.getCPTShell( var.getDSLNodeType() ).variables() ); }
+		finally{ giveBack( b ); }
+	}
+
+	public Table familyConditional( FiniteVariable var, Map evidence ){
+		Borrowed b = borrow( evidence );
+		try{ return myConverter.convert( b.engine.tableConditional( myConverter.convert( var ) ), var.getCPTShell( var.getDSLNodeType() ).variables() ); }
+		finally{ giveBack( b ); }
+	}
+
+	/** Posterior marginals of several variables from one propagation.
+		@return FiniteVariable -> Table */
+	public Map conditionals( Collection vars, Map evidence ){
+		Map ret = new HashMap( vars.size() );
+		Borrowed b = borrow( evidence );
+		try{
+			for( Iterator it = vars.iterator(); it.hasNext(); ){
+				FiniteVariable var = (FiniteVariable) it.next();
+				ret.put( var, myConverter.convert( b.engine.varConditional( myConverter.convert( var ) ) ) );
+			}
+		}
+		finally{ giveBack( b ); }
+		return ret;
+	}
+
+	/** Replace the CPT of <b>var</b>, as {@link JointWrapper#setCPT(FiniteVariable,double[])}
+		does.  Queries already running finish with the old CPT; engines they
+		give back are discarded. */
+	public synchronized void setCPT( FiniteVariable var, double[] vals ){
+		il2.model.Table[] tables = (il2.model.Table[]) myGeneration.tables.clone();
+		Table t = new Table( var.getCPTShell( var.getDSLNodeType() ).variables(), vals );
+		tables[ myConverter.convert( var ) ] = myConverter.convert( t );
+		myGeneration = new Generation( tables );
+		myIdle.clear();
+	}
+
+	private Borrowed borrow( Map evidence ){
+		Generation gen = myGeneration;
+		Borrowed b;
+		while( (b = (Borrowed) myIdle.pollFirst()) != null ){
+			if( b.generation == gen ){ break; }
+		}
+		if( b == null ){ b = create( gen ); }
+		b.engine.setEvidence( evidence == null ? new IntMap() : myConverter.convert( evidence ) );
+		return b;
+	}
+
+	/** Engines read the join tree while they are built, and its graph is
+		not safe for concurrent reads, so they are built one at a time. */
+	private Borrowed create( Generation gen ){
+		synchronized( myJoinTree ){
+			return new Borrowed( myFactory.create( gen.tables, myJoinTree ), gen );
+		}
+	}
+
+	/** most recently used first, so busy engines stay warm in cache */
+	private void giveBack( Borrowed b ){
+		if( b.generation == myGeneration ){ myIdle.offerFirst( b ); }
+	}
+
+	/** the CPTs between two calls to setCPT */
+	private static final class Generation{
+		Generation( il2.model.Table[] tables ){ this.tables = tables; }
+		final il2.model.Table[] tables;
+	}
+
+	private static final class Borrowed{
+		Borrowed( JointEngine engine, Generation generation ){
+			this.engine     = engine;
+			this.generation = generation;
+		}
+		final JointEngine engine;
+		final Generation  generation;
+	}
+
+	private final EliminationOrders.JT     myJoinTree;
+	private final Converter                myConverter;
+	private final Factory                  myFactory;
+	private volatile Generation            myGeneration;
+	private final ConcurrentLinkedDeque    myIdle = new ConcurrentLinkedDeque();
+}
@@ -70,10 +70,98 @@ public class JEngineGenerator extends DefaultGenerator implements Serializable
 		else throw new IllegalArgumentException( STR_EXCEPTION_ILLEGAL_JOINTREE );
 	}
 
+	/** An engine for queries about <b>queryVariables</b> given findings on the
+		variables of <b>evidence</b>: Shenoy-Shafer on the ancestors of those
+		variables only.  The pruned jointree does not depend on the values
+		of the findings, so it is cached by (network, query variables,
+		evidence variables) and reused, least recently used first out.
+
+		<p>Every call returns a new engine of its own, on the cached
+		jointree and CPTs, with <b>evidence</b> asserted on it.  It does not
+		listen to the network's evidence controller: its findings change
+		only through the engine itself.  Kill it when done with it.
+		@since 20261018 */
 	public InferenceEngine prunedEngine(BeliefNetwork bn,Collection queryVariables, Map evidence){
-		throw new UnsupportedOperationException();
+		PrunedSignature key = new PrunedSignature( bn, queryVariables, evidence.keySet() );
+		SSWrapper pruned;
+		synchronized( this ){
+			Map cache = prunedEngines();
+			pruned = (SSWrapper) cache.get( key );
+			if( pruned == null ){
+				pruned = SSWrapper.pruned( bn, queryVariables, evidence.keySet() );
+				cache.put( key, pruned );
+			}
+		}
+		SSEngine engine = new SSEngine( pruned.sameStructure(), bn, this );
+		bn.getEvidenceController().removePriorityEvidenceChangeListener( engine );
+		engine.assertEvidence( evidence );
+		return engine;
+	}
+
+	/** the number of pruned jointrees cached
+		@since 20261018 */
+	public synchronized int getPrunedEngineCacheSize(){
+		return myPrunedEngineCacheSize;
+	}
+
+	/** @since 20261018 */
+	public synchronized void setPrunedEngineCacheSize( int size ){
+		if( size < 1 ) throw new IllegalArgumentException( "cache size " + size );
+		myPrunedEngineCacheSize = size;
+		Map cache = prunedEngines();
+		for( Iterator it = cache.values().iterator(); cache.size() > size; ){
+			it.next();
+			it.remove();
+		}
+	}
+
+	/** Forget every cached pruned jointree.  Engines already returned
+		by prunedEngine() keep working.
+		@since 20261018 */
+	public synchronized void clearPrunedEngines(){
+		if( myPrunedEngines != null ) myPrunedEngines.clear();
 	}
 
+	private Map prunedEngines(){
+		if( myPrunedEngineCacheSize < 1 ) myPrunedEngineCacheSize = INT_PRUNED_ENGINE_CACHE_SIZE_DEFAULT;//deserialized
+		if( myPrunedEngines == null ){
+			myPrunedEngines = new LinkedHashMap( 16, 0.75f, true ){
+				protected boolean removeEldestEntry( Map.Entry eldest ){
+					return size() > myPrunedEngineCacheSize;
+				}
+			};
+		}
+		return myPrunedEngines;
+	}
+
+	/** the networks are compared by identity */
+	private static final class PrunedSignature{
+		PrunedSignature( BeliefNetwork bn, Collection queryVariables, Collection evidenceVariables ){
+			this.bn                = bn;
+			this.queryVariables    = new HashSet( queryVariables );
+			this.evidenceVariables = new HashSet( evidenceVariables );
+		}
+
+		public boolean equals( Object o ){
+			if( !(o instanceof PrunedSignature) ) return false;
+			PrunedSignature other = (PrunedSignature) o;
+			return bn == other.bn && queryVariables.equals( other.queryVariables ) && evidenceVariables.equals( other.evidenceVariables );
+		}
+
+		public int hashCode(){
+			return System.identityHashCode( bn ) + 31*queryVariables.hashCode() + 961*evidenceVariables.hashCode();
+		}
+
+		final BeliefNetwork bn;
+		final Set           queryVariables;
+		final Set           evidenceVariables;
+	}
+
+	public static final int INT_PRUNED_ENGINE_CACHE_SIZE_DEFAULT = 16;
+
+	private transient int myPrunedEngineCacheSize = INT_PRUNED_ENGINE_CACHE_SIZE_DEFAULT;
+	private transient Map myPrunedEngines;
+
 	public static BeliefCompilation compile( BeliefNetwork bn, int reps, Random seed )
 	{
 		List order = EliminationOrders.minFill( bn, reps, seed );
@@ -32,6 +32,25 @@ public class JoinTreeSettings implements UserObject, ChangeBroadcaster
 		return myEliminationHeuristic;
 	}
 
+	/** Compile noisy-or cpts as {@link il2.bridge.Converter#convertFactorized(BeliefNetwork)
+		chains} instead of full tables.  Only the shenoy-shafer engine
+		honors this setting.
+		@since 20261018 */
+	public void setFactorNoisyOr( boolean flag )
+	{
+		if( myFlagFactorNoisyOr != flag )
+		{
+			myFlagFactorNoisyOr = flag;
+			settingChanged();
+		}
+	}
+
+	/** @since 20261018 */
+	public boolean getFactorNoisyOr()
+	{
+		return myFlagFactorNoisyOr;
+	}
+
 	/** @since 012904 */
 	public void setJoinTree( il2.inf.structure.JTUnifier jointree )
 	{
@@ -77,10 +96,12 @@ public class JoinTreeSettings implements UserObject, ChangeBroadcaster
 		flagNotSettingsChanging &= this.myEliminationHeuristic == toCopy.myEliminationHeuristic;
 		flagNotSettingsChanging &= this.myEngine == toCopy.myEngine;
 		flagNotSettingsChanging &= this.myJoinTree == toCopy.myJoinTree;
+		flagNotSettingsChanging &= this.myFlagFactorNoisyOr == toCopy.myFlagFactorNoisyOr;
 
 		this.myEliminationHeuristic = toCopy.myEliminationHeuristic;
 		this.myEngine = toCopy.myEngine;
 		this.myJoinTree = toCopy.myJoinTree;
+		this.myFlagFactorNoisyOr = toCopy.myFlagFactorNoisyOr;
 
 		if( !flagNotSettingsChanging ) fireSettingChanged();
 	}
@@ -140,4 +161,5 @@ public class JoinTreeSettings implements UserObject, ChangeBroadcaster
 	//private InferenceEngine myEngine;
 	private SoftReference myEngine;
 	private il2.inf.structure.JTUnifier myJoinTree;
+	private boolean myFlagFactorNoisyOr;
 }
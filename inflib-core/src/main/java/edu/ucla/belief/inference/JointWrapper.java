@@ -46,6 +46,18 @@ public abstract class JointWrapper{
 	evidenceChanged=true;
     }
 
+    /** Replace all the evidence.
+	@since 20261018 */
+    public void setEvidence(Map e){
+	evidence=new HashMap(e);
+	evidenceChanged=true;
+    }
+
+    /** @since 20261018 */
+    public boolean hasEvidence(){
+	return !evidence.isEmpty();
+    }
+
     protected void ensureCoherent(){
 	if(evidenceChanged){
 	    IntMap e=converter().convert(evidence);
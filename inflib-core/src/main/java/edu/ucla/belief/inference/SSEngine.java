@@ -27,7 +27,7 @@ public class SSEngine extends PartialDerivativeWrapperEngine
 	}
 
 	/** @since 061404 */
-	private SSEngine( SSWrapper rappa, BeliefNetwork bn, Dynamator dyn ){
+	SSEngine( SSWrapper rappa, BeliefNetwork bn, Dynamator dyn ){
 		super( rappa, bn, dyn );
 	}
 
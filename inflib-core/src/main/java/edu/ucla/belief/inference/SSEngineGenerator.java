@@ -45,7 +45,8 @@ public class SSEngineGenerator extends DefaultGenerator implements Serializable
 		SSEngine engine = null;
 		il2.inf.structure.JTUnifier jt = settings.getJoinTree();
 		if( jt == null ){
-			engine = new SSEngine( bn, this, settings.getEliminationHeuristic().getEliminationOrder( bn ) );
+			if( settings.getFactorNoisyOr() ) engine = new SSEngine( SSWrapper.factorized( bn, (EliminationOrders.JT)null ), bn, this );
+			else engine = new SSEngine( bn, this, settings.getEliminationHeuristic().getEliminationOrder( bn ) );
 			EliminationOrders.JT newJoinTree = ((il2.inf.jointree.JoinTreeAlgorithm)engine.getJointWrapper().engine()).getJoinTree();
 			settings.setJoinTree( newJoinTree );
 		}
@@ -59,7 +60,8 @@ public class SSEngineGenerator extends DefaultGenerator implements Serializable
 				//il2.model.BayesianNetwork bn2 = c.convert( bn );
 				//jointree = jointree.clone( c, bn2 );
 			}
-			engine = new SSEngine( bn, this, jointree );
+			if( settings.getFactorNoisyOr() ) engine = new SSEngine( SSWrapper.factorized( bn, jointree ), bn, this );
+			else engine = new SSEngine( bn, this, jointree );
 		}
 		else throw new IllegalArgumentException( STR_EXCEPTION_ILLEGAL_JOINTREE );
 		return engine;
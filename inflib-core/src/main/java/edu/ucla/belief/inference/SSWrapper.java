@@ -5,6 +5,7 @@ import il2.inf.*;
 import il2.inf.jointree.*;
 import il2.bridge.Converter;
 import edu.ucla.belief.BeliefNetwork;
+import edu.ucla.belief.FiniteVariable;
 import edu.ucla.belief.QuantitativeDependencyHandler;
 import il2.model.BayesianNetwork;
 
@@ -15,6 +16,7 @@ public class SSWrapper extends PartialDerivativeWrapper
 {
 	private PartialDerivativeEngine pde;
 	private Converter c;
+	private boolean[] myRelevant;
 
 	public SSWrapper(BeliefNetwork bn)
 	{
@@ -45,6 +47,8 @@ public class SSWrapper extends PartialDerivativeWrapper
 
 	/** @since 061404 */
 	public SSWrapper handledClone( QuantitativeDependencyHandler handler ){
+		if( myRelevant != null ) throw new UnsupportedOperationException( "pruned engines cannot be cloned" );
+		if( ((JoinTreeAlgorithm)this.engine()).getJoinTree().network == null ) throw new UnsupportedOperationException( "factorized engines cannot be cloned" );
 		return new SSWrapper( this.c.getBeliefNetwork(), ((JoinTreeAlgorithm)this.engine()).getJoinTree(), handler );
 	}
 
@@ -58,6 +62,93 @@ public class SSWrapper extends PartialDerivativeWrapper
 		pde = UnindexedSSAlgorithm.create( tables, jt );
 	}
 
+	/** Shenoy-Shafer on the ancestors of <b>queryVariables</b> and
+		<b>evidenceVariables</b>, which are all that matter to those queries
+		whatever the findings on those evidence variables.  Pruned CPTs are
+		replaced by constants so that table indices still follow <b>bn</b>;
+		evidence on pruned variables is ignored.
+		@since 20261018 */
+	public static SSWrapper pruned( BeliefNetwork bn, Collection queryVariables, Collection evidenceVariables )
+	{
+		Converter c = new Converter();
+		BayesianNetwork bn2 = c.convert( bn );
+		IntSet vars = c.convert( new HashSet( queryVariables ) ).union( c.convert( new HashSet( evidenceVariables ) ) );
+		if( vars.size() == 0 ) return new SSWrapper( bn );
+
+		boolean[] relevant = bn2.isRelevant( vars );
+		il2.model.Table[] cpts = bn2.cpts();
+		il2.model.Table[] tables = new il2.model.Table[ cpts.length ];
+		List kept = new ArrayList( vars.size() );
+		for( int i=0; i<cpts.length; i++ ){
+			if( relevant[i] ){
+				tables[i] = cpts[i];
+				kept.add( cpts[i] );
+			}
+			else tables[i] = il2.model.Table.constantTable( bn2.domain(), 1 );
+		}
+		SSWrapper ret = new SSWrapper();
+		ret.c          = c;
+		ret.pde        = UnindexedSSAlgorithm.create( tables, EliminationOrders.traditionalJoinTree( kept ) );
+		ret.myRelevant = relevant;
+		return ret;
+	}
+
+	/** Shenoy-Shafer on the {@link Converter#convertFactorized(BeliefNetwork)
+		factorized} cpts of <b>bn</b>, on <b>jt</b>, or, if it is null, on a
+		jointree from a min-fill order over those tables.  The cpt of a
+		factorized noisy-or variable is not one of the tables, so its family
+		joint, its table partial and setCPT() are unsupported.
+		@since 20261018 */
+	public static SSWrapper factorized( BeliefNetwork bn, EliminationOrders.JT jt )
+	{
+		Converter c = (jt == null) ? new Converter() : jt.converter;
+		il2.model.Table[] tables = c.convertFactorized( bn );
+		if( jt == null ){
+			Collection subdomains = Arrays.asList( tables );
+			jt = EliminationOrders.traditionalJoinTree( subdomains, EliminationOrders.minFill( subdomains, 1, (Random)null ).order, c, (BayesianNetwork)null );
+		}
+		SSWrapper ret = new SSWrapper();
+		ret.c   = c;
+		ret.pde = UnindexedSSAlgorithm.create( tables, jt );
+		return ret;
+	}
+
+	private SSWrapper(){}
+
+	/** A wrapper on the same jointree, converter and CPTs, with its own
+		messages and evidence.
+		@since 20261018 */
+	SSWrapper sameStructure(){
+		JoinTreeAlgorithm jta = (JoinTreeAlgorithm) pde;
+		SSWrapper ret = new SSWrapper();
+		ret.c          = c;
+		ret.pde        = UnindexedSSAlgorithm.create( jta.getOriginalTables(), jta.getJoinTree() );
+		ret.myRelevant = myRelevant;
+		return ret;
+	}
+
+	/** Changes to the CPTs of pruned variables cannot matter. */
+	public void setCPT( FiniteVariable var, double[] vals ){
+		if( myRelevant == null || myRelevant[ c.convert( var ) ] ){
+			checkNotFactorized( var );
+			super.setCPT( var, vals );
+		}
+	}
+
+	public edu.ucla.belief.Table familyJoint( FiniteVariable var ){
+		checkNotFactorized( var );
+		return super.familyJoint( var );
+	}
+
+	public edu.ucla.belief.Table tablePartial( FiniteVariable var ){
+		checkNotFactorized( var );
+		return super.tablePartial( var );
+	}
+
+	private void checkNotFactorized( FiniteVariable var ){
+		if( c.isFactorized( c.convert( var ) ) ) throw new UnsupportedOperationException( "the cpt of " + var + " is factorized" );
+	}
+
 	protected PartialDerivativeEngine pdengine()
 	{
 		return pde;
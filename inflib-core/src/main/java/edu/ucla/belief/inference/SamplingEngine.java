@@ -0,0 +1,45 @@
+package edu.ucla.belief.inference;
+
+import edu.ucla.belief.*;
+import il2.inf.sampling.ImportanceSampler;
+
+/** Approximate answers by importance sampling,
+	likelihood weighting or AIS-BN.
+
+	@since 20261018 */
+public class SamplingEngine extends WrapperInferenceEngine
+{
+	public SamplingEngine( BeliefNetwork bn, SamplingSettings settings, Dynamator dyn ){
+		super( new SamplingWrapper( bn, settings ), bn, dyn, false );
+	}
+
+	private SamplingEngine( SamplingWrapper rappa, BeliefNetwork bn, Dynamator dyn ){
+		super( rappa, bn, dyn, false );
+	}
+
+	public InferenceEngine handledClone( QuantitativeDependencyHandler handler )
+	{
+		SamplingEngine ret = new SamplingEngine( ((SamplingWrapper)this.comp).handledClone( handler ), this.getBeliefNetwork(), this.getDynamator() );
+		ret.setQuantitativeDependencyHandler( handler );
+		return ret;
+	}
+
+	/** the il2 engine, for confidence intervals */
+	public ImportanceSampler getSampler(){
+		return ((SamplingWrapper)this.comp).getSampler();
+	}
+
+	/** Improve the current answers with <b>count</b> more samples. */
+	public void refine( long count ){
+		comp.prEvidence();
+		getSampler().sample( count );
+		clearCache();
+	}
+
+	/** Improve the current answers by sampling for <b>millis</b> more milliseconds. */
+	public void refineFor( long millis ){
+		comp.prEvidence();
+		getSampler().sampleFor( millis );
+		clearCache();
+	}
+}
@@ -0,0 +1,102 @@
+package edu.ucla.belief.inference;
+
+import edu.ucla.belief.*;
+import edu.ucla.belief.io.PropertySuperintendent;
+
+import java.util.Map;
+import java.util.Arrays;
+import java.util.Collection;
+import javax.swing.JMenu;
+import java.awt.Container;
+import java.io.Serializable;
+
+/** Generates instances of SamplingEngine,
+	approximate inference by importance sampling.
+
+	@since 20261018 */
+public class SamplingEngineGenerator extends Dynamator implements Serializable
+{
+	static final long serialVersionUID = 4302788150261018L;
+
+	public static Object getKeyStatic(){
+		return "samplingenginegenerator4302788150261018L";
+	}
+
+	public Object getKey(){
+		return getKeyStatic();
+	}
+
+	public String getDisplayName(){
+		return FLAG_DEBUG_DISPLAY_NAMES ?
+			"sampling (il2.inf.sampling)" : "importance sampling";
+	}
+
+	public boolean probabilitySupported(){
+		return true;
+	}
+
+	public boolean isEditable() { return false; }
+	public Commitable getEditComponent( Container cont ) { return null; }
+	public void commitEditComponent() {}
+	public JMenu getJMenu() { return null; }
+	public Dynamator getCanonicalDynamator() { return this; }
+
+	public InferenceEngine manufactureInferenceEngineOrDie( BeliefNetwork bn, Dynamator dyn ) throws Throwable
+	{
+		SamplingSettings settings = getSettings( choosePropertySuperintendent( (PropertySuperintendent) bn ) );
+		return new SamplingEngine( bn, settings, dyn );
+	}
+
+	public void killState( PropertySuperintendent bn ){
+		SamplingSettings settings = getSettings( choosePropertySuperintendent( bn ) );
+		settings.killState();
+	}
+
+	public Object retrieveState( PropertySuperintendent bn ){
+		return getSettings( bn );
+	}
+
+	public static SamplingSettings getSettings( PropertySuperintendent bn ){
+		return getSettings( bn, true );
+	}
+
+	public static SamplingSettings getSettings( PropertySuperintendent bn, boolean construct )
+	{
+		Map properties = bn.getProperties();
+		Object value = properties.get( getKeyStatic() );
+		SamplingSettings ret = null;
+		if( value instanceof SamplingSettings )
+			ret = (SamplingSettings)value;
+		else if( construct )
+		{
+			ret = new SamplingSettings();
+			properties.put( getKeyStatic(), ret );
+		}
+
+		return ret;
+	}
+
+	public Dynamator writeJavaCodeSettingsManipulation( BeliefNetwork beliefnetwork, boolean withComments, java.io.PrintStream out ){
+		if( withComments ){ out.println( "    /* Edit settings. */" ); }
+		SamplingSettings settings = this.getSettings( (PropertySuperintendent) beliefnetwork );
+		out.println( "    "+settings.getClass().getName()+" settings = dynamator.getSettings( (PropertySuperintendent) bn );" );
+		out.println( "    settings.setAdaptive( "      + settings.isAdaptive()      + " );" );
+		out.println( "    settings.setSampleCount( "   + settings.getSampleCount()  + "L );" );
+		out.println( "    settings.setTimeoutMillis( " + settings.getTimeoutMillis()+ "L );" );
+		out.println( "    settings.setThreadCount( "   + settings.getThreadCount()  + " );" );
+		out.println( "    settings.setSeed( "          + settings.getSeed()         + "L );" );
+		out.println();
+		return this;
+	}
+
+	public Collection getClassDependencies(){
+		return Arrays.asList( new Class[] {
+			SamplingEngineGenerator.class,
+			SamplingSettings.class,
+			SamplingEngine.class,
+			SamplingWrapper.class,
+			il2.inf.sampling.ImportanceSampler.class,
+			il2.inf.sampling.ForwardSampler.class,
+			java.math.BigInteger.class } );
+	}
+}
@@ -0,0 +1,144 @@
+package edu.ucla.belief.inference;
+
+import edu.ucla.util.*;
+import il2.inf.sampling.ImportanceSampler;
+
+import java.util.*;
+
+/** Settings of the importance sampling engine,
+	see {@link ImportanceSampler}.
+
+	@since 20261018 */
+public class SamplingSettings implements UserObject, ChangeBroadcaster
+{
+	public static final long LONG_TIMEOUT_MILLIS_DEFAULT = (long) 10000;
+
+	/** default settings:
+		AIS-BN importance function
+		samples = ImportanceSampler.LONG_SAMPLE_COUNT_DEFAULT
+		timeout = 10 sec
+		threads = available processors
+	*/
+	public SamplingSettings(){
+		this.myAdaptive    = true;
+		this.mySampleCount = ImportanceSampler.LONG_SAMPLE_COUNT_DEFAULT;
+		this.myTimeoutMillis = LONG_TIMEOUT_MILLIS_DEFAULT;
+		this.myThreadCount = Runtime.getRuntime().availableProcessors();
+		this.mySeed        = System.nanoTime();
+	}
+
+	/** AIS-BN if true, otherwise likelihood weighting */
+	public void setAdaptive( boolean flag ){
+		if( myAdaptive != flag ){ myAdaptive = flag; fireSettingChanged(); }
+	}
+
+	public boolean isAdaptive(){
+		return myAdaptive;
+	}
+
+	public void setSampleCount( long count ){
+		if( mySampleCount != count ){ mySampleCount = count; fireSettingChanged(); }
+	}
+
+	public long getSampleCount(){
+		return mySampleCount;
+	}
+
+	/** If millis is 0, queries are not time bounded. */
+	public void setTimeoutMillis( long millis ){
+		if( myTimeoutMillis != millis ){ myTimeoutMillis = millis; fireSettingChanged(); }
+	}
+
+	public long getTimeoutMillis(){
+		return myTimeoutMillis;
+	}
+
+	public void setThreadCount( int count ){
+		if( myThreadCount != count ){ myThreadCount = count; fireSettingChanged(); }
+	}
+
+	public int getThreadCount(){
+		return myThreadCount;
+	}
+
+	public void setSeed( long seed ){
+		if( mySeed != seed ){ mySeed = seed; fireSettingChanged(); }
+	}
+
+	public long getSeed(){
+		return mySeed;
+	}
+
+	/** apply these settings to <b>sampler</b> */
+	public ImportanceSampler configure( ImportanceSampler sampler ){
+		sampler.setAdaptive(      myAdaptive      );
+		sampler.setSampleCount(   mySampleCount   );
+		sampler.setTimeoutMillis( myTimeoutMillis );
+		sampler.setThreadCount(   myThreadCount   );
+		sampler.setSeed(          mySeed          );
+		return sampler;
+	}
+
+	public void killState(){
+	}
+
+	/** interface ChangeBroadcaster */
+	public ChangeBroadcaster fireSettingChanged(){
+		if( myChangeListeners == null ){ return this; }
+
+		myChangeListeners.cleanClearedReferences();
+		ChangeEvent evt = EVENT_SETTING_CHANGED;
+		ArrayList list = new ArrayList( myChangeListeners );
+		for( Iterator it = list.iterator(); it.hasNext(); ){
+			((ChangeListener)it.next()).settingChanged( evt );
+		}
+		return this;
+	}
+
+	/** interface ChangeBroadcaster */
+	public boolean    addChangeListener( ChangeListener listener ){
+		if(    myChangeListeners == null ){ myChangeListeners = new WeakLinkedList(); }
+		return myChangeListeners.contains( listener ) ? false : myChangeListeners.add( listener );
+	}
+
+	/** interface ChangeBroadcaster */
+	public boolean removeChangeListener( ChangeListener listener ){
+		return myChangeListeners != null ? myChangeListeners.remove( listener ) : false;
+	}
+
+	/** interface UserObject */
+	public UserObject onClone(){
+		SamplingSettings ret = new SamplingSettings();
+		ret.copy( this );
+		return ret;
+	}
+
+	public void copy( SamplingSettings toCopy )
+	{
+		boolean flagNotSettingsChanging = true;
+
+		flagNotSettingsChanging &= myAdaptive      == toCopy.myAdaptive;
+		flagNotSettingsChanging &= mySampleCount   == toCopy.mySampleCount;
+		flagNotSettingsChanging &= myTimeoutMillis == toCopy.myTimeoutMillis;
+		flagNotSettingsChanging &= myThreadCount   == toCopy.myThreadCount;
+		flagNotSettingsChanging &= mySeed          == toCopy.mySeed;
+
+		myAdaptive      = toCopy.myAdaptive;
+		mySampleCount   = toCopy.mySampleCount;
+		myTimeoutMillis = toCopy.myTimeoutMillis;
+		myThreadCount   = toCopy.myThreadCount;
+		mySeed          = toCopy.mySeed;
+
+		if( !flagNotSettingsChanging ) fireSettingChanged();
+	}
+
+	public final ChangeEvent EVENT_SETTING_CHANGED = new ChangeEventImpl().source( this );
+
+	private boolean myAdaptive;
+	private long    mySampleCount;
+	private long    myTimeoutMillis;
+	private int     myThreadCount;
+	private long    mySeed;
+
+	transient private WeakLinkedList myChangeListeners;
+}
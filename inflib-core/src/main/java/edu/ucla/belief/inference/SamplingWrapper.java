@@ -0,0 +1,48 @@
+package edu.ucla.belief.inference;
+
+import il2.inf.*;
+import il2.inf.sampling.ImportanceSampler;
+import il2.bridge.Converter;
+import edu.ucla.belief.BeliefNetwork;
+import edu.ucla.belief.QuantitativeDependencyHandler;
+import il2.model.BayesianNetwork;
+
+/** @since 20261018 */
+public class SamplingWrapper extends JointWrapper
+{
+	private ImportanceSampler engine;
+	private Converter c;
+
+	public SamplingWrapper( BeliefNetwork bn, SamplingSettings settings ){
+		this( bn, settings, (QuantitativeDependencyHandler)null );
+	}
+
+	public SamplingWrapper( BeliefNetwork bn, SamplingSettings settings, QuantitativeDependencyHandler handler )
+	{
+		c = new Converter();
+		BayesianNetwork bn2 = c.convert( bn );
+		if( handler != null ) bn2 = new BayesianNetwork( c.convertTables( bn, handler ) );
+		engine = settings.configure( new ImportanceSampler( bn2 ) );
+		mySettings = settings;
+	}
+
+	public SamplingWrapper handledClone( QuantitativeDependencyHandler handler ){
+		return new SamplingWrapper( this.c.getBeliefNetwork(), mySettings, handler );
+	}
+
+	public ImportanceSampler getSampler(){
+		return engine;
+	}
+
+	protected JointEngine engine()
+	{
+		return engine;
+	}
+
+	protected Converter converter()
+	{
+		return c;
+	}
+
+	private SamplingSettings mySettings;
+}
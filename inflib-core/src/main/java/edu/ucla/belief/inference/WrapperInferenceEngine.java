@@ -139,7 +139,7 @@ public abstract class WrapperInferenceEngine extends AbstractInferenceEngine imp
 	*/
 	public double probability()
 	{
-		if( bn.getEvidenceController().isEmpty() ) return (double)1;
+		if( !comp.hasEvidence() ) return (double)1;
 		else return comp.prEvidence();
 	}
 
@@ -168,6 +168,13 @@ public abstract class WrapperInferenceEngine extends AbstractInferenceEngine imp
 		}
 	}
 
+	/** Replace the evidence outright, e.g. on an engine reused for other findings.
+		@since 20261018 */
+	void assertEvidence( Map evidence ){
+		clearCache();
+		comp.setEvidence( evidence );
+	}
+
 	/**
 	   @author Keith Cascio
 	   @since 082002
@@ -16,14 +16,16 @@ abstract class CSpaceApproximator extends MapApproximator{
         }
         currentInstance=initialInstance.flip(0,initialInstance.value(0),probability());
         setBestInstance(currentInstance);
+        visited(currentInstance);
         bestFoundTime=0;
         peaksToFindBest=0;
         int count=0; 
         peakCount=1;
         
-        for(evaluationsRemaining=evaluationsAllowed;evaluationsRemaining>0;evaluationsRemaining--){
+        for(evaluationsRemaining=evaluationsAllowed;evaluationsRemaining>0 && spend();evaluationsRemaining--){
             count++;
             currentInstance=bestMove();
+            visited(currentInstance);
             //System.err.print("("+currentInstance.unassigned()+") ");
             if((bestInstance()==null || currentInstance.score()>bestInstance().score()*1.00001) && currentInstance.isComplete()){
                 //System.err.println("setting best "+currentInstance.score());
@@ -81,6 +83,7 @@ abstract class CSpaceApproximator extends MapApproximator{
             current=generateRandomMove(current);
         }
         peakCount++;
+        setState(current);
         return current.flip(0,current.value(0),probability());
     }
     private java.util.Random rand=new java.util.Random();
@@ -13,6 +13,7 @@ abstract class MapApproximator{
     protected static final int UNASSIGNED=-1;
     protected int bestFoundTime;
     protected int peaksToFindBest;
+    private ParallelMapRunner.Shared shared;
     public void init(BeliefCompilation bc,Set mapvars){
         bestInstance=null;
         this.mapvars=new ArrayList(mapvars);
@@ -57,6 +58,21 @@ abstract class MapApproximator{
         bestInstance=instance;
         //System.err.println(" setting best: "+instance.score());
     }
+    /** Search as one of the trajectories of a ParallelMapRunner. */
+    final void share(ParallelMapRunner.Shared s){
+        shared=s;
+    }
+    /** Charge one evaluation to the shared budget, if any.
+        @return false if the budget is spent */
+    protected final boolean spend(){
+        return shared==null || shared.spend();
+    }
+    /** Offer a complete instance to the shared results, if any. */
+    protected final void visited(Instance inst){
+        if(shared!=null && inst!=null && inst.isComplete() && inst.score()>shared.threshold()){
+            shared.offer(inst.mapping(),inst.score());
+        }
+    }
     public abstract String getName();
     public abstract void run(Instance initial,int allowedEvaluations);
     protected final FiniteVariable var(int i){
@@ -17,10 +17,12 @@ abstract class PSpaceApproximator extends MapApproximator{
         if(currentInstance.isComplete()){
             setBestInstance(currentInstance);
         }
+        visited(currentInstance);
         
-        for(evaluationsRemaining=evaluationsAllowed;evaluationsRemaining>0;evaluationsRemaining--){
+        for(evaluationsRemaining=evaluationsAllowed;evaluationsRemaining>0 && spend();evaluationsRemaining--){
             currentInstance=bestMove();
             ensureSynchronized(currentInstance);
+            visited(currentInstance);
             //System.err.print("("+currentInstance.unassigned()+") ");
             if((bestInstance()==null || currentInstance.score()>bestInstance().score()) && currentInstance.isComplete()){
                 //System.err.println("setting best "+currentInstance.score());
@@ -0,0 +1,208 @@
+package edu.ucla.belief.inference.map;
+
+import edu.ucla.belief.*;
+import edu.ucla.belief.inference.BeliefCompilation;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Approximate MAP by many independent local searches at once.
+
+	<p>Each trajectory is one run of the {@link SearchMethod}'s
+	approximator, on a copy of the compilation that belongs to the thread
+	running it: the first trajectory starts from the {@link
+	InitializationMethod}'s instance, the others from random instances.
+	Every complete instance any trajectory visits is offered to one shared
+	list of the k best distinct instances, and all the trajectories charge
+	their evaluations to one budget, which ends the search when it runs
+	out or when the time allowed has passed, whichever comes first.
+
+	@since 20261018 */
+public class ParallelMapRunner
+{
+	public static final int INT_TOP_K_DEFAULT = 10;
+
+	public static class Result
+	{
+		/** FiniteVariable -> value, best first */
+		public final List instantiations;
+		public final double[] scores;
+		public final long evaluations;
+		public final long searchDurationMillisElapsed;
+		/** true unless the evaluation budget or the time allowed ran out */
+		public final boolean finished;
+
+		private Result( List instantiations, double[] scores, long evaluations, long elapsed, boolean finished ){
+			this.instantiations              = instantiations;
+			this.scores                      = scores;
+			this.evaluations                 = evaluations;
+			this.searchDurationMillisElapsed = elapsed;
+			this.finished                    = finished;
+		}
+
+		public Map    getBestInstantiation(){ return instantiations.isEmpty() ? null : (Map) instantiations.get(0); }
+		public double getBestScore(){ return scores.length == 0 ? (double)-1 : scores[0]; }
+	}
+
+	/** null for the common pool */
+	public ParallelMapRunner( ForkJoinPool pool ){
+		myPool = pool == null ? ForkJoinPool.commonPool() : pool;
+		myTrajectories = 4 * myPool.getParallelism();
+	}
+
+	public ForkJoinPool getPool(){ return myPool; }
+
+	/** how many searches to run; defaults to four per thread */
+	public void setTrajectories( int trajectories ){ myTrajectories = trajectories; }
+	public int  getTrajectories(){ return myTrajectories; }
+
+	/** the evaluations of each search */
+	public void setEvaluationsPerTrajectory( int evaluations ){ myEvaluationsPerTrajectory = evaluations; }
+	public int  getEvaluationsPerTrajectory(){ return myEvaluationsPerTrajectory; }
+
+	/** the evaluations of all the searches together, or a negative number for no limit */
+	public void setEvaluationBudget( long evaluations ){ myEvaluationBudget = evaluations; }
+	public long getEvaluationBudget(){ return myEvaluationBudget; }
+
+	/** wall-clock time allowed, or a non-positive number for no limit */
+	public void setTimeoutMillis( long millis ){ myTimeoutMillis = millis; }
+	public long getTimeoutMillis(){ return myTimeoutMillis; }
+
+	/** how many distinct instances to return */
+	public void setTopK( int k ){
+		if( k < 1 ) throw new IllegalArgumentException( "k " + k );
+		myTopK = k;
+	}
+	public int  getTopK(){ return myTopK; }
+
+	/** As {@link MapRunner#approximateMap(BeliefNetwork,BeliefCompilation,Set,Map,SearchMethod,InitializationMethod,int)},
+		whose evidence it leaves asserted on <b>comp</b> as well.  <b>comp</b>
+		itself is only read, to initialize and to copy. */
+	public Result approximateMap( BeliefNetwork bn, final BeliefCompilation comp, final Set mapvars, Map evidence, final SearchMethod searchMethod, InitializationMethod initializationMethod )
+	{
+		Set test = new HashSet( mapvars );
+		test.retainAll( evidence.keySet() );
+		if( test.size() != 0 ) throw new IllegalArgumentException( "The set of map variables and the set of evidence variables must be disjoint" );
+
+		long start = System.currentTimeMillis();
+		setEvidence( comp, evidence );
+		final Map initial = initializationMethod.getInitial( bn, evidence, mapvars, comp );
+
+		final Shared                 shared       = new Shared( myTopK, myEvaluationBudget, myTimeoutMillis > 0 ? start + myTimeoutMillis : Long.MAX_VALUE );
+		final ConcurrentLinkedDeque  compilations = new ConcurrentLinkedDeque();
+		final int                    evaluations  = myEvaluationsPerTrajectory - initializationMethod.getPenalty();
+		final int                    count        = myTrajectories;
+
+		myPool.invoke( new RecursiveAction(){
+			protected void compute(){
+				ForkJoinTask[] tasks = new ForkJoinTask[ count ];
+				for( int i=0; i<count; i++ ){
+					final Map from = (i == 0) ? initial : null;
+					tasks[i] = new RecursiveAction(){
+						protected void compute(){
+							if( shared.isSpent() ) return;
+							BeliefCompilation mine = (BeliefCompilation) compilations.pollFirst();
+							if( mine == null ){ synchronized( comp ){ mine = comp.copy(); } }
+							try{
+								MapApproximator approximator = searchMethod.getApproximator();
+								approximator.init( mine, mapvars );
+								approximator.share( shared );
+								approximator.run( approximator.new Instance( from == null ? randomInstance( mapvars ) : from ), evaluations );
+							}finally{
+								compilations.offerFirst( mine );
+							}
+						}
+					};
+				}
+				invokeAll( tasks );
+			}
+		} );
+
+		return shared.result( System.currentTimeMillis() - start );
+	}
+
+	private static Map randomInstance( Set mapvars ){
+		Random r = new Random();
+		Map ret = new HashMap( mapvars.size() );
+		for( Iterator it = mapvars.iterator(); it.hasNext(); ){
+			FiniteVariable var = (FiniteVariable) it.next();
+			ret.put( var, var.instance( r.nextInt( var.size() ) ) );
+		}
+		return ret;
+	}
+
+	private static void setEvidence( BeliefCompilation comp, Map evidence ){
+		for( Iterator it = comp.variables().iterator(); it.hasNext(); ){
+			FiniteVariable var = (FiniteVariable) it.next();
+			double[] lik = new double[ var.size() ];
+			if( evidence.containsKey( var ) ) lik[ var.index( evidence.get( var ) ) ] = 1;
+			else java.util.Arrays.fill( lik, 1 );
+			comp.setLikelihood( var, lik );
+		}
+	}
+
+	/** The budget and the best instances, shared by all the trajectories of one search. */
+	static final class Shared
+	{
+		Shared( int k, long budget, long deadline ){
+			myK        = k;
+			myBudget   = budget < 0 ? null : new AtomicLong( budget );
+			myDeadline = deadline;
+		}
+
+		/** @return false if the budget is spent or time is up */
+		boolean spend(){
+			if( mySpent ) return false;
+			if( (myBudget != null && myBudget.getAndDecrement() <= 0) || System.currentTimeMillis() >= myDeadline ){
+				mySpent = true;
+				return false;
+			}
+			myEvaluations.incrementAndGet();
+			return true;
+		}
+
+		boolean isSpent(){ return mySpent; }
+
+		/** the score an instance must beat to enter the list */
+		double threshold(){ return myThreshold; }
+
+		synchronized void offer( Map instantiation, double score ){
+			if( score <= myThreshold || myScores.containsKey( instantiation ) ) return;
+			myScores.put( instantiation, Double.valueOf( score ) );
+			myRanked.add( instantiation );
+			Collections.sort( myRanked, new Comparator(){
+				public int compare( Object o1, Object o2 ){
+					return Double.compare( ((Double) myScores.get( o2 )).doubleValue(), ((Double) myScores.get( o1 )).doubleValue() );
+				}
+			} );
+			if( myRanked.size() > myK ) myScores.remove( myRanked.remove( myK ) );
+			if( myRanked.size() == myK ) myThreshold = ((Double) myScores.get( myRanked.get( myK - 1 ) )).doubleValue();
+		}
+
+		synchronized Result result( long elapsed ){
+			double[] scores = new double[ myRanked.size() ];
+			for( int i=0; i<scores.length; i++ ) scores[i] = ((Double) myScores.get( myRanked.get(i) )).doubleValue();
+			return new Result( new ArrayList( myRanked ), scores, myEvaluations.get(), elapsed, !mySpent );
+		}
+
+		private final int            myK;
+		private final AtomicLong     myBudget;
+		private final long           myDeadline;
+		private final AtomicLong     myEvaluations = new AtomicLong();
+		private volatile boolean     mySpent       = false;
+		private volatile double      myThreshold   = (double)0;
+		private final Map            myScores      = new HashMap();
+		private final List           myRanked      = new ArrayList();
+	}
+
+	private final ForkJoinPool myPool;
+	private int                myTrajectories;
+	private int                myEvaluationsPerTrajectory = 1000;
+	private long               myEvaluationBudget         = -1;
+	private long               myTimeoutMillis            = 0;
+	private int                myTopK                     = INT_TOP_K_DEFAULT;
+}
@@ -423,6 +423,18 @@ public class NetworkIO
 		return bn;
 	}
 
+	/** Like {@link #read(File)}, but reads the binary cache written by
+		{@link il2.bridge.CompiledModel} instead of the file itself, if
+		the cache is at least as new.  A network read from the cache is a
+		plain BeliefNetworkImpl, without the display properties of the file.
+		@since 20261018 */
+	public static BeliefNetwork readCompiled( File fileNetwork ) throws Exception
+	{
+		il2.bridge.CompiledModel cached = il2.bridge.CompiledModel.readCache( fileNetwork );
+		if( cached != null ) return cached.getBeliefNetwork();
+		else return read( fileNetwork );
+	}
+
 	/** Reads a hugin description.
 		Does not try to estimate the network size
 		for the purposes of progress monitoring.
@@ -78,8 +78,10 @@ public class EMThread implements Runnable//extends Thread
 	public void run()
 	{
 		BeliefNetwork new_bn = null;
+		Learning.EStep estep = null;
 		try{
 			new_bn = bn;
+			if( this.data == null ) estep = new Learning.EStep( bn, dynamator, flagWithBias, Math.min( Learning.getThreadCount(), data2.size() / Learning.INT_MIN_RECORDS_PER_THREAD ) );
 
 			double previous, current = 0.0;
 
@@ -94,7 +96,10 @@ public class EMThread implements Runnable//extends Thread
 				});
 
 				previous = current;
-				if( this.data == null ) new_bn = Learning.learnParamsEM( new_bn, data2, dynamator, flagWithBias );
+				if( estep != null ){
+					if( !estep.accumulate( data2 ) ) throw new IllegalStateException( "a record could not be observed" );
+					estep.maximize();
+				}
 				else new_bn = Learning.learnParamsEM( new_bn, data, dynamator, flagWithBias );
 				current = Learning.getLastLikelihood();
 				Definitions.STREAM_TEST.println(counter+") "+current);
@@ -112,6 +117,8 @@ public class EMThread implements Runnable//extends Thread
 				e.printStackTrace();
 			}
 			return;
+		}finally{
+			if( estep != null ) estep.die();
 		}
 
 		if( new_bn.checkValidProbabilities() ) ll.setBeliefNetwork( new_bn );
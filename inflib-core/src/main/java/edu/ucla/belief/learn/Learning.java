@@ -7,6 +7,7 @@ import edu.ucla.belief.*;
 //{superfluous} import edu.ucla.belief.inference.JEngineGenerator;
 //{superfluous} import edu.ucla.belief.recursiveconditioning.RCInferenceEngine;
 import edu.ucla.structure.*;
+import java.util.concurrent.*;
 //{superfluous} import javax.swing.SwingUtilities;
 
 //debug
@@ -72,23 +73,27 @@ public class Learning
 	{
 		testDynamator( dyn );
 
-		BeliefNetwork new_bn = bn;
-		//BeliefNetwork new_bn = (BeliefNetwork) bn.clone();
 		double previous, current = 0.0;
 
-		for (int i = 1; i <= maxIterations; i++) {
-			previous = current;
-			new_bn = learnParamsEM( new_bn, data2, dyn, withBias );
-			current = getLastLikelihood();
-			Definitions.STREAM_TEST.println(i+") "+current);
-			if( Double.isNaN( current ) ) break;
-			if (previous != 0.0) {
-				if ((previous - current) / previous < threshold)
-					break;
+		EStep estep = new EStep( bn, dyn, withBias, Math.min( getThreadCount(), data2.size() / INT_MIN_RECORDS_PER_THREAD ) );
+		try{
+			for (int i = 1; i <= maxIterations; i++) {
+				previous = current;
+				if( !estep.accumulate( data2 ) ) return null;
+				estep.maximize();
+				current = getLastLikelihood();
+				Definitions.STREAM_TEST.println(i+") "+current);
+				if( Double.isNaN( current ) ) break;
+				if (previous != 0.0) {
+					if ((previous - current) / previous < threshold)
+						break;
+				}
 			}
+		}finally{
+			estep.die();
 		}
 
-		return new_bn;
+		return bn;
 	}
 
 	/**
@@ -233,97 +238,326 @@ public class Learning
 
 	/**
 	 * Returns a new BeliefNetwork with CPTs learned from one interation
-	 * of the EM learning algorithm.
+	 * of the EM learning algorithm.  When getThreadCount() allows, the
+	 * E-step runs on several threads, see learnParamsEM( BeliefNetwork, LearningData, Dynamator, boolean, int ).
 	 * @param bn Initial BeliefNetwork.
 	 * @param data Complete or incomplete LearningData for variables in "bn".
 	 */
 	public static BeliefNetwork learnParamsEM( BeliefNetwork bn, LearningData data, Dynamator dynamator, boolean withBias ) throws ArithmeticException
+	{
+		return learnParamsEM( bn, data, dynamator, withBias, getThreadCount() );
+	}
+
+	/**
+		One iteration of EM with the E-step split across <b>threads</b> workers.
+		The records are partitioned into contiguous shards.  Each worker
+		observes its records on a private view of "bn" - sharing its
+		variables and CPTs but with its own EvidenceController - through
+		its own engine, and sums expected counts into its own experience
+		tables.  The tables are merged in shard order at the end of the
+		iteration.  Falls back to a single thread if "bn" cannot be viewed
+		this way or if there are too few records.
+
+		@since 20261018
+	*/
+	public static BeliefNetwork learnParamsEM( BeliefNetwork bn, LearningData data, Dynamator dynamator, boolean withBias, int threads ) throws ArithmeticException
 	{
 		testDynamator( dynamator );
 
-		Iterator varIter;
-		Table cpt, tableExperience;
-		FiniteVariable var;
-		double currentWeight = (double)0;
+		EStep estep = new EStep( bn, dynamator, withBias, Math.min( threads, data.size() / INT_MIN_RECORDS_PER_THREAD ) );
+		try{
+			if( !estep.accumulate( data ) ) return null;
+			estep.maximize();
+		}finally{
+			estep.die();
+		}
+		return bn;
+	}
 
-		Map exp = createExperienceTables( bn, withBias );
+	/**
+		Like learnParamsEM( BeliefNetwork, LearningData, double, int, Dynamator, boolean )
+		but streams the records from a case file, see
+		learnParamsEM( BeliefNetwork, File, int, Dynamator, boolean ).
+		@since 20261018
+	*/
+	public static BeliefNetwork learnParamsEM( BeliefNetwork bn, File casefile, int chunkSize, double threshold, int maxIterations, Dynamator dyn, boolean withBias ) throws IOException
+	{
+		testDynamator( dyn );
+
+		double previous, current = 0.0;
+
+		EStep estep = new EStep( bn, dyn, withBias, Math.min( getThreadCount(), chunkSize / INT_MIN_RECORDS_PER_THREAD ) );
+		try{
+			for (int i = 1; i <= maxIterations; i++) {
+				previous = current;
+				if( !accumulate( estep, casefile, chunkSize ) ) return null;
+				estep.maximize();
+				current = getLastLikelihood();
+				Definitions.STREAM_TEST.println(i+") "+current);
+				if( Double.isNaN( current ) ) break;
+				if (previous != 0.0) {
+					if ((previous - current) / previous < threshold)
+						break;
+				}
+			}
+		}finally{
+			estep.die();
+		}
 
+		return bn;
+	}
+
+	/**
+		One iteration of EM over a case file too large to hold in memory.
+		The file is read <b>chunkSize</b> lines at a time into a
+		LearningData.ChunkReader chunk, reduced, and passed through the
+		E-step; the expected counts accumulate over the whole file before
+		the M-step.
+		@since 20261018
+	*/
+	public static BeliefNetwork learnParamsEM( BeliefNetwork bn, File casefile, int chunkSize, Dynamator dynamator, boolean withBias ) throws IOException
+	{
+		testDynamator( dynamator );
+
+		EStep estep = new EStep( bn, dynamator, withBias, Math.min( getThreadCount(), chunkSize / INT_MIN_RECORDS_PER_THREAD ) );
+		try{
+			if( !accumulate( estep, casefile, chunkSize ) ) return null;
+			estep.maximize();
+		}finally{
+			estep.die();
+		}
+		return bn;
+	}
+
+	/** One pass over a case file.
+		@return false if a record could not be observed
+		@since 20261018 */
+	private static boolean accumulate( EStep estep, File casefile, int chunkSize ) throws IOException
+	{
+		LearningData.ChunkReader reader = new LearningData.ChunkReader( casefile, estep.bn );
+		try{
+			LearningData chunk;
+			while( (chunk = reader.next( chunkSize )) != null ){
+				if( !estep.accumulate( chunk ) ) return false;
+			}
+			return true;
+		}finally{
+			reader.close();
+		}
+	}
+
+	/** M-step: replace the CPTs of "bn" with the normalized experience tables.
+		@since 20261018 */
+	private static void maximize( BeliefNetwork bn, Map exp )
+	{
 		Map tables = new HashMap();
+		FiniteVariable var;
+		Table tableExperience;
+		for( Iterator varIter = bn.iterator(); varIter.hasNext(); )
+		{
+			var = (FiniteVariable) varIter.next();
+			tableExperience = (Table) exp.get(var);
+			//System.out.println( tableExperience + "\n\n" );
+			BeliefNetworks.ensureCPTProperty( tableExperience, var );
+			tables.put( var, tableExperience );
+		}
 
-		mLikelihood = 0.0;
-		InferenceEngine ie = dynamator.manufactureInferenceEngine( bn );
-		EvidenceController ec = bn.getEvidenceController();
+		bn.replaceAllPotentials( tables );
+		bn.getEvidenceController().resetEvidence();
+	}
 
-		//if( ie instanceof WrapperInferenceEngine )
-		//{
-		//	Converter converter = ((WrapperInferenceEngine)ie).getJointWrapper().getConverter();
-		//	//System.out.println( "ie instanceof WrapperInferenceEngine, Converter.getIndex():" + converter.getIndex() );
-		//	//System.out.println( "bn.vertices(): " + bn.vertices() );
-		//	//System.out.println( "dynamator.getClass(): " + dynamator.getClass().getName() );
-		//}
+	/** The E-step, over one or more LearningData per iteration.  With
+		a single worker it observes on "bn" itself, otherwise each worker
+		gets a view of "bn" and an engine for it on first use.  The views
+		and engines live across iterations; maximize() only hands the
+		engines the new CPTs.
+		@since 20261018 */
+	static class EStep
+	{
+		public EStep( BeliefNetwork bn, Dynamator dynamator, boolean withBias, int threads )
+		{
+			this.bn = bn;
+			this.dynamator = dynamator;
+			this.withBias = withBias;
+			BeliefNetwork first = threads > 1 ? view( bn, dynamator ) : bn;
+			if( first == null ){
+				threads = 1;
+				first = bn;
+			}
+			int workers = Math.max( threads, 1 );
+			this.shards = new ExpectedCounts[ workers ];
+			this.networks = new BeliefNetwork[ workers ];
+			this.engines = new InferenceEngine[ workers ];
+			this.networks[0] = first;
+			//only the first shard carries the bias, as the serial experience tables do
+			for( int i=0; i<workers; i++ ) shards[i] = new ExpectedCounts( bn, withBias && (i==0) );
+		}
 
-		//PrintWriter writer = null;
-		//try{
-		//writer = new PrintWriter( new FileWriter( "learningdata2.txt" ) );
-		//}catch( Exception e ){ e.printStackTrace(); }
-		//WRITER = writer;
+		/** @return a view of "bn", or null if "bn" cannot be viewed or if the
+			dynamator is fixed to one set of properties - it would hand every
+			view the jointree of "bn" */
+		private static BeliefNetwork view( BeliefNetwork bn, Dynamator dynamator )
+		{
+			if( !(bn instanceof BeliefNetworkImpl) ) return null;
+			BeliefNetworkImpl view = new BeliefNetworkImpl( (BeliefNetworkImpl) bn );
+			return dynamator.choosePropertySuperintendent( view ) == view ? view : null;
+		}
 
-		int numRecords = data.size();
-		for( int i=0; i<numRecords; i++ )
+		/** @return false if a record could not be observed */
+		public boolean accumulate( final LearningData data )
 		{
-			data.setCurrentRecord( i );
-			currentWeight = data.getCurrentWeight();
+			int numRecords = data.size();
+			int workers = Math.max( 1, Math.min( shards.length, numRecords / INT_MIN_RECORDS_PER_THREAD ) );
+			if( workers == 1 ) return accumulate( 0, data, 0, numRecords );
+
+			if( executor == null ) executor = Executors.newFixedThreadPool( shards.length );
 			try{
-				ec.setObservations( data );
-				//writer.println( data.valuesToString() );
-			}catch( StateNotFoundException e ){
-				System.err.println( "Learning.learnParamsEM( LearningData ) caught " + e );
-				if( Definitions.DEBUG )
-				{
-					System.err.println( Definitions.STR_VERBOSE_TRACE_MESSAGE );
-					e.printStackTrace();
+				List futures = new ArrayList( workers );
+				for( int i=0; i<workers; i++ ){
+					final int worker = i;
+					final int from = (int)( ((long)numRecords * i) / workers );
+					final int to   = (int)( ((long)numRecords * (i+1)) / workers );
+					futures.add( executor.submit( new Callable(){
+						public Object call(){
+							return Boolean.valueOf( accumulate( worker, data.cursor(), from, to ) );
+						}
+					} ) );
+				}
+				boolean ret = true;
+				for( Iterator it = futures.iterator(); it.hasNext(); ){
+					ret &= ((Boolean) ((Future) it.next()).get()).booleanValue();
 				}
-				return null;
+				return ret;
+			}catch( InterruptedException e ){
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException( "Learning.learnParamsEM() interrupted" );
+			}catch( ExecutionException e ){
+				Throwable cause = e.getCause();
+				if( cause instanceof RuntimeException ) throw (RuntimeException) cause;
+				if( cause instanceof Error ) throw (Error) cause;
+				throw new IllegalStateException( cause.toString() );
 			}
+		}
 
-			mLikelihood -= ( Math.log( ie.probability() ) * currentWeight );
+		private boolean accumulate( int worker, LearningData data, int from, int to )
+		{
+			if( engines[worker] == null ){
+				if( networks[worker] == null ) networks[worker] = new BeliefNetworkImpl( (BeliefNetworkImpl) bn );
+				engines[worker] = dynamator.manufactureInferenceEngine( networks[worker] );
+			}
+			return shards[worker].accumulate( networks[worker], engines[worker], data, from, to );
+		}
 
-			for( varIter = bn.iterator(); varIter.hasNext(); )
-			{
-				var = (FiniteVariable) varIter.next();
-				tableExperience = (Table) exp.get(var);
-				cpt = ie.familyConditional(var);
-				////((Table) exp.get(var)).addInto(cpt);//THIS IS HIDEOUS!
-				//cpt.scale( data.getCurrentWeight() );
-				//tableExperience.addIntoTrivial( cpt );
-				tableExperience.addIntoTrivialScale( cpt, currentWeight );
-				//if( var == data.getDebugVariable() )
-				//{
-				//	Table.printArr( tableExperience, writer );
-				//	writer.println( " " + currentWeight );
-				//}
+		/** Sum the shards, in order, into the first and set mLikelihood.
+			@return the experience tables */
+		public Map merge()
+		{
+			Map exp = shards[0].exp;
+			mLikelihood = shards[0].likelihood;
+			for( int i=1; i<shards.length; i++ ){
+				mLikelihood += shards[i].likelihood;
+				for( Iterator varIter = bn.iterator(); varIter.hasNext(); ){
+					Object var = varIter.next();
+					((Table) exp.get( var )).addIntoTrivial( (Table) shards[i].exp.get( var ) );
+				}
 			}
+			return exp;
 		}
 
-		//writer.close();
-		//WRITER = DEFAULT_WRITER;
-		//System.out.println( "\texperience tables LearningData:" );
+		/** M-step into "bn", then readies the shards and engines for the next iteration. */
+		public void maximize()
+		{
+			Learning.maximize( bn, merge() );
+			for( int i=0; i<shards.length; i++ ){
+				shards[i] = new ExpectedCounts( bn, withBias && (i==0) );
+				if( engines[i] == null ) continue;
+				for( Iterator varIter = bn.iterator(); varIter.hasNext(); ) engines[i].setCPT( (FiniteVariable) varIter.next() );
+			}
+		}
 
-		for( varIter = bn.iterator(); varIter.hasNext(); )
+		public void die()
 		{
-			var = (FiniteVariable) varIter.next();
-			tableExperience = (Table) exp.get(var);
-			//System.out.println( tableExperience + "\n\n" );
-			BeliefNetworks.ensureCPTProperty( tableExperience, var );
-			tables.put( var, tableExperience );
+			if( executor != null ) executor.shutdownNow();
+			for( int i=0; i<engines.length; i++ ){
+				if( engines[i] != null && networks[i] != bn ) engines[i].die();
+			}
 		}
 
-		bn.replaceAllPotentials( tables );
-		ec.resetEvidence();
+		private final BeliefNetwork bn;
+		private final Dynamator dynamator;
+		private final boolean withBias;
+		private final ExpectedCounts[] shards;
+		private final BeliefNetwork[] networks;
+		private final InferenceEngine[] engines;
+		private ExecutorService executor;
+	}
 
-		return bn;
+	/** Expected counts, i.e. experience tables, and -log(likelihood)
+		summed over a range of records.
+		@since 20261018 */
+	private static class ExpectedCounts
+	{
+		public ExpectedCounts( BeliefNetwork bn, boolean withBias ){
+			this.exp = createExperienceTables( bn, withBias );
+		}
+
+		/** @return false if a record could not be observed */
+		public boolean accumulate( BeliefNetwork bn, InferenceEngine ie, LearningData data, int from, int to )
+		{
+			EvidenceController ec = bn.getEvidenceController();
+			double currentWeight;
+			FiniteVariable var;
+			Table cpt;
+			for( int i=from; i<to; i++ )
+			{
+				data.setCurrentRecord( i );
+				currentWeight = data.getCurrentWeight();
+				try{
+					ec.setObservations( data );
+				}catch( StateNotFoundException e ){
+					System.err.println( "Learning.learnParamsEM( LearningData ) caught " + e );
+					if( Definitions.DEBUG )
+					{
+						System.err.println( Definitions.STR_VERBOSE_TRACE_MESSAGE );
+						e.printStackTrace();
+					}
+					return false;
+				}
+
+				likelihood -= ( Math.log( ie.probability() ) * currentWeight );
+
+				for( Iterator varIter = bn.iterator(); varIter.hasNext(); )
+				{
+					var = (FiniteVariable) varIter.next();
+					cpt = ie.familyConditional(var);
+					((Table) exp.get(var)).addIntoTrivialScale( cpt, currentWeight );
+				}
+			}
+			return true;
+		}
+
+		public final Map exp;
+		public double likelihood = 0.0;
+	}
+
+	/** The default number of E-step workers, set by setThreadCount().
+		@since 20261018 */
+	public static int getThreadCount(){
+		return theThreadCount;
 	}
 
+	/** @since 20261018 */
+	public static void setThreadCount( int threads ){
+		if( threads < 1 ) throw new IllegalArgumentException( "thread count must be positive" );
+		theThreadCount = threads;
+	}
+
+	/** Fewer records than this per worker are not worth a thread.
+		@since 20261018 */
+	public static final int INT_MIN_RECORDS_PER_THREAD = 256;
+
+	private static int theThreadCount = Runtime.getRuntime().availableProcessors();
+
 	/**
 	 * Returns the -log(Likelihood) for the last call to learnParamsEM().
 	 */
@@ -9,6 +9,11 @@ import java.util.*;
 import java.io.*;
 
 /**
+	Records are stored by column: for each variable, the state index it
+	takes in every record, as a byte[] (or short[] or int[], for variables
+	with many states), with INT_MISSING where the value is unobserved.
+	Viewed as a Map, a LearningData is the current record.
+
 	@author Keith Cascio
 	@since 110603
 */
@@ -16,6 +21,10 @@ public class LearningData implements Map
 {
 	public static final boolean FLAG_REDUCE_CASES = true;
 
+	/** The state index of an unobserved value.
+		@since 20261018 */
+	public static final int INT_MISSING = -1;
+
 	public String valuesToString()
 	{
 		Iterator it = myListVariables.iterator();
@@ -53,6 +62,15 @@ public class LearningData implements Map
 		myIndexCurrentRecord = index;
 	}
 
+	/** The state index of <b>var</b> in record <b>indexRecord</b>, or INT_MISSING.
+		@since 20261018 */
+	public int getState( FiniteVariable var, int indexRecord )
+	{
+		Column column = (Column) myMapVariablesToColumns.get( var );
+		if( column == null ) return INT_MISSING;
+		else return column.get( indexRecord );
+	}
+
 	public int size()
 	{
 		return myNumRecords;
@@ -75,9 +93,11 @@ public class LearningData implements Map
 
 	public Object get(Object key)
 	{
-		Object[] array = (Object[]) myMapVariablesToColumns.get( key );
-		if( array == null ) return null;
-		else return array[ myIndexCurrentRecord ];
+		Column column = (Column) myMapVariablesToColumns.get( key );
+		if( column == null ) return null;
+		int state = column.get( myIndexCurrentRecord );
+		if( state == INT_MISSING ) return null;
+		else return ((FiniteVariable)key).instance( state );
 	}
 
 	public Object put(Object key,Object value)
@@ -112,9 +132,16 @@ public class LearningData implements Map
 		throw new UnsupportedOperationException();
 	}
 
+	/** the observed values of the current record */
 	public Set entrySet()
 	{
-		return myMapVariablesToColumns.entrySet();
+		Map ret = new HashMap( myMapVariablesToColumns.size() );
+		Object key, value;
+		for( Iterator it = myMapVariablesToColumns.keySet().iterator(); it.hasNext(); )
+		{
+			if( (value = get( key = it.next() )) != null ) ret.put( key, value );
+		}
+		return ret.entrySet();
 	}
 
 	public boolean equals(Object o)
@@ -134,11 +161,12 @@ public class LearningData implements Map
 		int numVariables = myListVariables.size();
 		for( int i=0; i<myNumRecords; i++ )
 		{
-			debugPrint( myArrayColumns[0][i], stream );
+			setCurrentRecord( i );
+			debugPrint( get( myListVariables.get(0) ), stream );
 			for( int j=1; j<numVariables; j++ )
 			{
 				stream.print( "," );
-				debugPrint( myArrayColumns[j][i], stream );
+				debugPrint( get( myListVariables.get(j) ), stream );
 			}
 			stream.println();
 		}
@@ -157,8 +185,31 @@ public class LearningData implements Map
 	public LearningData( List vars )
 	{
 		this();
-		myListVariables = new LinkedList( vars );
+		myListVariables = new ArrayList( vars );
 		mySetVariables = new HashSet( vars );
+		createColumns();
+	}
+
+	/**
+		A view sharing the records of this LearningData but with its own
+		current record, so that several threads can read the same data.
+		@since 20261018
+	*/
+	public LearningData cursor()
+	{
+		return new LearningData( this );
+	}
+
+	/** @since 20261018 */
+	private LearningData( LearningData toCopy )
+	{
+		myNumRecords            = toCopy.myNumRecords;
+		myCapacity              = toCopy.myCapacity;
+		myArrayColumns          = toCopy.myArrayColumns;
+		myWeights               = toCopy.myWeights;
+		myMapVariablesToColumns = toCopy.myMapVariablesToColumns;
+		myListVariables         = toCopy.myListVariables;
+		mySetVariables          = toCopy.mySetVariables;
 	}
 
 	/**
@@ -177,113 +228,73 @@ public class LearningData implements Map
 	 */
 	public void readData( File infile, BeliefNetwork bn ) throws IOException
 	{
-		BufferedReader br = new BufferedReader( new FileReader( infile ) );
-		int numLines = (int)0;
-		while( br.readLine() != null ) ++numLines;
-		myNumRecords = numLines - 1;
-
 		readData( new BufferedReader( new FileReader( infile ) ), bn );
 	}
 
+	/**
+		Reads the records one line at a time, straight into the columns.
+		If FLAG_REDUCE_CASES, identical records are merged into one
+		weighted record, in order of first occurrence.
+	*/
 	public void readData( BufferedReader in, BeliefNetwork bn ) throws IOException
 	{
-		myListVariables = new LinkedList();
-		mySetVariables = new HashSet(bn);
-
-		String strVars = in.readLine();
-		if( strVars == null ) return;
-
-		if( FLAG_REDUCE_CASES )
-		{
-			//System.out.println( "LearningData.readData() reducing records" );
-
-			int numRecordsUnreduced = myNumRecords;
-			HashMap map = new HashMap( myNumRecords/2 );
-			String tempString;
-			Struct tempStruct;
-
-			for( int i=0; (tempString = in.readLine()) != null; i++ )
-			{
-				if( map.containsKey( tempString ) )
-				{
-					tempStruct = (Struct) map.get( tempString );
-					++tempStruct.weight;
-				}
-				else
-				{
-					tempStruct = new Struct( tempString, i );
-					map.put( tempString, tempStruct );
-				}
-			}
+		try{
+			String strVars = in.readLine();
+			if( strVars == null ) return;
 
-			Collection values = map.values();
-			List structs = new ArrayList( values );
-			Collections.sort( structs );
-			myNumRecords = structs.size();
 			readVars( strVars, bn );
-			myWeights = new double[ myNumRecords ];
-			int i=(int)0;
-			double maxWeight = Table.ONE;
-			for( Iterator it = structs.iterator(); it.hasNext(); i++ )
-			{
-				tempStruct = (Struct)it.next();
-				readRecord( tempStruct.string, i );
-				myWeights[i] = tempStruct.weight;
-				maxWeight = Math.max( maxWeight,  tempStruct.weight );
-			}
+			setReduceRecords( FLAG_REDUCE_CASES );
 
-			//System.out.println( "\trecords reduced from " + numRecordsUnreduced + " to " + myNumRecords + ", max weight " + maxWeight );
+			String line;
+			while( (line = in.readLine()) != null ) readRecord( line );
+		}finally{
+			in.close();
 		}
-		else
-		{
-			readVars( strVars, bn );
-			for( int i=0; i<myNumRecords; i++ ) readRecord( in.readLine(), i );
-		}
-
-		in.close();
-
-		myArrayColumns = null;
 		//debugPrint( new PrintWriter( new FileOutputStream( "learningData2.dat" ) ) );
 	}
 
-	public class Struct implements Comparable
+	/**
+		Reads a case file a chunk of lines at a time, so that data too
+		large for memory can be streamed through EM, see
+		Learning.learnParamsEM( BeliefNetwork, File, int, Dynamator, boolean ).
+		@since 20261018
+	*/
+	public static class ChunkReader
 	{
-		public Struct( String string, int indexFirstOccurrence )
-		{
-			this.string = string;
-			this.indexFirstOccurrence = indexFirstOccurrence;
-		}
-
-		public double weight = Table.ONE;
-		public String string;
-		public int indexFirstOccurrence;
-
-		public int hashCode()
+		public ChunkReader( File infile, BeliefNetwork bn ) throws IOException
 		{
-			return string.hashCode();
+			myReader = new BufferedReader( new FileReader( infile ) );
+			myBeliefNetwork = bn;
+			myHeader = myReader.readLine();
+			if( myHeader == null ) close();
 		}
 
-		public boolean equals( Object o )
+		/**
+			@return the records on the next <b>maxLines</b> lines of the file,
+			reduced if FLAG_REDUCE_CASES, or null if the file is exhausted.
+		*/
+		public LearningData next( int maxLines ) throws IOException
 		{
-			return o.toString().equals( string );
+			if( myReader == null ) return null;
+
+			LearningData ret = new LearningData();
+			ret.readVars( myHeader, myBeliefNetwork );
+			ret.setReduceRecords( FLAG_REDUCE_CASES );
+			String line = null;
+			for( int i=0; i<maxLines && (line = myReader.readLine()) != null; i++ ) ret.readRecord( line );
+			if( line == null ) close();
+			return ret.myNumRecords > 0 ? ret : null;
 		}
 
-		public String toString()
+		public void close() throws IOException
 		{
-			return string;
+			if( myReader != null ) myReader.close();
+			myReader = null;
 		}
 
-		public int compareTo(Object o)
-		{
-			if( o instanceof Struct )
-			{
-				Struct that = (Struct)o;
-				if( this.indexFirstOccurrence < that.indexFirstOccurrence ) return (int)-1;
-				else if( this.indexFirstOccurrence == that.indexFirstOccurrence ) return (int)0;
-				else return 1;
-			}
-			else return (int)0;
-		}
+		private BufferedReader myReader;
+		private BeliefNetwork myBeliefNetwork;
+		private String myHeader;
 	}
 
 	/**
@@ -323,33 +334,18 @@ public class LearningData implements Map
 	private void readVars( String line, BeliefNetwork bn ) throws IOException
 	{
 		int numVars = 0;
-		boolean found;
-		Iterator i;
 		Variable v;
 		String tok;
 
+		myListVariables = new ArrayList();
+		mySetVariables = new HashSet(bn);
+
 		if (line != null)
 		{
 			StringTokenizer st = new StringTokenizer(line, ",\n");
 			while( st.hasMoreTokens() )
 			{
 				tok = st.nextToken();
-				/*
-				i = mySetVariables.iterator();
-				found = false;
-				while (i.hasNext()) {
-					v = (Variable) i.next();
-					if (tok.compareTo(v.getID()) == 0) {
-						myListVariables.add(v);
-						numVars++;
-						found = true;
-						break;
-					}
-				}
-				if (!found) {
-					myListVariables.add(null);
-				}
-				*/
 				v = bn.forID( tok );
 				if( v == null ) myListVariables.add(null);
 				else
@@ -364,11 +360,33 @@ public class LearningData implements Map
 			throw (new RuntimeException("One or more network variables not found in data file."));
 		}
 
-		ensureCapacity( myNumRecords );
+		createColumns();
 
 		//System.out.println( "LearningData.readVars(): " + myListVariables );
 	}
 
+	/** One column per variable of myListVariables, null for the
+		columns of a case file that name no variable.
+		@since 20261018 */
+	private void createColumns()
+	{
+		myNumRecords = 0;
+		myCapacity = 0;
+		myWeights = null;
+		myRowIndex = null;
+		myMapVariablesToColumns.clear();
+		myArrayColumns = new Column[ myListVariables.size() ];
+		myRecord = new int[ myArrayColumns.length ];
+		FiniteVariable var;
+		for( int i=0; i<myArrayColumns.length; i++ )
+		{
+			var = (FiniteVariable) myListVariables.get(i);
+			if( var == null ) continue;
+			myArrayColumns[i] = Column.forSize( var.size() );
+			myMapVariablesToColumns.put( var, myArrayColumns[i] );
+		}
+	}
+
 	/**
 		@author Keith Cascio
 		@since 111903
@@ -377,31 +395,15 @@ public class LearningData implements Map
 	{
 		if( myCapacity >= capacity ) return;
 
-		if( myArrayColumns == null ) myArrayColumns = new Object[ myListVariables.size() ][];
-
-		int index = (int)0;
-		Object[] arrayValues;
-		Object next;
-		for( Iterator it = myListVariables.iterator(); it.hasNext(); )
+		for( int i=0; i<myArrayColumns.length; i++ )
 		{
-			next = it.next();
-			if( myMapVariablesToColumns.containsKey( next ) )
-			{
-				arrayValues = (Object[])myMapVariablesToColumns.get( next );
-				if( arrayValues.length < capacity )
-				{
-					Object[] arrayGrown = new Object[ capacity ];
-					System.arraycopy( arrayValues, 0, arrayGrown, 0, arrayValues.length );
-					myMapVariablesToColumns.put( next, arrayGrown );
-					arrayValues = arrayGrown;
-				}
-			}
-			else
-			{
-				arrayValues = new Object[ capacity ];
-				myMapVariablesToColumns.put( next, arrayValues );
-			}
-			myArrayColumns[ index++ ] = arrayValues;
+			if( myArrayColumns[i] != null ) myArrayColumns[i].grow( capacity );
+		}
+		if( myWeights != null )
+		{
+			double[] grown = new double[ capacity ];
+			System.arraycopy( myWeights, 0, grown, 0, myNumRecords );
+			myWeights = grown;
 		}
 
 		myCapacity = capacity;
@@ -410,42 +412,35 @@ public class LearningData implements Map
 	/*
 	 * Reads an evidence record from file.
 	 */
-	private boolean readRecord( String line, int indexSave ) throws IOException
+	private boolean readRecord( String line ) throws IOException
 	{
 		if (line == null) return false;
 
 		int numValues = 0;
 		FiniteVariable varCurrent;
 		String tok;
-		Object inst;
+		int state;
 
 		StringTokenizer toker = new StringTokenizer(line, ",\n");
-		HashMap hm = new HashMap(mySetVariables.size());
 		Iterator varIterator = myListVariables.iterator();
 
+		Arrays.fill( myRecord, INT_MISSING );
 		for( int i=0; varIterator.hasNext() && toker.hasMoreTokens(); i++ )
 		{
 			varCurrent = (FiniteVariable) varIterator.next();
 			tok = toker.nextToken();
 			if( varCurrent != null )
 			{
-				inst = varCurrent.instance(tok);
+				state = varCurrent.index( varCurrent.instance(tok) );
 
-				if( inst == null )
+				if( state < 0 )
 				{
 					if( !tok.equals("N/A") )
 					{
-						//System.err.println( "Bad instance (state) name found in data file: '" + tok + "'" );
-						//System.err.println( "varCurrent == " + varCurrent );
-						//System.err.println( "varCurrent.instances() == " + varCurrent.instances() );
 						throw new RuntimeException( "Bad instance (state) name found in data file: '" + tok + "'" );
 					}
 				}
-				else
-				{
-					myArrayColumns[i][indexSave] = inst;
-					myIndexLastRecord = indexSave;
-				}
+				else myRecord[i] = state;
 				numValues++;
 			}
 		}
@@ -454,6 +449,7 @@ public class LearningData implements Map
 			throw new RuntimeException( "readRecord() failed for line: \"" +line+ "\"" );
 		}
 
+		add( myRecord, Table.ONE );
 		return true;
 	}
 
@@ -463,19 +459,178 @@ public class LearningData implements Map
 	*/
 	public void add( Map record )
 	{
-		//if( !record.keySet().containsAll( myListVariables ) ) throw new IllegalArgumentException( "record does not contain all variables: " + record + ", " + myListVariables );
+		Object value;
+		for( int i=0; i<myArrayColumns.length; i++ )
+		{
+			myRecord[i] = INT_MISSING;
+			if( myArrayColumns[i] == null ) continue;
+			value = record.get( myListVariables.get(i) );
+			if( value != null ) myRecord[i] = ((FiniteVariable) myListVariables.get(i)).index( value );
+		}
+		add( myRecord, Table.ONE );
+	}
+
+	/**
+		Append a record of <b>weight</b> given as the state index, or
+		INT_MISSING, of each variable in the order of this LearningData's
+		variable list.  While reducing, a record identical to an earlier
+		one adds its weight to that record instead.
+		@return the index of the record
+		@since 20261018
+	*/
+	public int add( int[] states, double weight )
+	{
+		return add( states, 0, weight );
+	}
+
+	/** Like add( int[], double ), reading the states from states[offset...].
+		@since 20261018 */
+	public int add( int[] states, int offset, double weight )
+	{
+		if( myRowIndex != null )
+		{
+			int hash = hash( states, offset );
+			int slot = findRecord( states, offset, hash );
+			if( myRowIndex[ slot ] > 0 )
+			{
+				int existing = myRowIndex[ slot ] - 1;
+				allocateWeights();
+				myWeights[ existing ] += weight;
+				return existing;
+			}
+			myRowIndex[ slot ] = myNumRecords + 1;
+		}
+
+		if( myNumRecords >= myCapacity ) ensureCapacity( Math.max( INT_CAPACITY_MIN, myCapacity + (myCapacity >> 1) ) );
+
+		int index = myNumRecords++;
+		for( int i=0; i<myArrayColumns.length; i++ )
+		{
+			if( myArrayColumns[i] != null ) myArrayColumns[i].set( index, states[offset+i] );
+		}
+		if( weight != Table.ONE ) allocateWeights();
+		if( myWeights != null ) myWeights[ index ] = weight;
+
+		if( myRowIndex != null && 2*myNumRecords > myRowIndex.length ) rehash( 2*myRowIndex.length );
+		return index;
+	}
+
+	/**
+		While on, add() merges identical records into one weighted record.
+		Turning it on merges the records already present, keeping each in
+		the position of its first occurrence.
+		@since 20261018
+	*/
+	public void setReduceRecords( boolean flag )
+	{
+		if( !flag ){
+			myRowIndex = null;
+			return;
+		}
+		if( myRowIndex != null ) return;
+
+		int count = myNumRecords;
+		int[] states = new int[ myArrayColumns.length ];
+		myNumRecords = 0;
+		rehash( Math.max( INT_CAPACITY_MIN, Integer.highestOneBit( Math.max( count, 1 ) ) << 2 ) );
+		for( int r=0; r<count; r++ )
+		{
+			for( int i=0; i<states.length; i++ ) states[i] = myArrayColumns[i] == null ? INT_MISSING : myArrayColumns[i].get( r );
+			add( states, getWeight( r ) );
+		}
+	}
+
+	/** @since 20261018 */
+	public boolean isReduceRecords()
+	{
+		return myRowIndex != null;
+	}
+
+	private void allocateWeights()
+	{
+		if( myWeights != null ) return;
+		myWeights = new double[ myCapacity ];
+		Arrays.fill( myWeights, Table.ONE );
+	}
+
+	private int hash( int[] states, int offset )
+	{
+		int ret = 1;
+		for( int i=0; i<myArrayColumns.length; i++ )
+		{
+			if( myArrayColumns[i] != null ) ret = 31*ret + states[offset+i];
+		}
+		return ret ^ (ret >>> 16);
+	}
 
-		ensureCapacity( ++myNumRecords );
+	/** open addressing over myRowIndex, which holds record index + 1, 0 if free
+		@return the slot holding a record equal to <b>states</b>, or the free slot where it belongs */
+	private int findRecord( int[] states, int offset, int hash )
+	{
+		int mask = myRowIndex.length - 1;
+		int slot = hash & mask;
+		while( myRowIndex[ slot ] > 0 && !sameRecord( myRowIndex[ slot ] - 1, states, offset ) ) slot = (slot + 1) & mask;
+		return slot;
+	}
 
-		++myIndexLastRecord;
-		Object next;
-		Object[] array;
-		for( Iterator varIterator = myListVariables.iterator(); varIterator.hasNext(); )
+	private boolean sameRecord( int record, int[] states, int offset )
+	{
+		for( int i=0; i<myArrayColumns.length; i++ )
 		{
-			next = varIterator.next();
-			array = (Object[]) myMapVariablesToColumns.get( next );
-			array[ myIndexLastRecord ] = record.get( next );
+			if( myArrayColumns[i] != null && myArrayColumns[i].get( record ) != states[offset+i] ) return false;
 		}
+		return true;
+	}
+
+	private void rehash( int slots )
+	{
+		myRowIndex = new int[ slots ];
+		int[] states = new int[ myArrayColumns.length ];
+		for( int r=0; r<myNumRecords; r++ )
+		{
+			for( int i=0; i<states.length; i++ ) states[i] = myArrayColumns[i] == null ? INT_MISSING : myArrayColumns[i].get( r );
+			myRowIndex[ findRecord( states, 0, hash( states, 0 ) ) ] = r + 1;
+		}
+	}
+
+	/** The state indices of one variable.
+		@since 20261018 */
+	private static abstract class Column
+	{
+		abstract public int get( int record );
+		abstract public void set( int record, int state );
+		abstract public void grow( int capacity );
+
+		public static Column forSize( int numStates )
+		{
+			if( numStates <= Byte.MAX_VALUE ) return new ByteColumn();
+			else if( numStates <= Short.MAX_VALUE ) return new ShortColumn();
+			else return new IntColumn();
+		}
+	}
+
+	private static class ByteColumn extends Column
+	{
+		public int get( int record ){ return states[ record ]; }
+		public void set( int record, int state ){ states[ record ] = (byte) state; }
+		public void grow( int capacity ){ states = Arrays.copyOf( states, capacity ); }
+		private byte[] states = new byte[0];
+	}
+
+	private static class ShortColumn extends Column
+	{
+		public int get( int record ){ return states[ record ]; }
+		public void set( int record, int state ){ states[ record ] = (short) state; }
+		public void grow( int capacity ){ states = Arrays.copyOf( states, capacity ); }
+		private short[] states = new short[0];
+	}
+
+	private static class IntColumn extends Column
+	{
+		public int get( int record ){ return states[ record ]; }
+		public void set( int record, int state ){ states[ record ] = state; }
+		public void grow( int capacity ){ states = Arrays.copyOf( states, capacity ); }
+		private int[] states = new int[0];
 	}
 
 	/*
@@ -568,13 +723,16 @@ public class LearningData implements Map
 		}
 	}
 
+	private static final int INT_CAPACITY_MIN = 16;
+
 	private int myNumRecords = (int)0;
-	private int myIndexLastRecord = (int)-1;
 	private int myCapacity = (int)0;
 	private int myIndexCurrentRecord = (int)0;
-	private Object[][] myArrayColumns;
+	private Column[] myArrayColumns = new Column[0];
 	private double[] myWeights;
+	private int[] myRowIndex;//while reducing, open-addressed hash of the records
+	private int[] myRecord = new int[0];//scratch for add( Map ) and readRecord()
 	private Map myMapVariablesToColumns;
-	private List myListVariables;
-	private Set mySetVariables;
+	private List myListVariables = new ArrayList();
+	private Set mySetVariables = new HashSet();
 }
@@ -3,7 +3,10 @@ package edu.ucla.belief.learn;
 import edu.ucla.belief.*;
 import edu.ucla.util.*;
 
+import il2.inf.sampling.ForwardSampler;
+
 import java.util.*;
+import java.util.concurrent.*;
 
 /** @author keith cascio
 	@since  20030306 */
@@ -21,6 +24,9 @@ public class Simulator implements ProgressMonitorable
 	                             INT_NUM_CASES_FLOOR                    = 1,
 	                             INT_NUM_CASES_CEILING                  = Integer.MAX_VALUE;
 
+	/** @since 20261018 */
+	public  static final int     INT_BLOCK_SIZE                         = 0x1000;
+
 	public  static final double  DOUBLE_DEFAULT_FRACTION_MISSING_VALUES = 0.05,
 	                             DOUBLE_FRACTION_MISSING_FLOOR          = 0,
 	                             DOUBLE_FRACTION_MISSING_CEILING        = 0.9999999;
@@ -78,72 +84,139 @@ public class Simulator implements ProgressMonitorable
 		}
 	}
 
-	private LearningData simulateImpl( int numcases, double fractionmissing ) throws StateNotFoundException
+	/**
+		Cases are drawn by an il2 ForwardSampler compiled from the current
+		CPTs, a block of INT_BLOCK_SIZE cases at a time.  Each block has its
+		own SplittableRandom, split in block order from one root stream, so
+		the cases do not depend on the number of threads.  Blocks are drawn
+		concurrently into int[] buffers and appended, in order, straight to
+		the columns of the LearningData.
+
+		@since 20261018
+	*/
+	private LearningData simulateImpl( int numcases, final double fractionmissing ) throws StateNotFoundException
 	{
 		if( FLAG_VERBOSE ) Definitions.STREAM_VERBOSE.print( "Simulator.simulate( "+numcases+", "+fractionmissing+" )..." );
 
 		if( myTopological == null ) myTopological = myBeliefNetwork.topologicalOrder();
-		if( myMap         == null ) myMap         = new HashMap( myTopological.size() );
-		if( myCase        == null ) myCase        = new HashMap( myTopological.size() );
 		if( myEvidence    == null ) myEvidence    = myBeliefNetwork.getEvidenceController().evidence();
 
 		LearningData ret = new LearningData( myTopological );
 		ret.ensureCapacity( numcases );
 
-		Random random = new Random();
-		int numKilled = (int)0;
+		il2.bridge.Converter converter = new il2.bridge.Converter();
+		final ForwardSampler sampler = new ForwardSampler( converter.convert( myBeliefNetwork ) );
+		final int width = sampler.size();
+		final int[] columns = new int[ width ];//column of each il2 variable
+		final int[] fixed = new int[ width ];
+		FiniteVariable fVar;
+		int column = 0;
+		for( Iterator it = myTopological.iterator(); it.hasNext(); column++ )
+		{
+			fVar = (FiniteVariable) it.next();
+			int var = converter.convert( fVar );
+			columns[ var ] = column;
+			fixed[ var ] = myEvidence.containsKey( fVar ) ? fVar.index( myEvidence.get( fVar ) ) : -1;
+			if( myEvidence.containsKey( fVar ) && fixed[ var ] < 0 ) throw new StateNotFoundException( fVar, myEvidence.get( fVar ) );
+		}
 
-		//controller.setNotifyEnabled( false );
+		SplittableRandom root = (myRandom == null) ? new SplittableRandom() : myRandom;
+		int threads = Math.max( 1, Math.min( myThreadCount, (numcases + INT_BLOCK_SIZE - 1) / INT_BLOCK_SIZE ) );
+		ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool( threads ) : null;
+		final int[] numKilled = new int[1];
 
 		long start_cpu_ms = JVMProfiler.getCurrentThreadCpuTimeMS();
 
-		int            randomValueIndex;
-		FiniteVariable fVar;
-		CPTShell       shell;
-		Object         randomValue;
-		for( int i=0; i<numcases; i++ )
-		{
-			if( Thread.currentThread().isInterrupted() ) return ret;
-			myMap.clear();
-			myCase.clear();
-			for( Iterator it = myTopological.iterator(); it.hasNext(); )
+		try{
+			int blocksPerRound = threads * 4;
+			List futures = new ArrayList( blocksPerRound );
+			int[] record = new int[ width ];
+			for( int first=0; first<numcases; )
 			{
-				fVar = (FiniteVariable) it.next();
-
-				if( myEvidence.containsKey( fVar ) ) randomValue = myEvidence.get( fVar );
-				else{
-					shell = fVar.getCPTShell( fVar.getDSLNodeType() );
-					randomValueIndex = shell.randomJointValueIndex( myMap );//randomValueIndex = ie.random( fVar );
-					randomValue = fVar.instance( randomValueIndex );
+				if( Thread.currentThread().isInterrupted() ) return ret;
+				futures.clear();
+				for( int b=0; b<blocksPerRound && first<numcases; b++, first += INT_BLOCK_SIZE )
+				{
+					final int count = Math.min( INT_BLOCK_SIZE, numcases - first );
+					final SplittableRandom random = root.split();
+					Callable block = new Callable(){
+						public Object call(){
+							int[] buffer = new int[ count * width ];
+							sampler.sample( random, fixed, buffer, 0, count );
+							int killed = 0;
+							for( int i=0; i<buffer.length; i++ ){
+								if( !(random.nextDouble() > fractionmissing) ){
+									buffer[i] = LearningData.INT_MISSING;
+									++killed;
+								}
+							}
+							synchronized( numKilled ){ numKilled[0] += killed; }
+							return buffer;
+						}
+					};
+					if( executor != null ) futures.add( executor.submit( block ) );
+					else{
+						FutureTask task = new FutureTask( block );
+						task.run();
+						futures.add( task );
+					}
 				}
-				myMap.put( fVar, randomValue );//controller.observe( fVar, randomValue );
-
-				if( random.nextDouble() > fractionmissing ) myCase.put( fVar, randomValue );
-				else ++numKilled;
+				for( Iterator it = futures.iterator(); it.hasNext(); )
+				{
+					int[] buffer = (int[]) ((Future) it.next()).get();
+					for( int offset=0; offset<buffer.length; offset += width )
+					{
+						for( int var=0; var<width; var++ ) record[ columns[var] ] = buffer[ offset + var ];
+						ret.add( record, Table.ONE );
+					}
+					myProgress += buffer.length / width;
+				}
+				if( Definitions.DEBUG ) Definitions.STREAM_VERBOSE.println( "simulated " + ret.size() + " cases" );
 			}
-			ret.add( myCase );
-			myProgress++;
-
-			if( Definitions.DEBUG ) Definitions.STREAM_VERBOSE.println( "simulated case " + i );
-
-			//controller.setObservations( evidence );
+		}catch( InterruptedException e ){
+			Thread.currentThread().interrupt();
+			return ret;
+		}catch( ExecutionException e ){
+			Throwable cause = e.getCause();
+			if( cause instanceof RuntimeException ) throw (RuntimeException) cause;
+			if( cause instanceof Error ) throw (Error) cause;
+			throw new IllegalStateException( cause.toString() );
+		}finally{
+			if( executor != null ) executor.shutdownNow();
 		}
 
 		long end_cpu_ms = JVMProfiler.getCurrentThreadCpuTimeMS();
 
-		//controller.setNotifyEnabled( true );
-
 		long threadCPUMS = end_cpu_ms - start_cpu_ms;
 
 		if( FLAG_VERBOSE ){
-			//Definitions.STREAM_VERBOSE.println( "Simulation " );
-			Definitions.STREAM_VERBOSE.println( "values killed: " +  numKilled + ", fraction killed == " + ((double)numKilled/(double)(myTopological.size() * numcases)) );
+			Definitions.STREAM_VERBOSE.println( "values killed: " +  numKilled[0] + ", fraction killed == " + ((double)numKilled[0]/(double)(myTopological.size() * numcases)) );
 			Definitions.STREAM_VERBOSE.println( "\t time(ms) = " + threadCPUMS );
 		}
 
 		return ret;
 	}
 
+	/** Threads drawing cases, by default the number of available processors.
+		@since 20261018 */
+	public Simulator setThreadCount( int threads ){
+		if( threads < 1 ) throw new IllegalArgumentException( "thread count must be positive" );
+		myThreadCount = threads;
+		return this;
+	}
+
+	/** @since 20261018 */
+	public int getThreadCount(){
+		return myThreadCount;
+	}
+
+	/** Make the simulations reproducible.
+		@since 20261018 */
+	public Simulator setSeed( long seed ){
+		myRandom = new SplittableRandom( seed );
+		return this;
+	}
+
 	/** interface ProgressMonitorable */
 	public int getProgress(){
 		return myProgress;
@@ -176,7 +249,9 @@ public class Simulator implements ProgressMonitorable
 
 	protected BeliefNetwork                  myBeliefNetwork;
 	protected List/*<FiniteVariable>*/       myTopological;
-	protected Map/*<FiniteVariable,Object>*/ myEvidence, myMap, myCase;
+	protected Map/*<FiniteVariable,Object>*/ myEvidence;
+	private   SplittableRandom               myRandom;
+	private   int                            myThreadCount   = Runtime.getRuntime().availableProcessors();
 	private   int                            myProgress, myProgressMax;
 	private   boolean                        myFlagFinished  = true;
 	private   String                         myDescription, myNote;
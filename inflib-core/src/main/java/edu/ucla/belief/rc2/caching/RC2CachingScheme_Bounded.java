@@ -0,0 +1,134 @@
+package edu.ucla.belief.rc2.caching;
+
+import java.util.*;
+
+import edu.ucla.belief.rc2.structure.*;
+
+
+
+/** This class generates caching schemes for RC2 Objects which stay within a memory
+ *  budget by giving some nodes partial caches.
+ *
+ * <p>First a greedy scheme places full caches within (1-partialShare) of the budget.
+ *    The rest of the memory then goes, as partial caches with CLOCK eviction, to the
+ *    remaining nodes in order of the greedy score per entry (the calls saved by a
+ *    hit, weighted by the expected calls on the node).  Nodes whose contexts are
+ *    too large for any full cache are candidates too.
+ * <p>Memory is counted in doubles, as for RC2CachingScheme_Greedy.
+ *
+ * @since 20261018
+ */
+final public class RC2CachingScheme_Bounded implements RC2.BoundedCachingScheme {
+
+	/**Partial caches smaller than this are not worth their overhead.*/
+	static final public int MIN_PARTIAL_ENTRIES = 64;
+
+	final long memory;
+	final double partialShare;
+
+	public RC2CachingScheme_Bounded(long memory, double partialShare){
+		if(memory<=0) { throw new IllegalArgumentException("Memory " + memory + " was not positive");}
+		if(partialShare<0 || partialShare>1) { throw new IllegalArgumentException("Partial share " + partialShare + " was not between 0 and 1");}
+		this.memory=memory;
+		this.partialShare=partialShare;
+	}
+	public RC2CachingScheme_Bounded(long memory){
+		this(memory, .25);
+	}
+
+	public String toString() {return "Bounded Caching (" + memory + ", " + partialShare + ")";}
+
+	public Collection getCachingScheme(RC2 rc) {
+		return getCacheSizes(rc).keySet();
+	}
+
+	public Map getCacheSizes(RC2 rc) {
+		Map ret = new HashMap();
+
+		long fullMemory = (long)Math.floor((1-partialShare) * memory);
+		Collection fullNodes = (fullMemory > 0 ? new RC2CachingScheme_Greedy(fullMemory).getCachingScheme(rc) : new HashSet());
+		for(Iterator itr = fullNodes.iterator(); itr.hasNext();) {
+			RC2Node nd = (RC2Node)itr.next();
+			ret.put(nd, Long.valueOf(nd.context().memoryUsage()));
+		}
+		double memoryRemaining = memory - RC2CachingSchemeUtils.expectedMemoryUsage(fullNodes);
+
+		//score the remaining nodes
+		Map calls = RC2Utils.expectedRCCallsToNodes(rc, fullNodes);
+		Map cpc = new HashMap();
+		final Map scores = new HashMap();
+		ArrayList candidates = new ArrayList();
+		int numNodes = rc.getNumRCNodes_All();
+		for(int indx = 0; indx<numNodes; indx++) {
+			RC2Node nd = rc.getRCNode_All(indx);
+			if(nd.isLeaf() || nd.isRoot() || fullNodes.contains(nd) || isWorthless(nd)) { continue;}
+			RC2NodeInternal ndi = (RC2NodeInternal)nd;
+
+			Double cls = (Double)calls.get(ndi);
+			if(cls == null) { continue;}
+			double cntx = ndi.context().totalStateSpace().doubleValue();
+			double score = ndi.numCutsetInstantiations() * (cls.doubleValue() / cntx - 1) * (getCPC(cpc, fullNodes, ndi.left) + getCPC(cpc, fullNodes, ndi.right));
+			if(score > 0) {
+				scores.put(ndi, Double.valueOf(score));
+				candidates.add(ndi);
+			}
+		}
+		Collections.sort(candidates, new Comparator() {
+			public int compare(Object o1, Object o2) {
+				int c = ((Double)scores.get(o2)).compareTo((Double)scores.get(o1));
+				return (c != 0 ? c : ((RC2Node)o1).nodeID - ((RC2Node)o2).nodeID);
+			}
+		});
+
+		//hand out the remaining memory
+		for(Iterator itr = candidates.iterator(); itr.hasNext();) {
+			RC2NodeInternal ndi = (RC2NodeInternal)itr.next();
+			if(!ndi.context().totalStateSpaceLargerThanInt() && ndi.context().memoryUsage() <= memoryRemaining) {
+				ret.put(ndi, Long.valueOf(ndi.context().memoryUsage()));
+				memoryRemaining -= ndi.context().memoryUsage();
+				continue;
+			}
+			long cntx = (ndi.context().totalStateSpaceLargerThanInt() ? Long.MAX_VALUE : ndi.context().memoryUsage());
+			int entries = (int)Math.min(affordableEntries(memoryRemaining), cntx-1);
+			if(entries < MIN_PARTIAL_ENTRIES) { continue;}
+			ret.put(ndi, Long.valueOf(entries));
+			memoryRemaining -= RC2PartialCache.memoryUsage(entries);
+		}
+
+		rc.outputInfo("Bounded Caching: " + fullNodes.size() + " full caches, " + (ret.size()-fullNodes.size()) + " partial caches, " + memoryRemaining + " memory unused");
+		return ret;
+	}
+
+
+	/**Returns the largest number of partial cache entries which fit in memoryRemaining.*/
+	static private int affordableEntries(double memoryRemaining) {
+		int ret = 0;
+		for(int entries = 3; entries <= RC2PartialCache.MAX_CAPACITY; entries <<= 1) { //3/4 of a power of two slots
+			if(RC2PartialCache.memoryUsage(entries) > memoryRemaining) { break;}
+			ret = entries;
+		}
+		return ret;
+	}
+
+	/**A node with a single parent whose context it contains gets no hits the parent would not.*/
+	static private boolean isWorthless(RC2Node nd) {
+		if(nd.numParentNodes() != 1) { return false;}
+		RC2Node par = (RC2Node)nd.parentNodes().iterator().next();
+		return nd.context().isSuperSetOf(par.context());
+	}
+
+	/**Returns the number of recursive calls generated by a call to the node including
+	 * the call itself, as in RC2CachingScheme_Greedy.
+	 */
+	static private double getCPC(Map cpc, Collection fullNodes, RC2Node node_in) {
+		if(fullNodes.contains(node_in) || node_in.isLeaf()) { return 1;}
+		Double d = (Double)cpc.get(node_in);
+		if(d != null) { return d.doubleValue();}
+
+		RC2NodeInternal node = (RC2NodeInternal)node_in;
+		double ret = 1 + node.numCutsetInstantiations() * (getCPC(cpc, fullNodes, node.left) + getCPC(cpc, fullNodes, node.right));
+		cpc.put(node, Double.valueOf(ret));
+		return ret;
+	}
+
+} //end class RC2CachingScheme_Bounded
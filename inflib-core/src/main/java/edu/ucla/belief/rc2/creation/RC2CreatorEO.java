@@ -31,6 +31,20 @@ final public class RC2CreatorEO extends RC2Creator {
 		return rc;
 	}
 
+	/**Create count RC2 objects with the same dtree, each with its own caches,
+	 * for an RC2Parallel object.  Returns null if any of them could not be created.
+	 * @since 20261018
+	 */
+	final static public RC2[] createDtrees(RC2.RCCreationParams rcParam, Params eoParam, int count) {
+		if(count < 1) { throw new IllegalArgumentException("Illegal number of replicas: " + count);}
+		RC2 ret[] = new RC2[count];
+		for(int i=0; i<count; i++) {
+			ret[i] = createDtree(rcParam, eoParam);
+			if(ret[i] == null) { return null;}
+		}
+		return ret;
+	}
+
 
 	public final static class Params extends RC2Creator.Params {
 		static final public int EO_ConnectRandomly = 0;
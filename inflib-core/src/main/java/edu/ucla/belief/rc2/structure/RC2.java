@@ -68,6 +68,7 @@ final public class RC2 {
 	protected RC2Node parDerNodes[] = null;
 	protected RC2Node allNodes[] = null; //if [i] is ancestor of [j] then i>j (children first). (includes those under peRootNode).
 	protected RC2Node peNodes[] = null; //if [i] is ancestor of [j] then i>j (children first). (only includes nodes in Pe dtree).
+	private RC2NodeInternal partialCachedNodes[] = new RC2NodeInternal[0]; //nodes with a partial cache
 
 	final public double scalar;
 
@@ -421,6 +422,7 @@ final public class RC2 {
 		double computationEndTime_ms = System.currentTimeMillis();
 		computationTotalTime_ms = computationEndTime_ms - computationStartTime_ms;
 
+		if(partialCachedNodes.length > 0) { compStats.collectPartialCacheStats(partialCachedNodes);}
 		exclusiveMode.done();
 	}
 
@@ -431,7 +433,10 @@ final public class RC2 {
 	public void setCachingScheme(CachingScheme cs) {
 		if(cs == null) { System.err.println("ERROR: Caching Scheme was null."); return;}
 
-		if(cs instanceof RC2CachingScheme_Full) {
+		if(cs instanceof BoundedCachingScheme) {
+			setCachingScheme(cs.toString(),((BoundedCachingScheme)cs).getCacheSizes(this));
+		}
+		else if(cs instanceof RC2CachingScheme_Full) {
 			setCachingScheme(cs.toString(),cs.getCachingScheme(this),compStats.fullCaching);
 		}
 		else {
@@ -445,9 +450,12 @@ final public class RC2 {
 	 */
 	private void setCachingScheme(String name, Collection cachedNodes, ComputationStats stats) {
 		RC2CachingSchemeUtils.removeLargeCaches(this, cachedNodes);
+		partialCachedNodes = new RC2NodeInternal[0];
+		compStats.resetPartialCacheStats();
 		for(int i=0; i<allNodes.length; i++) {
 			if(!allNodes[i].isLeaf()) {
 				RC2NodeInternal ndi = (RC2NodeInternal)allNodes[i];
+				ndi.setPartialCaching(0);
 				if(cachedNodes.contains(ndi)) {
 					ndi.setCaching(true);
 				}
@@ -470,6 +478,49 @@ final public class RC2 {
 		outputInfo("RC2 set caching scheme to " + name + " (" + cachedNodes.size() + " nodes)");
 	}
 
+	/**This function will give each node the number of cache entries in cacheSizes (a
+	 * Map from RC2NodeInternal to Long, missing nodes get none): a full cache if that
+	 * covers its context, otherwise a partial one.  Expected RC calls are computed as
+	 * if only the full caches existed, so they are an upper bound.
+	 */
+	private void setCachingScheme(String name, Map cacheSizes) {
+		HashSet fullNodes = new HashSet();
+		ArrayList partialNodes = new ArrayList();
+		double mem = 0;
+		for(int i=0; i<allNodes.length; i++) {
+			if(!allNodes[i].isLeaf()) {
+				RC2NodeInternal ndi = (RC2NodeInternal)allNodes[i];
+				Long entries = (Long)cacheSizes.get(ndi);
+				long cntxSize = (ndi.context().totalStateSpaceLargerThanInt() ? Long.MAX_VALUE : ndi.context().memoryUsage());
+
+				if(entries == null || entries.longValue() <= 0) {
+					ndi.setCaching(false);
+					ndi.setPartialCaching(0);
+				}
+				else if(entries.longValue() >= cntxSize) {
+					ndi.setPartialCaching(0);
+					ndi.setCaching(true);
+					fullNodes.add(ndi);
+					mem += cntxSize;
+				}
+				else {
+					ndi.setCaching(false);
+					ndi.setPartialCaching((int)Math.min(entries.longValue(), RC2PartialCache.MAX_CAPACITY));
+					partialNodes.add(ndi);
+					mem += ndi.getPartialCache().memoryUsage();
+				}
+			}
+		}
+		partialCachedNodes = (RC2NodeInternal[])partialNodes.toArray(new RC2NodeInternal[partialNodes.size()]);
+		compStats.resetPartialCacheStats();
+
+		double cls_a = RC2Utils.expectedRCCalls_All(this,fullNodes);
+		double cls_p = RC2Utils.expectedRCCalls_Pe(this,fullNodes);
+		compStats.currentCaching = new ComputationStats(name,mem,fullNodes.size()+partialNodes.size(),cls_a,cls_p);
+
+		outputInfo("RC2 set caching scheme to " + name + " (" + fullNodes.size() + " full and " + partialNodes.size() + " partial caches)");
+	}
+
 
 	public List vars() { return Collections.unmodifiableList(vars);}
 
@@ -703,6 +754,18 @@ final public class RC2 {
 		public Collection getCachingScheme(RC2 rc);
 	}
 
+	/**A caching scheme which can also give nodes partial caches, holding fewer entries than
+	 * their contexts have instantiations (see RC2PartialCache).
+	 * @since 20261018
+	 */
+	public interface BoundedCachingScheme extends CachingScheme {
+		/**Returns a Map from RC2NodeInternal to Long: the number of cache entries for that node.
+		 * Nodes which get at least their context size are cached in full, and
+		 * getCachingScheme should return the keys of this map.
+		 */
+		public Map getCacheSizes(RC2 rc);
+	}
+
 
 	final static public class StoredComputationStats {
 		/*Never changed after setRoots.*/
@@ -710,12 +773,40 @@ final public class RC2 {
 		/*Changed after setCachigScheme.*/
 		ComputationStats currentCaching = null;
 
+		/*Totals over the partial caches since the caching scheme was set, updated after each computation.*/
+		int numPartialCaches = 0;
+		long partialCacheHits = 0;
+		long partialCacheMisses = 0;
+		long partialCacheEvictions = 0;
+
 		public ComputationStats fullCaching() { return fullCaching;}
 		public ComputationStats currentCaching() { return currentCaching;}
+		public int numPartialCaches() { return numPartialCaches;}
+		public long partialCacheHits() { return partialCacheHits;}
+		public long partialCacheMisses() { return partialCacheMisses;}
+		public long partialCacheEvictions() { return partialCacheEvictions;}
+
+		void resetPartialCacheStats() {
+			numPartialCaches = 0;
+			partialCacheHits = 0;
+			partialCacheMisses = 0;
+			partialCacheEvictions = 0;
+		}
+		void collectPartialCacheStats(RC2NodeInternal nodes[]) {
+			resetPartialCacheStats();
+			numPartialCaches = nodes.length;
+			for(int i=0; i<nodes.length; i++) {
+				RC2PartialCache pc = nodes[i].getPartialCache();
+				partialCacheHits += pc.hits;
+				partialCacheMisses += pc.misses;
+				partialCacheEvictions += pc.evictions;
+			}
+		}
 
 		public String toString() {
 			if(fullCaching!=null) {
-				return "Computation Stats for RC:\n" + fullCaching + "\n(Currrently set) " + currentCaching;
+				return "Computation Stats for RC:\n" + fullCaching + "\n(Currrently set) " + currentCaching +
+						(numPartialCaches > 0 ? ("\n" + numPartialCaches + " partial caches: " + partialCacheHits + " hits, " + partialCacheMisses + " misses, " + partialCacheEvictions + " evictions") : "");
 			}
 			else { return "";}
 		}
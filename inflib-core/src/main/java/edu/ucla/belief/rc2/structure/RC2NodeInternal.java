@@ -21,6 +21,7 @@ public class RC2NodeInternal extends RC2Node {
 	private RC2ItrSat cutsetItrSat = null;
 
 	private double cache[] = null; //currently caches both log and non-log values, could possibly cause problems with dgraphs
+	private RC2PartialCache partialCache = null; //only used when cache is null
 
 	private ChildCntxUpdater leftCntxOffset = null;
 	private ChildCntxUpdater rightCntxOffset = null;
@@ -136,6 +137,9 @@ public class RC2NodeInternal extends RC2Node {
 		if(cache != null) {
 			Arrays.fill(cache, -1);
 		}
+		if(partialCache != null) {
+			partialCache.clear();
+		}
 	}
 
 	void setCaching(boolean cached) {
@@ -153,6 +157,13 @@ public class RC2NodeInternal extends RC2Node {
 	}
 	boolean getCaching() {return cache!=null;}
 
+	/**Keep up to capacity context instantiations in a partial cache (0 removes it).*/
+	void setPartialCaching(int capacity) {
+		if(capacity <= 0) { partialCache = null;}
+		else if(partialCache == null || partialCache.capacity() != capacity) { partialCache = new RC2PartialCache(capacity);}
+	}
+	RC2PartialCache getPartialCache() { return partialCache;}
+
 	void setEvidBaseline( long l, long r) { evidBaselineL = l; evidBaselineR = r;}
 
 	double recCondAll(long cntxIndxLg) {
@@ -161,6 +172,9 @@ public class RC2NodeInternal extends RC2Node {
 		if(cache!=null && cache[cntxIndx]>=0) {
 			return cache[cntxIndx];
 		}
+		else if(partialCache!=null && partialCache.find(cntxIndxLg)) {
+			return partialCache.found();
+		}
 		else {
 			long leftIndx = leftCntxOffset.computeBaseline();
 			long rightIndx = rightCntxOffset.computeBaseline();
@@ -180,6 +194,7 @@ public class RC2NodeInternal extends RC2Node {
 			}
 
 			if(cache!=null) {cache[cntxIndx]=ret;}
+			else if(partialCache!=null) {partialCache.put(cntxIndxLg,ret);}
 			return ret;
 		}
 	}
@@ -190,6 +205,9 @@ public class RC2NodeInternal extends RC2Node {
 		if(cache!=null && cache[cntxIndx]>=0) {
 			return cache[cntxIndx];
 		}
+		else if(partialCache!=null && partialCache.find(cntxIndxLg)) {
+			return partialCache.found();
+		}
 		else {
 			long leftIndx = leftCntxOffset.computeBaseline();
 			long rightIndx = rightCntxOffset.computeBaseline();
@@ -239,6 +257,7 @@ public class RC2NodeInternal extends RC2Node {
 			}
 
 			if(cache!=null) {cache[cntxIndx]=ret;}
+			else if(partialCache!=null) {partialCache.put(cntxIndxLg,ret);}
 			return ret;
 		}
 	}
@@ -249,6 +268,9 @@ public class RC2NodeInternal extends RC2Node {
 		if(cache!=null && cache[cntxIndx]>=0) {
 			return cache[cntxIndx];
 		}
+		else if(partialCache!=null && partialCache.find(cntxIndxLg)) {
+			return partialCache.found();
+		}
 		else {
 			long leftIndx = leftCntxOffset.computeBaseline() + evidBaselineL;
 			long rightIndx = rightCntxOffset.computeBaseline() + evidBaselineR;
@@ -267,6 +289,7 @@ public class RC2NodeInternal extends RC2Node {
 			}
 
 			if(cache!=null) {cache[cntxIndx]=ret;}
+			else if(partialCache!=null) {partialCache.put(cntxIndxLg,ret);}
 			return ret;
 		}
 	}
@@ -277,6 +300,9 @@ public class RC2NodeInternal extends RC2Node {
 		if(cache!=null && cache[cntxIndx]>=0) {
 			return cache[cntxIndx];
 		}
+		else if(partialCache!=null && partialCache.find(cntxIndxLg)) {
+			return partialCache.found();
+		}
 		else {
 			long leftIndx = leftCntxOffset.computeBaseline() + evidBaselineL;
 			long rightIndx = rightCntxOffset.computeBaseline() + evidBaselineR;
@@ -326,6 +352,7 @@ public class RC2NodeInternal extends RC2Node {
 			}
 
 			if(cache!=null) {cache[cntxIndx]=ret;}
+			else if(partialCache!=null) {partialCache.put(cntxIndxLg,ret);}
 			return ret;
 		}
 	}
@@ -336,6 +363,9 @@ public class RC2NodeInternal extends RC2Node {
 		if(cache!=null && cache[cntxIndx]>=0) {
 			return cache[cntxIndx];
 		}
+		else if(partialCache!=null && partialCache.find(cntxIndxLg)) {
+			return partialCache.found();
+		}
 		else {
 			double ret = 0.0;
 
@@ -356,6 +386,7 @@ public class RC2NodeInternal extends RC2Node {
 			}
 
 			if(cache!=null) {cache[cntxIndx]=ret;}
+			else if(partialCache!=null) {partialCache.put(cntxIndxLg,ret);}
 			return ret;
 		}
 	}
@@ -369,6 +400,9 @@ public class RC2NodeInternal extends RC2Node {
 		if(cache!=null && cache[cntxIndx]>=0) {
 			return cache[cntxIndx];
 		}
+		else if(partialCache!=null && partialCache.find(cntxIndxLg)) {
+			return partialCache.found();
+		}
 		else {
 			double ret = 0.0;
 			int v;
@@ -423,6 +457,7 @@ public class RC2NodeInternal extends RC2Node {
 			}
 
 			if(cache!=null) {cache[cntxIndx]=ret;}
+			else if(partialCache!=null) {partialCache.put(cntxIndxLg,ret);}
 			return ret;
 		}
 	}
@@ -433,11 +468,15 @@ public class RC2NodeInternal extends RC2Node {
 		if(cache!=null && cache[cntxIndx]>=0) {
 			return cache[cntxIndx];
 		}
+		else if(partialCache!=null && partialCache.find(cntxIndxLg)) {
+			return partialCache.found();
+		}
 		else {
 			cutsetItrSat.blL = leftCntxOffset.computeBaseline();
 			cutsetItrSat.blR = rightCntxOffset.computeBaseline();
 			double ret = cutsetItrSat.cutsetIterate(0);
 			if(cache!=null && ret>=0) {cache[cntxIndx]=ret;} //don't store backtrack mode
+			else if(partialCache!=null && ret>=0) {partialCache.put(cntxIndxLg,ret);}
 			return ret;
 		}
 	}
@@ -448,6 +487,9 @@ public class RC2NodeInternal extends RC2Node {
 		if(cache!=null && cache[cntxIndx]>=0) {
 			return cache[cntxIndx];
 		}
+		else if(partialCache!=null && partialCache.find(cntxIndxLg)) {
+			return partialCache.found();
+		}
 		else {
 			cutsetItrSat.blL = leftCntxOffset.computeBaseline();
 			cutsetItrSat.blR = rightCntxOffset.computeBaseline();
@@ -461,6 +503,7 @@ public class RC2NodeInternal extends RC2Node {
 			}
 
 			if(cache!=null && ret>=0) {cache[cntxIndx]=ret;} //don't store backtrack mode
+			else if(partialCache!=null && ret>=0) {partialCache.put(cntxIndxLg,ret);}
 			return ret;
 		}
 	}
@@ -470,13 +513,17 @@ public class RC2NodeInternal extends RC2Node {
 		if(cache!=null && cache[cntxIndx]>=0) {
 			return cache[cntxIndx];
 		}
+		else if(partialCache!=null && partialCache.find(cntxIndxLg)) {
+			return partialCache.found();
+		}
 		else {
 			long leftIndx = leftCntxOffset.computeBaseline() + evidBaselineL; //works with itrSkp or itrAll
 			long rightIndx = rightCntxOffset.computeBaseline() + evidBaselineR;
 			double ret = 0.0;
 
 			while(true) {
-				ret += left.recCondMPE(leftIndx) * right.recCondMPE(rightIndx);
+				double tmp = left.recCondMPE(leftIndx) * right.recCondMPE(rightIndx);
+				if(tmp>ret) { ret = tmp;}
 				int v = cutsetItr1.next();
 				if(v==-1){break;}
 				leftIndx += leftFC[v];
@@ -484,6 +531,7 @@ public class RC2NodeInternal extends RC2Node {
 			}
 
 			if(cache!=null) {cache[cntxIndx]=ret;}
+			else if(partialCache!=null) {partialCache.put(cntxIndxLg,ret);}
 			return ret;
 		}
 	}
@@ -529,6 +577,10 @@ public class RC2NodeInternal extends RC2Node {
 		if(cache == null) { return 0;}
 		else { return cache.length;}
 	}
+	/**Returns the capacity of this node's partial cache, or 0 if it has none.*/
+	public int partialCacheCapacity() {
+		return (partialCache == null ? 0 : partialCache.capacity());
+	}
 
 	static private final HashSet union(Collection l, Collection r) {
 		HashSet ret = new HashSet(Math.max(l.size(), r.size()));
@@ -0,0 +1,243 @@
+package edu.ucla.belief.rc2.structure;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import edu.ucla.belief.FiniteVariable;
+
+
+/** This class runs recursive conditioning on several threads.
+ *
+ * <p>Pr(e) is the sum, and the MPE value the maximum, over the instantiations x of
+ *    the Pe root's cutset (and, if that gives fewer than minTasks instantiations, of
+ *    the cutsets below it, level by level) of the same computation with x added to
+ *    the evidence.  Each instantiation is a task, and the tasks are divided among
+ *    replicas: RC2 objects for the same network, each with its own dtree, caches and
+ *    instantiation array, so they share no mutable state.  Replica r computes tasks
+ *    r, r+n, r+2n,... on a thread of the common ForkJoinPool, and the partial results
+ *    are combined in task order, so a given RC2Parallel returns the same value
+ *    however the threads are scheduled.
+ * <p>Every replica holds a full set of caches, so memory grows with the number of
+ *    replicas; give the replicas a smaller caching scheme if that is a problem.
+ *    Caches below nodes which do not mention the conditioned variables are kept
+ *    from one task to the next.
+ * <p>Evidence should only be changed through this object (or on the BeliefNetwork
+ *    followed by synchEvidWithBN), never on the replicas directly.
+ *
+ * @since 20261018
+ */
+final public class RC2Parallel {
+
+	final private RC2 replicas[];
+	final private int minTasks;
+
+
+	/** Create an RC2Parallel object.
+	 *  @param rcs Replicas for the same BeliefNetwork, ideally built the same way
+	 *             (e.g. RC2CreatorEO.createDtrees).  The array is copied.
+	 *  @param minTasks Split the computation into at least this many tasks if the
+	 *                  dtree allows it (a few times rcs.length balances the load).
+	 */
+	public RC2Parallel(RC2 rcs[], int minTasks) {
+		if(rcs == null || rcs.length == 0) { throw new IllegalArgumentException("RC2Parallel requires at least one replica.");}
+		for(int i=0; i<rcs.length; i++) {
+			if(rcs[i] == null) { throw new IllegalArgumentException("Replica " + i + " is null.");}
+			if(rcs[i].myBeliefNetwork != rcs[0].myBeliefNetwork) { throw new IllegalArgumentException("All replicas must use the same BeliefNetwork.");}
+			//partial derivatives iterate over all states regardless of evidence, so conditioning would not split the work
+			if(rcs[i].rcFlags.allowParDeriv) { throw new IllegalArgumentException("RC2Parallel cannot be used with allowPartialDerivatives.");}
+			if(rcs[i].rcFlags.allowKBsat) { throw new IllegalArgumentException("RC2Parallel cannot be used with the SAT engine.");}
+			for(int j=0; j<i; j++) {
+				if(rcs[i] == rcs[j]) { throw new IllegalArgumentException("Replicas must be distinct.");}
+			}
+		}
+		replicas = (RC2[])rcs.clone();
+		this.minTasks = Math.max(1, minTasks);
+	}
+
+	public RC2Parallel(RC2 rcs[]) {
+		this(rcs, 4*rcs.length);
+	}
+
+
+	public int numReplicas() { return replicas.length;}
+	public RC2 getReplica(int indx) { return replicas[indx];}
+
+
+	public void synchEvidWithBN() {
+		for(int i=0; i<replicas.length; i++) { replicas[i].synchEvidWithBN();}
+	}
+	public void observe(FiniteVariable var, Object value) {
+		for(int i=0; i<replicas.length; i++) { replicas[i].observe(var, value);}
+	}
+	public void unobserve(FiniteVariable var) {
+		for(int i=0; i<replicas.length; i++) { replicas[i].unobserve(var);}
+	}
+	public void close() {
+		for(int i=0; i<replicas.length; i++) { replicas[i].close();}
+	}
+
+
+	/**Returns the variables the next computation will condition on, in task order
+	 * (the last one changes fastest).  These are cutset variables without evidence,
+	 * taken from the Pe root of the first replica downwards.
+	 */
+	public List splitVars() {
+		final RC2 rc = replicas[0];
+		ArrayList ret = new ArrayList();
+		if(rc.peRootNode == null) { return ret;}
+
+		long numTasks = 1;
+		LinkedList queue = new LinkedList();
+		Set visited = new HashSet();
+		queue.add(rc.peRootNode);
+		while(!queue.isEmpty() && numTasks < minTasks) {
+			RC2Node nd = (RC2Node)queue.removeFirst();
+			if(nd.isLeaf() || !visited.add(nd)) { continue;} //dgraphs may share nodes
+
+			RC2NodeInternal ndi = (RC2NodeInternal)nd;
+			ArrayList cutset = (ArrayList)ndi.getCutsetIterator().getVars(new ArrayList());
+			for(int i=cutset.size()-1; i>=0; i--) {
+				FiniteVariable fv = (FiniteVariable)cutset.get(i);
+				if(rc.userEvid[rc.vars.indexOf(fv)] == -1 && !ret.contains(fv)) {
+					ret.add(fv);
+					numTasks *= fv.size();
+				}
+			}
+			queue.add(ndi.left);
+			queue.add(ndi.right);
+		}
+		if(numTasks > Integer.MAX_VALUE) {
+			throw new IllegalStateException("ERROR: Number of tasks > Integer.MAX_VALUE.");
+		}
+		return ret;
+	}
+
+
+	/**This will return the scaled version if scaling is enabled, the same as RC2.compute_Pe.*/
+	public double compute_Pe() {
+		final FiniteVariable split[] = splitVarsArray();
+		final double partial[] = run(split, false);
+		if(partial == null) { return -1;}
+
+		final double scalar = replicas[0].scalar;
+		if(scalar == 1.0) {
+			double ret = 0;
+			for(int t=0; t<partial.length; t++) { ret += partial[t];}
+			return ret;
+		}
+		else { //each partial is pr^(1/scalar), so sum the pr in log space as recCondSkpLog does
+			double s_lna = Double.NEGATIVE_INFINITY;
+			for(int t=0; t<partial.length; t++) {
+				if(partial[t] == 0.0) { continue;}
+				double s_lnb = scalar*Math.log(partial[t]);
+				if(s_lna == Double.NEGATIVE_INFINITY) { s_lna = s_lnb;}
+				else if(s_lnb > s_lna) { s_lna = s_lnb + Math.log(1.0 + Math.exp(s_lna - s_lnb));}
+				else { s_lna += Math.log(1.0 + Math.exp(s_lnb - s_lna));}
+			}
+			return Math.exp(s_lna/scalar);
+		}
+	}
+
+	/**Does not run with scaling enabled, the same as RC2.compute_MPEValue.*/
+	public double compute_MPEValue() {
+		final FiniteVariable split[] = splitVarsArray();
+		final double partial[] = run(split, true);
+		if(partial == null) { return -1;}
+
+		double ret = 0;
+		for(int t=0; t<partial.length; t++) {
+			if(partial[t] > ret) { ret = partial[t];}
+		}
+		return ret;
+	}
+
+
+	private FiniteVariable[] splitVarsArray() {
+		List sv = splitVars();
+		return (FiniteVariable[])sv.toArray(new FiniteVariable[sv.size()]);
+	}
+
+	/**Returns the result of each task, or null if a replica could not run the computation.*/
+	private double[] run(final FiniteVariable split[], final boolean mpe) {
+		int num = 1;
+		for(int i=0; i<split.length; i++) { num *= split[i].size();}
+		final double partial[] = new double[num];
+
+		ArrayList workers = new ArrayList(replicas.length);
+		for(int r=0; r<replicas.length && r<partial.length; r++) {
+			workers.add(new Worker(r, split, mpe, partial));
+		}
+
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		if(pool.getParallelism() < 2 || workers.size() < 2) {
+			for(int i=0; i<workers.size(); i++) { ((Worker)workers.get(i)).call();}
+		}
+		else {
+			List futures = pool.invokeAll(workers);
+			for(int i=0; i<futures.size(); i++) {
+				try {
+					((Future)futures.get(i)).get();
+				}
+				catch(ExecutionException e) {
+					Throwable cause = e.getCause();
+					if(cause instanceof RuntimeException) { throw (RuntimeException)cause;}
+					if(cause instanceof Error) { throw (Error)cause;}
+					throw new IllegalStateException(cause);
+				}
+				catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException(e);
+				}
+			}
+		}
+		for(int i=0; i<workers.size(); i++) {
+			if(((Worker)workers.get(i)).failed) { return null;}
+		}
+		return partial;
+	}
+
+
+	/**Computes tasks first, first+numReplicas,... on one replica.*/
+	final private class Worker implements Callable {
+		final private int first;
+		final private FiniteVariable split[];
+		final private boolean mpe;
+		final private double partial[];
+		private boolean failed = false;
+
+		Worker(int first, FiniteVariable split[], boolean mpe, double partial[]) {
+			this.first = first;
+			this.split = split;
+			this.mpe = mpe;
+			this.partial = partial;
+		}
+
+		public Object call() {
+			final RC2 rc = replicas[first];
+			final int state[] = new int[split.length];
+			try {
+				for(int t=first; t<partial.length; t+=replicas.length) {
+					//decode t, last variable fastest
+					int rem = t;
+					for(int i=split.length-1; i>=0; i--) {
+						state[i] = rem % split[i].size();
+						rem /= split[i].size();
+					}
+					for(int i=0; i<split.length; i++) {
+						rc.observe(split[i], split[i].instance(state[i]));
+					}
+					partial[t] = (mpe ? rc.compute_MPEValue() : rc.compute_Pe());
+					if(partial[t] < 0) { failed = true; return null;}
+				}
+			}
+			finally {
+				for(int i=0; i<split.length; i++) { rc.unobserve(split[i]);}
+			}
+			return null;
+		}
+	}//end class Worker
+
+}//end class RC2Parallel
@@ -0,0 +1,157 @@
+package edu.ucla.belief.rc2.structure;
+
+import java.util.*;
+
+
+/** This class represents a cache holding only some of the instantiations of
+ *  a node's context.
+ *
+ * <p>Entries are kept in an open addressed hash table keyed by the context index.
+ *    When it is full, the CLOCK policy chooses which entry to evict: a hand sweeps
+ *    the table, giving every entry which was hit since the last sweep a second
+ *    chance.  Contexts which are too large for a full cache (or for the memory
+ *    available) can still reuse their frequently visited instantiations.
+ * <p>As with the full caches, values are non-negative and a miss is signalled
+ *    by find returning false.
+ *
+ * @since 20261018
+ */
+final public class RC2PartialCache {
+
+	static final private long EMPTY = -1;
+	static final private long GOLDEN = 0x9E3779B97F4A7C15L;
+
+	/**The largest capacity supported (the table must be indexable by an int).*/
+	static final public int MAX_CAPACITY = 3 << 28;
+
+	final private long keys[];
+	final private double vals[];
+	final private boolean referenced[];
+	final private int mask;
+	final private int shift;
+	final private int capacity;
+
+	private int size = 0;
+	private int hand = 0;
+	private int foundSlot = -1;
+
+	long hits = 0;
+	long misses = 0;
+	long evictions = 0;
+
+
+	/** Create an RC2PartialCache object which holds up to capacity entries.*/
+	RC2PartialCache(int capacity) {
+		if(capacity < 1 || capacity > MAX_CAPACITY) { throw new IllegalArgumentException("Illegal partial cache capacity: " + capacity);}
+		int slots = numSlots(capacity);
+		keys = new long[slots];
+		vals = new double[slots];
+		referenced = new boolean[slots];
+		Arrays.fill(keys, EMPTY);
+		mask = slots-1;
+		shift = 64 - Integer.numberOfTrailingZeros(slots);
+		this.capacity = capacity;
+	}
+
+	/**The table is kept at most 3/4 full so probe sequences stay short.*/
+	static private int numSlots(int capacity) {
+		long need = ((long)capacity * 4 + 2) / 3;
+		int slots = 4;
+		while(slots < need) { slots <<= 1;}
+		return slots;
+	}
+
+	/**Returns the memory a cache of this capacity uses, in doubles (the unit of RC2.ComputationStats).*/
+	static public double memoryUsage(int capacity) {
+		int slots = numSlots(capacity);
+		return slots * 2.0 + slots / 8.0; //key and value, plus a byte for the reference bit
+	}
+
+	int capacity() { return capacity;}
+	int size() { return size;}
+	double memoryUsage() { return memoryUsage(capacity);}
+
+	private int home(long key) {
+		return (int)((key * GOLDEN) >>> shift);
+	}
+
+
+	/**Returns true if key is cached, in which case found() returns its value.*/
+	boolean find(long key) {
+		for(int i=home(key); ; i=(i+1)&mask) {
+			long k = keys[i];
+			if(k == key) {
+				referenced[i] = true;
+				foundSlot = i;
+				hits++;
+				return true;
+			}
+			if(k == EMPTY) {
+				misses++;
+				return false;
+			}
+		}
+	}
+	double found() { return vals[foundSlot];}
+
+
+	void put(long key, double val) {
+		int i = home(key);
+		while(keys[i] != EMPTY) {
+			if(keys[i] == key) { vals[i] = val; return;}
+			i = (i+1)&mask;
+		}
+		if(size == capacity) {
+			evict();
+			i = home(key); //eviction may have moved entries
+			while(keys[i] != EMPTY) { i = (i+1)&mask;}
+		}
+		keys[i] = key;
+		vals[i] = val;
+		referenced[i] = false;
+		size++;
+	}
+
+
+	void clear() {
+		if(size > 0) {
+			Arrays.fill(keys, EMPTY);
+			Arrays.fill(referenced, false);
+			size = 0;
+		}
+		hand = 0;
+	}
+
+
+	private void evict() {
+		while(true) {
+			hand = (hand+1)&mask;
+			if(keys[hand] == EMPTY) { continue;}
+			if(referenced[hand]) { referenced[hand] = false; continue;}
+			remove(hand);
+			evictions++;
+			return;
+		}
+	}
+
+	/**Linear probing removal: shift later entries of the probe sequence back into the hole.*/
+	private void remove(int slot) {
+		int i = slot;
+		int j = slot;
+		while(true) {
+			j = (j+1)&mask;
+			if(keys[j] == EMPTY) { break;}
+			int h = home(keys[j]);
+			boolean stays = (i<=j ? (i<h && h<=j) : (i<h || h<=j));
+			if(stays) { continue;}
+			keys[i] = keys[j];
+			vals[i] = vals[j];
+			referenced[i] = referenced[j];
+			i = j;
+		}
+		keys[i] = EMPTY;
+		referenced[i] = false;
+		size--;
+	}
+
+}//end class RC2PartialCache
@@ -309,6 +309,19 @@ public class RC2Utils {
 		}
 		return ret;
 	}
+	/**Returns a Map from every node to the number of calls expected on it, with nodesCached
+	 *  interpreted as in expectedRCCalls_All.
+	 *  @since 20261018
+	 */
+	public final static Map expectedRCCallsToNodes(RC2 rc, Collection nodesCached) {
+		int numNodes = rc.getNumRCNodes_All();
+		Map callsToNode = new HashMap(numNodes);
+
+		for(int indx = numNodes-1; indx>=0; indx--) { //ordering must be parent-child
+			expectedRCCalls(rc.getRCNode_All(indx),callsToNode,nodesCached);
+		}
+		return callsToNode;
+	}
 	private final static double expectedRCCalls(RC2Node nd, Map callsToNode, Collection nodesCached) {
 		double ret = 0;
 
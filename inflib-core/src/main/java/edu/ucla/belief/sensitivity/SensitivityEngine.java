@@ -5,6 +5,9 @@ import edu.ucla.util.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 public class SensitivityEngine
 {
@@ -156,6 +159,7 @@ public class SensitivityEngine
 					ExcludePolicy.getExcludeArray(varX),
 					maxDist);
 		}
+		int kept = 0;
 		for (int i = 0; i < maxLoops; i++) {
 			double dist = minDist + (epsilon-minValue) *
 				(maxDist-minDist) / (maxValue-minValue);
@@ -171,13 +175,21 @@ public class SensitivityEngine
 					ExcludePolicy.getExcludeArray(varX),
 					dist);
 			}
+			// Illinois: when one end is kept twice running, halve
+			// its distance from epsilon so that the other end moves
 			if (incr ^ (value > epsilon)) {
 				maxDist = dist;
 				maxValue = value;
+				if (kept < 0)
+					minValue = epsilon + (minValue - epsilon) / 2.0;
+				kept = -1;
 			}
 			else {
 				minDist = dist;
 				minValue = value;
+				if (kept > 0)
+					maxValue = epsilon + (maxValue - epsilon) / 2.0;
+				kept = 1;
 			}
 			/*if (Math.abs(value - prevValue) <= negl){
 				//System.out.println("N: Loops = " + i);
@@ -361,6 +373,37 @@ public class SensitivityEngine
 	}
 
 	public SensitivityReport getResults( SensitivityConstraint constraint ){
+		return getResults( constraint, (ForkJoinPool)null, (SuggestionListener)null );
+	}
+
+	/**
+		Receives the suggestions of an analysis as each variable's are
+		found, from whichever thread found them, one call at a time.
+		@since 20261018
+	*/
+	public interface SuggestionListener
+	{
+		/**
+			@param found the suggestions for one more variable: its
+			single parameter suggestions, then its single cpt suggestion
+			@param ranked every suggestion found so far, least log-odds
+			change first
+		*/
+		public void suggestionsFound( List found, List ranked );
+	}
+
+	/**
+		Like getResults( constraint ), and with a pool, the variables'
+		equations are solved in parallel.  The partial derivatives of all
+		the cpts come first, in the calling thread, from the one
+		propagation each equation already takes; only the solving is
+		spread over the pool.
+
+		@param pool null to solve in the calling thread
+		@param listener null for none
+		@since 20261018
+	*/
+	public SensitivityReport getResults( SensitivityConstraint constraint, ForkJoinPool pool, SuggestionListener listener ){
 /*
 		boolean version2 = true;
 		if (version2) {
@@ -416,6 +459,7 @@ public class SensitivityEngine
 		printToWriter("Sensitivity analysis started.");
 		Hashtable singleParamMap = new Hashtable();
 		Hashtable singleCPTMap = new Hashtable();
+		Ranking ranking = listener == null ? null : new Ranking( listener );
 		SensitivityEquation eqD, eqN;
 
 		long start_ms = System.currentTimeMillis();
@@ -436,30 +480,15 @@ public class SensitivityEngine
 			eqN = getJointYEq(vars, varY, valueY);
 		}
 
-		double probD = eqD.getProb();
-		double probN = eqN.getProb();
-		for (int i = 0; i < vars.size(); i++) {
-			FiniteVariable varX = (FiniteVariable)vars.get(i);
-			double[] alphaDs = eqD.getAlphas(varX);
-			double[] alphaNs = eqN.getAlphas(varX);
-
-			SensitivityTable table1 = null;
-			if( constraint.flagSingleParameter ){
-				table1 = singleParamSolve(varX,
-					probD, alphaDs, probN, alphaNs,
-					comparisonOp, epsilon);
-				singleParamMap.put(varX, table1);
-			}
-			if( constraint.flagSingleCPT ){
-				SensitivityTable table2 = singleCPTSolve(varX,
-					probD, alphaDs, probN, alphaNs,
-					comparisonOp, epsilon, table1);
-				if (table2 != null) {
-					//System.out.println(table2);
-					singleCPTMap.put(varX, table2);
-				}
+		if( pool == null ){
+			double probD = eqD.getProb();
+			double probN = eqN.getProb();
+			for (int i = 0; i < vars.size(); i++) {
+				FiniteVariable varX = (FiniteVariable)vars.get(i);
+				solve( constraint, varX, probD, eqD.getAlphas(varX), probN, eqN.getAlphas(varX), singleParamMap, singleCPTMap, ranking );
 			}
 		}
+		else solveAll( constraint, vars, eqD, eqN, singleParamMap, singleCPTMap, ranking, pool );
 
 		long end_cpu_ms = JVMProfiler.getCurrentThreadCpuTimeMS();
 		long end_ms = System.currentTimeMillis();
@@ -469,7 +498,7 @@ public class SensitivityEngine
 
 		long answerMillis = (long)0;
 		String caption = null;
-		if( JVMProfiler.profilerRunning() )
+		if( JVMProfiler.profilerRunning() && pool == null )
 		{
 			answerMillis = threadCPUMS;
 			caption = "(thread profile)";
@@ -488,6 +517,100 @@ public class SensitivityEngine
 			singleCPTMap);
 	}
 
+	/** One variable's share of getResults(). */
+	private void solve( SensitivityConstraint constraint, FiniteVariable varX,
+		double probD, double[] alphaDs, double probN, double[] alphaNs,
+		Map singleParamMap, Map singleCPTMap, Ranking ranking )
+	{
+		SensitivityTable table1 = null;
+		SensitivityTable table2 = null;
+		if( constraint.flagSingleParameter ){
+			table1 = singleParamSolve(varX,
+				probD, alphaDs, probN, alphaNs,
+				constraint.comparisonOp, constraint.epsilon);
+			singleParamMap.put(varX, table1);
+		}
+		if( constraint.flagSingleCPT ){
+			table2 = singleCPTSolve(varX,
+				probD, alphaDs, probN, alphaNs,
+				constraint.comparisonOp, constraint.epsilon, table1);
+			if (table2 != null) {
+				singleCPTMap.put(varX, table2);
+			}
+		}
+		if( ranking != null ) ranking.add( suggestions( table1, table2 ) );
+	}
+
+	/** as SensitivityReport.generateSingleParamSuggestions(), for one variable */
+	private static List suggestions( SensitivityTable table1, SensitivityTable table2 )
+	{
+		List ret = new ArrayList();
+		if( table1 != null ){
+			CPTShell shell = table1.getCPTShell();
+			if (shell instanceof NoisyOrShell)
+				ret.addAll( SingleParamSuggestion.generateNoisyOrSuggestions( (NoisyOrShell)shell, table1 ) );
+			else if (shell instanceof TableShell)
+				ret.addAll( SingleParamSuggestion.generateTableSuggestions( (TableShell)shell, table1 ) );
+		}
+		if( table2 instanceof SensitivitySuggestion ) ret.add( table2 );
+		return ret;
+	}
+
+	/** Every variable's alphas first, since the partial derivative engine
+		is not safe to share, then the solving in parallel. */
+	private void solveAll( final SensitivityConstraint constraint, List vars,
+		SensitivityEquation eqD, SensitivityEquation eqN,
+		final Map singleParamMap, final Map singleCPTMap, final Ranking ranking, ForkJoinPool pool )
+	{
+		final double probD = eqD.getProb();
+		final double probN = eqN.getProb();
+		final int size = vars.size();
+		final FiniteVariable[] varXs = new FiniteVariable[ size ];
+		final double[][] alphaDs = new double[ size ][];
+		final double[][] alphaNs = new double[ size ][];
+		for( int i = 0; i < size; i++ ){
+			varXs[i] = (FiniteVariable)vars.get(i);
+			alphaDs[i] = eqD.getAlphas( varXs[i] );
+			alphaNs[i] = eqN.getAlphas( varXs[i] );
+		}
+
+		final ForkJoinTask[] tasks = new ForkJoinTask[ size ];
+		for( int i = 0; i < size; i++ ){
+			final int index = i;
+			tasks[i] = new RecursiveAction(){
+				protected void compute(){
+					solve( constraint, varXs[index], probD, alphaDs[index], probN, alphaNs[index], singleParamMap, singleCPTMap, ranking );
+				}
+			};
+		}
+		pool.invoke( new RecursiveAction(){
+			protected void compute(){
+				invokeAll( tasks );
+			}
+		} );
+	}
+
+	/** The suggestions so far, least log-odds change first, for a SuggestionListener. */
+	private static final class Ranking
+	{
+		Ranking( SuggestionListener listener ){
+			myListener = listener;
+		}
+
+		synchronized void add( List found ){
+			for( Iterator it = found.iterator(); it.hasNext(); ){
+				Object suggestion = it.next();
+				int index = Collections.binarySearch( myRanked, suggestion, myComparator );
+				myRanked.add( index < 0 ? -(index+1) : index, suggestion );
+			}
+			myListener.suggestionsFound( Collections.unmodifiableList( found ), Collections.unmodifiableList( new ArrayList( myRanked ) ) );
+		}
+
+		private final SuggestionListener myListener;
+		private final List                myRanked     = new ArrayList();
+		private final Comparator          myComparator = new SensitivitySuggestionComparator( SensitivitySuggestionComparator.LOG_ODDS_CHANGE );
+	}
+
 /* Hei 051602: Disabled; don't delete
 	public Map getResults(FiniteVariable var, Object value1,
 		Object value2, Object opArithmetic, Object opComparison, double c)
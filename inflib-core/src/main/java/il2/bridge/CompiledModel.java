@@ -0,0 +1,291 @@
+package il2.bridge;
+
+import il2.util.*;
+import il2.model.*;
+import il2.inf.structure.EliminationOrders;
+import edu.ucla.belief.FiniteVariable;
+import edu.ucla.belief.FiniteVariableImpl;
+import edu.ucla.belief.BeliefNetworkImpl;
+import edu.ucla.belief.TableShell;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/** A network together with its compiled jointree, in a binary file that
+    loads without parsing or recompiling.
+
+    <p>The file holds the variables and their states, every CPT (its
+    family in CPT order, then its values), the elimination order and the
+    jointree's clusters and edges.  The engines assign the CPTs to
+    clusters themselves when they are built.  The file is memory-mapped
+    when read, and the CPT values, which are aligned on eight bytes, are
+    copied out in bulk.
+
+    <p>The cache of a network file <i>f</i> is <i>f</i>.il2c.  {@link
+    #load(File)} and {@link
+    edu.ucla.belief.io.NetworkIO#readCompiled(File)} read the cache
+    instead of <i>f</i> whenever the cache is at least as new as
+    <i>f</i>, and load(File) also writes the cache when it is missing or
+    stale.  {@link edu.ucla.belief.io.NetworkIO#read(File)} always
+    parses <i>f</i>.  A network read from a cache is a plain
+    BeliefNetworkImpl: the display properties of the source file are not
+    kept.
+
+    @since 20261018 */
+public class CompiledModel{
+    public static final int INT_MAGIC=0x494C3243;//"IL2C"
+    public static final int INT_VERSION=1;
+    public static final String STR_EXTENSION=".il2c";
+
+    private final edu.ucla.belief.BeliefNetwork beliefNetwork;
+    private final Converter converter;
+    private final BayesianNetwork network;
+    private final EliminationOrders.JT joinTree;
+
+    private CompiledModel(edu.ucla.belief.BeliefNetwork bn,Converter c,EliminationOrders.JT jt){
+	beliefNetwork=bn;
+	converter=c;
+	network=c.getBayesianNetwork();
+	joinTree=jt;
+    }
+
+    /** Compile <b>bn</b> with a min-fill order and a traditional jointree. */
+    public static CompiledModel compile(edu.ucla.belief.BeliefNetwork bn){
+	Converter c=new Converter();
+	BayesianNetwork bn2=c.convert(bn);
+	Collection subdomains=Arrays.asList(bn2.cpts());
+	IntList order=EliminationOrders.minFill(subdomains,1,(Random)null).order;
+	EliminationOrders.JT jt=EliminationOrders.traditionalJoinTree(subdomains,order,c,bn2);
+	return new CompiledModel(bn,c,jt);
+    }
+
+    public edu.ucla.belief.BeliefNetwork getBeliefNetwork(){
+	return beliefNetwork;
+    }
+
+    public Converter getConverter(){
+	return converter;
+    }
+
+    public BayesianNetwork getBayesianNetwork(){
+	return network;
+    }
+
+    public EliminationOrders.JT getJoinTree(){
+	return joinTree;
+    }
+
+    public static File cacheFile(File source){
+	return new File(source.getPath()+STR_EXTENSION);
+    }
+
+    /** the cache of <b>source</b>, or null if there is none as new as <b>source</b> or it cannot be read */
+    public static CompiledModel readCache(File source){
+	File cache=cacheFile(source);
+	if(!cache.isFile() || cache.lastModified()<source.lastModified()){
+	    return null;
+	}
+	try{
+	    return read(cache);
+	}catch(IOException e){
+	    return null;
+	}catch(RuntimeException e){//truncated or corrupt
+	    return null;
+	}
+    }
+
+    /** Read <b>source</b> from its cache if it is fresh; otherwise read and
+	compile it, and try to write the cache for next time. */
+    public static CompiledModel load(File source) throws Exception{
+	CompiledModel cached=readCache(source);
+	if(cached!=null){
+	    return cached;
+	}
+	CompiledModel result=compile(edu.ucla.belief.io.NetworkIO.read(source));
+	try{
+	    result.write(cacheFile(source));
+	}catch(IOException e){
+	    cacheFile(source).delete();
+	}
+	return result;
+    }
+
+    public void write(File file) throws IOException{
+	DataOutputStream out=new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file),1<<16));
+	try{
+	    write(out);
+	}finally{
+	    out.close();
+	}
+    }
+
+    private void write(DataOutputStream out) throws IOException{
+	out.writeInt(INT_MAGIC);
+	out.writeInt(INT_VERSION);
+	Domain d=network.domain();
+	out.writeInt(d.size());
+	for(int v=0;v<d.size();v++){
+	    FiniteVariable fv=converter.convert(v);
+	    writeString(out,fv.getID());
+	    out.writeInt(fv.size());
+	    for(int i=0;i<fv.size();i++){
+		writeString(out,fv.instance(i).toString());
+	    }
+	}
+	Table[] cpts=network.cpts();
+	for(int v=0;v<cpts.length;v++){
+	    FiniteVariable fv=converter.convert(v);
+	    List family=fv.getCPTShell(fv.getDSLNodeType()).variables();
+	    out.writeInt(family.size());
+	    for(int i=0;i<family.size();i++){
+		out.writeInt(converter.convert((FiniteVariable)family.get(i)));
+	    }
+	    double[] vals=cpts[v].values();
+	    out.writeInt(vals.length);
+	    while(out.size()%8!=0){
+		out.writeByte(0);
+	    }
+	    for(int i=0;i<vals.length;i++){
+		out.writeDouble(vals[i]);
+	    }
+	}
+
+	writeInts(out,joinTree.order);
+	Graph tree=joinTree.tree;
+	IntSet vertices=tree.vertices();
+	out.writeInt(vertices.size());
+	for(int i=0;i<vertices.size();i++){
+	    int vertex=vertices.get(i);
+	    out.writeInt(vertex);
+	    writeInts(out,(IntSet)joinTree.clusters.get(Integer.valueOf(vertex)));
+	}
+	int edges=0;
+	for(int i=0;i<vertices.size();i++){
+	    IntSet nb=tree.neighbors(vertices.get(i));
+	    for(int j=0;j<nb.size();j++){
+		if(vertices.get(i)<nb.get(j)){
+		    edges++;
+		}
+	    }
+	}
+	out.writeInt(edges);
+	for(int i=0;i<vertices.size();i++){
+	    IntSet nb=tree.neighbors(vertices.get(i));
+	    for(int j=0;j<nb.size();j++){
+		if(vertices.get(i)<nb.get(j)){
+		    out.writeInt(vertices.get(i));
+		    out.writeInt(nb.get(j));
+		}
+	    }
+	}
+    }
+
+    public static CompiledModel read(File file) throws IOException{
+	FileChannel channel=FileChannel.open(file.toPath(),StandardOpenOption.READ);
+	try{
+	    return read(channel.map(FileChannel.MapMode.READ_ONLY,0,channel.size()));
+	}finally{
+	    channel.close();
+	}
+    }
+
+    private static CompiledModel read(ByteBuffer in) throws IOException{
+	if(in.getInt()!=INT_MAGIC){
+	    throw new IOException("not a compiled model");
+	}
+	int version=in.getInt();
+	if(version!=INT_VERSION){
+	    throw new IOException("compiled model version "+version+", expected "+INT_VERSION);
+	}
+	int numVars=in.getInt();
+	List vars=new ArrayList(numVars);
+	for(int v=0;v<numVars;v++){
+	    String id=readString(in);
+	    String[] states=new String[in.getInt()];
+	    for(int i=0;i<states.length;i++){
+		states[i]=readString(in);
+	    }
+	    vars.add(new FiniteVariableImpl(id,states));
+	}
+	Converter c=new Converter();
+	c.init(vars);
+	Table[] cpts=new Table[numVars];
+	Map shells=new HashMap(numVars);
+	for(int v=0;v<numVars;v++){
+	    int[] family=new int[in.getInt()];
+	    List familyVars=new ArrayList(family.length);
+	    for(int i=0;i<family.length;i++){
+		family[i]=in.getInt();
+		familyVars.add(vars.get(family[i]));
+	    }
+	    double[] vals=new double[in.getInt()];
+	    in.position((in.position()+7)&~7);
+	    in.asDoubleBuffer().get(vals);
+	    in.position(in.position()+8*vals.length);
+	    cpts[v]=new Table(c.domain,new IntSet(family),vals);
+	    shells.put(vars.get(v),new TableShell(c.convert(cpts[v],familyVars)));
+	}
+	BayesianNetwork bn2=new BayesianNetwork(cpts);
+	edu.ucla.belief.BeliefNetwork bn=new BeliefNetworkImpl(shells);
+	c.myBayesianNetwork=bn2;
+	c.myBeliefNetwork=bn;
+
+	IntList order=new IntList(readInts(in));
+	int numVertices=in.getInt();
+	int[] vertices=new int[numVertices];
+	Map clusters=new HashMap(numVertices);
+	int max=-1;
+	for(int i=0;i<numVertices;i++){
+	    vertices[i]=in.getInt();
+	    clusters.put(Integer.valueOf(vertices[i]),new IntSet(readInts(in)));
+	    max=Math.max(max,vertices[i]);
+	}
+	Graph tree=new Graph(max+1);
+	for(int i=0;i<numVertices;i++){
+	    tree.add(vertices[i]);
+	}
+	int edges=in.getInt();
+	for(int i=0;i<edges;i++){
+	    tree.addEdge(in.getInt(),in.getInt());
+	}
+	EliminationOrders.JT jt=EliminationOrders.joinTree(order,tree,clusters,c.domain,c,bn2);
+	return new CompiledModel(bn,c,jt);
+    }
+
+    private static void writeString(DataOutputStream out,String s) throws IOException{
+	byte[] bytes=s.getBytes(StandardCharsets.UTF_8);
+	out.writeInt(bytes.length);
+	out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in){
+	byte[] bytes=new byte[in.getInt()];
+	in.get(bytes);
+	return new String(bytes,StandardCharsets.UTF_8);
+    }
+
+    private static void writeInts(DataOutputStream out,IntList list) throws IOException{
+	out.writeInt(list.size());
+	for(int i=0;i<list.size();i++){
+	    out.writeInt(list.get(i));
+	}
+    }
+
+    private static void writeInts(DataOutputStream out,IntSet set) throws IOException{
+	out.writeInt(set.size());
+	for(int i=0;i<set.size();i++){
+	    out.writeInt(set.get(i));
+	}
+    }
+
+    private static int[] readInts(ByteBuffer in){
+	int[] result=new int[in.getInt()];
+	in.asIntBuffer().get(result);
+	in.position(in.position()+4*result.length);
+	return result;
+    }
+}
@@ -12,6 +12,8 @@ public class Converter{
     Domain domain;
     edu.ucla.belief.BeliefNetwork myBeliefNetwork;
     BayesianNetwork myBayesianNetwork;
+    il2.model.Table[] myFactorizedTables;
+    boolean[] myFactorized;
 
     /** 012904 */
     public Converter()
@@ -79,15 +81,10 @@ public class Converter{
 	public BayesianNetwork convert( edu.ucla.belief.BeliefNetwork bn )
 	{
 		if( myBayesianNetwork == null ){
-			myBeliefNetwork = bn;
-			vars=bn.topologicalOrder();
+			initVariables( bn );
 			il2.model.Table[] tables=new il2.model.Table[vars.size()];
-			domain=new Domain(vars.size());
-			index=new HashMap(vars.size());
 			for(int i=0;i<vars.size();i++){
 				FiniteVariable fv=(FiniteVariable)vars.get(i);
-				index.put(fv,new Integer(i));
-				domain.addDim(fv.getID(),fv.instances());
 				tables[i]=convert( fv.getCPTShell( fv.getDSLNodeType() ).getCPT() );
 			}
 			myBayesianNetwork = new BayesianNetwork(tables);
@@ -97,6 +94,173 @@ public class Converter{
 		return myBayesianNetwork;
 	}
 
+	/** vars, index and domain for bn, unless they are already bn's */
+	private void initVariables( edu.ucla.belief.BeliefNetwork bn ){
+		if( myBeliefNetwork == bn ) return;
+		if( myBeliefNetwork != null ) throw new IllegalArgumentException();
+		myBeliefNetwork = bn;
+		vars=bn.topologicalOrder();
+		domain=new Domain(vars.size());
+		index=new HashMap(vars.size());
+		for(int i=0;i<vars.size();i++){
+			FiniteVariable fv=(FiniteVariable)vars.get(i);
+			index.put(fv,new Integer(i));
+			domain.addDim(fv.getID(),fv.instances());
+		}
+	}
+
+	/**
+		Like convert( bn ).cpts(), except that a noisy-or variable whose
+		cpt would be larger than its factorization is not expanded into a
+		cpt.  Noisy-or (NoisyOrShellPearl or NoisyOrShellHenrion) makes the
+		child the minimum of a leak and one independent variable per
+		parent, so it factors into a chain: Y_0 = min( leak, X_0 ),
+		Y_i = min( Y_i-1, X_i ), and the child is Y_n-1.  Each link is a
+		table over Y_i-1, U_i, Y_i, so the tables and the treewidth the
+		child adds grow linearly, not exponentially, in its parents.
+
+		<p>The Y_i are hidden variables, added to the domain after the
+		network's variables; they have no FiniteVariable, so convert(int)
+		and the like know only the ids below getNumVariables().  Table i
+		is still variable i's: its cpt, or, if it {@link #isFactorized(int)
+		is factorized}, the last link of its chain.  The other links follow
+		the first getNumVariables() tables.  Pass them to the engines that
+		take a Table[], e.g. UnindexedSSAlgorithm.create( Table[], IntList )
+		or RCEngine.create( Table[], IntList ).
+
+		@since 20261018
+	*/
+	public il2.model.Table[] convertFactorized( edu.ucla.belief.BeliefNetwork bn )
+	{
+		if( myFactorizedTables == null ){
+			initVariables( bn );
+			List tables = new ArrayList( vars.size() );
+			List links  = new ArrayList();
+			myFactorized = new boolean[ vars.size() ];
+			for(int i=0;i<vars.size();i++){
+				FiniteVariable fv=(FiniteVariable)vars.get(i);
+				edu.ucla.belief.CPTShell shell = fv.getCPTShell( fv.getDSLNodeType() );
+				myFactorized[i] = (shell instanceof edu.ucla.belief.NoisyOrShell) && isWorthFactoring( shell.variables() );
+				if( myFactorized[i] ) tables.add( addNoisyOrChain( (edu.ucla.belief.NoisyOrShell) shell, links ) );
+				else tables.add( convert( shell.getCPT() ) );
+			}
+			tables.addAll( links );
+			myFactorizedTables = (il2.model.Table[]) tables.toArray( new il2.model.Table[tables.size()] );
+		}
+		else if( myBeliefNetwork != bn ) throw new IllegalArgumentException();
+
+		return myFactorizedTables;
+	}
+
+	/** @since 20261018 */
+	public int getNumVariables(){
+		return vars.size();
+	}
+
+	/** True if convertFactorized() encoded variable <b>var</b> as a chain
+		rather than a cpt.
+		@since 20261018 */
+	public boolean isFactorized( int var ){
+		return myFactorized != null && myFactorized[ var ];
+	}
+
+	/** the cpt's entries against the chain's, family last; never with
+		fewer than two parents, where the chain is no smaller and, with
+		none, would leave out the leak */
+	private static boolean isWorthFactoring( List family ){
+		int    n     = family.size() - 1;
+		if( n < 2 ) return false;
+		double x     = ((FiniteVariable) family.get( n )).size();
+		double cpt   = x;
+		double chain = (double)0;
+		for( int i=0; i<n; i++ ){
+			double u = ((FiniteVariable) family.get(i)).size();
+			cpt   *= u;
+			chain += (i == 0) ? u * x : u * x * x;
+		}
+		return chain < cpt;
+	}
+
+	/**
+		The chain of the noisy-or's child.  Both shells keep
+		Pr( X >= x+1 | u ) = leak[x] * prod_i f_i[x]( u_i ), where parent i
+		contributes 1 in its last (off) state.  For Henrion the f_i are the
+		params over the leak.  So Pr( X_i >= x ) = f_i[x-1]( u_i ), 1 for
+		x = 0 and 0 past the last state, and a link puts
+		Pr( y | y', u_i ) = Pr( X_i = y ) for y < y',
+		Pr( X_i >= y' ) for y = y', and 0 for y > y'.
+
+		@return the last link, over the child; the others go in <b>links</b>
+	*/
+	private il2.model.Table addNoisyOrChain( edu.ucla.belief.NoisyOrShell shell, List links ){
+		List         family  = shell.variables();
+		int          n       = family.size() - 1;
+		FiniteVariable child = (FiniteVariable) family.get( n );
+		int          x       = child.size();
+		int          gx      = x - 1;
+
+		double[]     leaks;
+		double[][][] params;
+		int[][]      indexes = null;
+		boolean      henrion = shell instanceof edu.ucla.belief.NoisyOrShellHenrion;
+		if( henrion ){
+			leaks   = ((edu.ucla.belief.NoisyOrShellHenrion) shell).getLeaks();
+			params  = ((edu.ucla.belief.NoisyOrShellHenrion) shell).getParams();
+		}else{
+			leaks   = ((edu.ucla.belief.NoisyOrShellPearl)   shell).getLeaks();
+			params  = ((edu.ucla.belief.NoisyOrShellPearl)   shell).getParams();
+			indexes = ((edu.ucla.belief.NoisyOrShellPearl)   shell).getIndexes();
+		}
+
+		int             previous = -1;
+		il2.model.Table last     = null;
+		for( int i=0; i<n; i++ ){
+			FiniteVariable parent = (FiniteVariable) family.get(i);
+			int      u    = parent.size();
+			int      uvar = convert( parent );
+			int      yvar = (i == n-1) ? convert( child ) : domain.addDim( child.getID() + "~noisyor" + i, child.instances() );
+
+			// survival[ui][y] = Pr( X_i >= y | ui ), y = 0 .. x
+			double[][] survival = new double[u][x+1];
+			for( int ui=0; ui<u; ui++ ){
+				int j = henrion ? ui : indexes[i][ui];
+				survival[ui][0] = (double)1;
+				for( int y=1; y<x; y++ ){
+					if( j == params[0][i].length ) survival[ui][y] = (double)1;
+					else survival[ui][y] = henrion ? params[y-1][i][j] / leaks[y-1] : params[y-1][i][j];
+				}
+			}
+
+			IntSet      scope = new IntSet( previous < 0 ? new int[]{ uvar, yvar } : new int[]{ previous, uvar, yvar } );
+			il2.model.Table table = new il2.model.Table( domain, scope );
+			double[]    values  = table.values();
+			int         pu      = scope.indexOf( uvar );
+			int         py      = scope.indexOf( yvar );
+			int         pp      = previous < 0 ? -1 : scope.indexOf( previous );
+			int[]       current = new int[ scope.size() ];
+			for( int k=0; k<values.length; k++ ){
+				int ui = current[pu];
+				int y  = current[py];
+				if( pp < 0 ){
+					// Pr( min( leak, X_0 ) >= y ) = leak( y ) * survival( y )
+					double above = (y == 0) ? (double)1 : leaks[y-1] * survival[ui][y];
+					double next  = (y == gx) ? (double)0 : leaks[y] * survival[ui][y+1];
+					values[k] = above - next;
+				}else{
+					int yp = current[pp];
+					if(      y <  yp ) values[k] = survival[ui][y] - survival[ui][y+1];
+					else if( y == yp ) values[k] = survival[ui][y];
+					else               values[k] = (double)0;
+				}
+				if( k+1 < values.length ) table.next( current );
+			}
+			if( i < n-1 ) links.add( table );
+			else last = table;
+			previous = yvar;
+		}
+		return last;
+	}
+
 	/** @since 061404 */
 	public il2.model.Table[] convertTables( edu.ucla.belief.BeliefNetwork bn, edu.ucla.belief.QuantitativeDependencyHandler handler )
 	{
@@ -0,0 +1,99 @@
+package il2.inf;
+
+import il2.util.*;
+import il2.model.*;
+
+/** How far the answers of one {@link JointEngine} stray from those of a
+    reference engine over the same network: posterior marginals and the
+    probability of evidence, case by case, plus the memory each needs.
+
+    @since 20261018 */
+public class AccuracyReport{
+    private int cases;
+    private int marginals;
+    private double maxMarginalError;
+    private double totalMarginalError;
+    private double maxPrEvidenceError;
+    private double maxLogPrEvidenceError;
+    private double referenceMemory;
+    private double candidateMemory;
+
+    private AccuracyReport(){}
+
+    /** Assert each case on both engines and compare Pr(e), log Pr(e) and
+	the posterior marginals of <b>vars</b>.  The last case remains in
+	effect on both engines afterwards. */
+    public static AccuracyReport compare(JointEngine reference,JointEngine candidate,IntMap[] cases,IntSet vars){
+	AccuracyReport report=new AccuracyReport();
+	for(int c=0;c<cases.length;c++){
+	    reference.setEvidence(cases[c]);
+	    candidate.setEvidence(cases[c]);
+	    report.add(reference,candidate,vars);
+	}
+	report.referenceMemory=reference.getMemoryRequirements();
+	report.candidateMemory=candidate.getMemoryRequirements();
+	return report;
+    }
+
+    private void add(JointEngine reference,JointEngine candidate,IntSet vars){
+	cases++;
+	double pe=reference.prEvidence();
+	if(pe!=0){
+	    maxPrEvidenceError=Math.max(maxPrEvidenceError,Math.abs(candidate.prEvidence()-pe)/pe);
+	}
+	maxLogPrEvidenceError=Math.max(maxLogPrEvidenceError,Math.abs(candidate.logPrEvidence()-reference.logPrEvidence()));
+	if(pe==0){
+	    return;
+	}
+	for(int i=0;i<vars.size();i++){
+	    double[] expected=reference.varConditional(vars.get(i)).values();
+	    double[] actual=candidate.varConditional(vars.get(i)).values();
+	    for(int s=0;s<expected.length;s++){
+		double error=Math.abs(actual[s]-expected[s]);
+		maxMarginalError=Math.max(maxMarginalError,error);
+		totalMarginalError+=error;
+		marginals++;
+	    }
+	}
+    }
+
+    public int cases(){
+	return cases;
+    }
+
+    /** the largest absolute error of any posterior probability */
+    public double maxMarginalError(){
+	return maxMarginalError;
+    }
+
+    /** the mean absolute error of the posterior probabilities */
+    public double meanMarginalError(){
+	return marginals==0 ? 0 : totalMarginalError/marginals;
+    }
+
+    /** the largest relative error of Pr(e) */
+    public double maxPrEvidenceError(){
+	return maxPrEvidenceError;
+    }
+
+    /** the largest absolute error of log Pr(e) */
+    public double maxLogPrEvidenceError(){
+	return maxLogPrEvidenceError;
+    }
+
+    /** {@link JointEngine#getMemoryRequirements()} of the candidate over that of the reference */
+    public double memoryRatio(){
+	return candidateMemory/referenceMemory;
+    }
+
+    public String toString(){
+	StringBuffer buf=new StringBuffer(256);
+	buf.append(cases).append(" cases, ").append(marginals).append(" posterior probabilities\n");
+	buf.append("max |marginal error|   ").append(maxMarginalError).append('\n');
+	buf.append("mean |marginal error|  ").append(meanMarginalError()).append('\n');
+	buf.append("max Pr(e) rel. error   ").append(maxPrEvidenceError).append('\n');
+	buf.append("max log Pr(e) error    ").append(maxLogPrEvidenceError).append('\n');
+	buf.append("memory (MB)            ").append(candidateMemory).append(" vs ").append(referenceMemory).append('\n');
+	return buf.toString();
+    }
+}
@@ -0,0 +1,51 @@
+package il2.inf;
+
+import il2.util.*;
+import il2.model.*;
+
+/** Answers to a {@link JointEngine#batchQuery(IntMap[],IntSet) batch} of
+    evidence cases: the probability of each case's evidence and, for each
+    case, the posterior marginal of every requested variable.
+
+    @since 20261018 */
+public class BatchResult{
+    private final double[] prEvidence;
+    private final IntSet vars;
+    private final Table[][] marginals;
+
+    public BatchResult(double[] prEvidence,IntSet vars,Table[][] marginals){
+	this.prEvidence=prEvidence;
+	this.vars=vars;
+	this.marginals=marginals;
+    }
+
+    public int size(){
+	return prEvidence.length;
+    }
+
+    /** the requested variables, in the order of {@link #marginals(int)} */
+    public IntSet vars(){
+	return vars;
+    }
+
+    public double prEvidence(int c){
+	return prEvidence[c];
+    }
+
+    public double[] prEvidence(){
+	return prEvidence;
+    }
+
+    /** the posterior marginals of case <b>c</b>, one per requested variable */
+    public Table[] marginals(int c){
+	return marginals[c];
+    }
+
+    public Table marginal(int c,int var){
+	int ind=vars.indexOf(var);
+	if(ind<0){
+	    throw new IllegalArgumentException(var+" not requested");
+	}
+	return marginals[c][ind];
+    }
+}
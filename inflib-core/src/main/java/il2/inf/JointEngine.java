@@ -22,4 +22,22 @@ public interface JointEngine{
     public double getPropagationTime();
     public double getMemoryRequirements();
 
+    /** Pr(e) and the posterior marginals of <b>vars</b> for each of
+	several evidence cases.  This default asserts each case in turn
+	with setEvidence(), so the last case remains in effect afterwards;
+	engines that can propagate many cases at once override it.
+	@since 20261018 */
+    default public BatchResult batchQuery(IntMap[] cases,IntSet vars){
+	double[] pe=new double[cases.length];
+	Table[][] marginals=new Table[cases.length][vars.size()];
+	for(int c=0;c<cases.length;c++){
+	    setEvidence(cases[c]);
+	    pe[c]=prEvidence();
+	    for(int i=0;i<vars.size();i++){
+		marginals[c][i]=varConditional(vars.get(i));
+	    }
+	}
+	return new BatchResult(pe,vars,marginals);
+    }
+
 }
@@ -0,0 +1,295 @@
+package il2.inf.circuit;
+
+import il2.util.*;
+import il2.model.*;
+import il2.inf.*;
+import il2.inf.jointree.JoinTreeAlgorithm;
+import il2.inf.structure.*;
+
+import java.util.*;
+
+/** Answers queries by evaluating and differentiating a {@link
+    FlatCircuit}.  One upward pass gives Pr(e); one downward pass then
+    gives the partial derivative of Pr(e) with respect to every parameter
+    and every indicator, hence all the family and variable marginals.
+
+    <p>{@link #batchQuery(IntMap[],IntSet)}, {@link
+    #batchPrEvidence(IntMap[])} and {@link #batchTablePartial(IntMap[],int)}
+    run {@link #getBatchWidth()} cases through each pass and leave the
+    evidence asserted with setEvidence() alone.
+
+    @since 20261018 */
+public class CircuitEngine implements PartialDerivativeEngine{
+    public static final int INT_BATCH_WIDTH_DEFAULT=16;
+
+    public static CircuitEngine create(BayesianNetwork bn){
+	Collection subdomains=Arrays.asList(bn.cpts());
+	IntList order=EliminationOrders.minFill(subdomains,1,(Random)null).order;
+	return create(bn.cpts(),EliminationOrders.traditionalJoinTree(subdomains,order,(il2.bridge.Converter)null,bn));
+    }
+
+    public static CircuitEngine create(Table[] tables,EliminationOrders.JT jt){
+	long start=System.currentTimeMillis();
+	CircuitEngine result=new CircuitEngine(FlatCircuit.compile(jt,tables),tables);
+	result.compilationTime=(System.currentTimeMillis()-start)/1000.0;
+	return result;
+    }
+
+    private final FlatCircuit circuit;
+    private final Table[] tables;
+    private IntMap evidence=new IntMap();
+    private final double[] values;
+    private double[] derivatives;
+    private double[] scratch;
+    private boolean evaluated=false;
+    private boolean differentiated=false;
+
+    private int batchWidth=INT_BATCH_WIDTH_DEFAULT;
+    private double[] batchValues;
+    private double[] batchDerivatives;
+    private double[] batchScratch;
+    private boolean batchTablesValid=false;
+
+    private double compilationTime=Double.NaN;
+    private double propagationTime=Double.NaN;
+
+    public CircuitEngine(FlatCircuit circuit,Table[] tables){
+	this.circuit=circuit;
+	this.tables=(Table[])tables.clone();
+	values=new double[circuit.numNodes()];
+	for(int t=0;t<tables.length;t++){
+	    circuit.loadTable(values,1,t,tables[t]);
+	}
+	circuit.loadEvidence(values,1,0,evidence);
+    }
+
+    public FlatCircuit getCircuit(){
+	return circuit;
+    }
+
+    public int getBatchWidth(){
+	return batchWidth;
+    }
+
+    public void setBatchWidth(int width){
+	if(width<1){
+	    throw new IllegalArgumentException("batch width "+width);
+	}
+	if(width!=batchWidth){
+	    batchWidth=width;
+	    batchValues=null;
+	    batchDerivatives=null;
+	    batchScratch=null;
+	}
+    }
+
+    public void setEvidence(IntMap e){
+	evidence=new IntMap(e);
+	circuit.loadEvidence(values,1,0,evidence);
+	evaluated=differentiated=false;
+    }
+
+    public void setTable(int t,Table table){
+	circuit.loadTable(values,1,t,table);
+	tables[t]=table;
+	batchTablesValid=false;
+	evaluated=differentiated=false;
+    }
+
+    public double prEvidence(){
+	evaluate();
+	return values[circuit.root()];
+    }
+
+    public double logPrEvidence(){
+	return Math.log(prEvidence());
+    }
+
+    public Table tableJoint(int table){
+	differentiate();
+	return familyJoint(table,derivatives,1,0);
+    }
+
+    public Table tableConditional(int table){
+	Table t=tableJoint(table);
+	t.normalizeInPlace();
+	return t;
+    }
+
+    public Table tablePartial(int table){
+	differentiate();
+	Table result=Table.createCompatible(tables[table]);
+	double[] vals=result.values();
+	for(int i=0;i<vals.length;i++){
+	    vals[i]=derivatives[circuit.parameterLeaf(table,i)];
+	}
+	return result;
+    }
+
+    public Table varJoint(int var){
+	differentiate();
+	return varJoint(var,values,derivatives,1,0);
+    }
+
+    public Table varConditional(int var){
+	Table t=varJoint(var);
+	t.normalizeInPlace();
+	return t;
+    }
+
+    public Table varPartial(int var){
+	differentiate();
+	Table result=new Table(circuit.domain(),IntSet.singleton(var));
+	double[] vals=result.values();
+	for(int i=0;i<vals.length;i++){
+	    vals[i]=derivatives[circuit.indicatorLeaf(var,i)];
+	}
+	return result;
+    }
+
+    /** Pr(e) of each case, from upward passes only. */
+    public double[] batchPrEvidence(IntMap[] cases){
+	double[] pe=new double[cases.length];
+	for(int first=0;first<cases.length;first+=batchWidth){
+	    int n=loadBatch(cases,first);
+	    circuit.evaluate(batchValues,batchWidth);
+	    for(int c=0;c<n;c++){
+		pe[first+c]=batchValues[circuit.root()*batchWidth+c];
+	    }
+	}
+	return pe;
+    }
+
+    public BatchResult batchQuery(IntMap[] cases,IntSet vars){
+	double[] pe=new double[cases.length];
+	Table[][] marginals=new Table[cases.length][vars.size()];
+	for(int first=0;first<cases.length;first+=batchWidth){
+	    int n=loadBatch(cases,first);
+	    differentiateBatch();
+	    for(int c=0;c<n;c++){
+		pe[first+c]=batchValues[circuit.root()*batchWidth+c];
+		for(int i=0;i<vars.size();i++){
+		    Table t=varJoint(vars.get(i),batchValues,batchDerivatives,batchWidth,c);
+		    t.normalizeInPlace();
+		    marginals[first+c][i]=t;
+		}
+	    }
+	}
+	return new BatchResult(pe,vars,marginals);
+    }
+
+    /** The partial derivatives of Pr(e) with respect to the entries of
+	<b>table</b>, for each case: the input of sensitivity analysis. */
+    public Table[] batchTablePartial(IntMap[] cases,int table){
+	Table[] result=new Table[cases.length];
+	for(int first=0;first<cases.length;first+=batchWidth){
+	    int n=loadBatch(cases,first);
+	    differentiateBatch();
+	    for(int c=0;c<n;c++){
+		Table t=Table.createCompatible(tables[table]);
+		double[] vals=t.values();
+		for(int i=0;i<vals.length;i++){
+		    vals[i]=batchDerivatives[circuit.parameterLeaf(table,i)*batchWidth+c];
+		}
+		result[first+c]=t;
+	    }
+	}
+	return result;
+    }
+
+    /** Load the cases from <b>first</b> into the batch, repeating the last
+	one in unused slots.  @return the number of cases loaded */
+    private int loadBatch(IntMap[] cases,int first){
+	if(batchValues==null){
+	    batchValues=new double[circuit.numNodes()*batchWidth];
+	    batchTablesValid=false;
+	}
+	if(!batchTablesValid){
+	    for(int t=0;t<tables.length;t++){
+		circuit.loadTable(batchValues,batchWidth,t,tables[t]);
+	    }
+	    batchTablesValid=true;
+	}
+	int n=Math.min(batchWidth,cases.length-first);
+	for(int c=0;c<batchWidth;c++){
+	    circuit.loadEvidence(batchValues,batchWidth,c,cases[first+Math.min(c,n-1)]);
+	}
+	return n;
+    }
+
+    private void differentiateBatch(){
+	if(batchDerivatives==null){
+	    batchDerivatives=new double[batchValues.length];
+	    batchScratch=new double[circuit.scratchSize(batchWidth)];
+	}
+	circuit.evaluate(batchValues,batchWidth);
+	circuit.differentiate(batchValues,batchDerivatives,batchWidth,batchScratch);
+    }
+
+    private void evaluate(){
+	if(!evaluated){
+	    long start=System.currentTimeMillis();
+	    circuit.evaluate(values,1);
+	    propagationTime=(System.currentTimeMillis()-start)/1000.0;
+	    evaluated=true;
+	}
+    }
+
+    private void differentiate(){
+	if(!differentiated){
+	    evaluate();
+	    if(derivatives==null){
+		derivatives=new double[values.length];
+		scratch=new double[circuit.scratchSize(1)];
+	    }
+	    long start=System.currentTimeMillis();
+	    circuit.differentiate(values,derivatives,1,scratch);
+	    propagationTime+=(System.currentTimeMillis()-start)/1000.0;
+	    differentiated=true;
+	}
+    }
+
+    /** theta times the derivative with respect to theta, for each entry */
+    private Table familyJoint(int table,double[] derivs,int width,int lane){
+	Table result=Table.createCompatible(tables[table]);
+	double[] vals=result.values();
+	double[] theta=tables[table].values();
+	for(int i=0;i<vals.length;i++){
+	    vals[i]=theta[i]*derivs[circuit.parameterLeaf(table,i)*width+lane];
+	}
+	return result;
+    }
+
+    /** lambda times the derivative with respect to lambda, for each state */
+    private Table varJoint(int var,double[] vals,double[] derivs,int width,int lane){
+	Table result=new Table(circuit.domain(),IntSet.singleton(var));
+	double[] rv=result.values();
+	for(int i=0;i<rv.length;i++){
+	    int node=circuit.indicatorLeaf(var,i)*width+lane;
+	    rv[i]=vals[node]*derivs[node];
+	}
+	return result;
+    }
+
+    public JoinTreeStats.Stat getClusterStats(){
+	return JoinTreeAlgorithm.getStats(circuit.clusters(),circuit.domain());
+    }
+
+    public JoinTreeStats.Stat getSeparatorStats(){
+	return JoinTreeAlgorithm.getStats(circuit.separators(),circuit.domain());
+    }
+
+    public double getCompilationTime(){
+	return compilationTime;
+    }
+
+    public double getPropagationTime(){
+	return propagationTime;
+    }
+
+    /** the circuit's arrays and the values and derivatives of one case, in MB */
+    public double getMemoryRequirements(){
+	double bytes=4.0*(circuit.numEdges()+circuit.numNodes())+16.0*circuit.numNodes();
+	return bytes/1024/1024;
+    }
+}
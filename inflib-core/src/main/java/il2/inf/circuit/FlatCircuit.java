@@ -0,0 +1,422 @@
+package il2.inf.circuit;
+
+import il2.util.*;
+import il2.model.*;
+import il2.inf.structure.EliminationOrders;
+
+import java.util.*;
+
+/** The arithmetic circuit a jointree encodes, stored as flat arrays.
+
+    <p>Node ids are a topological order.  The leaves come first: one
+    parameter leaf per entry of each table, then one indicator leaf per
+    state of each variable.  Each internal node is a sum or a product of
+    its children, which are listed in <b>children</b> from
+    childStart[k] to childStart[k+1] for internal node firstInternal+k.
+    There is a product for every instantiation of every cluster, over the
+    entries of the tables assigned to the cluster, the indicators of the
+    variables assigned to it and the messages of its child clusters; a
+    message is a sum for every instantiation of a separator, over the
+    consistent products below it.  Products and sums of a single child
+    are left out.
+
+    <p>The circuit holds no values.  {@link #evaluate(double[],int)} and
+    {@link #differentiate(double[],double[],int,double[])} run over a
+    value array laid out node by node, with <b>width</b> consecutive
+    slots per node, one per evidence case, so one pass serves
+    <b>width</b> cases.
+
+    @since 20261018 */
+public class FlatCircuit{
+    private final Domain domain;
+    private final IntSet[] clusters;
+    private final IntSet[] separators;
+    private final int[] tableOffset;//first parameter leaf of each table
+    private final int[] indicatorOffset;//first indicator leaf of each variable
+    private final int firstInternal;
+    private final boolean[] isProduct;//by internal node
+    private final int[] childStart;
+    private final int[] children;
+    private final int root;
+    private final int maxDegree;
+
+    private FlatCircuit(Domain domain,IntSet[] clusters,IntSet[] separators,int[] tableOffset,int[] indicatorOffset,Builder b,int root){
+	this.domain=domain;
+	this.clusters=clusters;
+	this.separators=separators;
+	this.tableOffset=tableOffset;
+	this.indicatorOffset=indicatorOffset;
+	this.firstInternal=indicatorOffset[domain.size()];
+	this.isProduct=Arrays.copyOf(b.isProduct,b.nodes);
+	this.childStart=Arrays.copyOf(b.childStart,b.nodes+1);
+	this.children=Arrays.copyOf(b.children,b.edges);
+	this.root=root;
+	int max=0;
+	for(int k=0;k<b.nodes;k++){
+	    max=Math.max(max,childStart[k+1]-childStart[k]);
+	}
+	this.maxDegree=max;
+    }
+
+    /** Lower <b>jt</b> into a circuit.  Each table is assigned to the
+	smallest cluster that contains its variables, and each indicator
+	to the smallest cluster that contains its variable. */
+    public static FlatCircuit compile(EliminationOrders.JT jt,Table[] tables){
+	Domain domain=tables[0].domain();
+	Graph.Compressed c=jt.tree.compress();
+	Graph tree=c.graph;
+	int n=tree.size();
+	IntSet[] clusters=new IntSet[n];
+	for(int i=0;i<n;i++){
+	    clusters[i]=(IntSet)jt.clusters.get(Integer.valueOf(c.mapping[i]));
+	    if(domain.size(clusters[i])>Integer.MAX_VALUE){
+		throw new IllegalArgumentException("cluster "+i+" has more than Integer.MAX_VALUE instantiations");
+	    }
+	}
+
+	int[] tableOffset=new int[tables.length+1];
+	for(int t=0;t<tables.length;t++){
+	    tableOffset[t+1]=tableOffset[t]+tables[t].sizeInt();
+	}
+	int[] indicatorOffset=new int[domain.size()+1];
+	indicatorOffset[0]=tableOffset[tables.length];
+	for(int v=0;v<domain.size();v++){
+	    indicatorOffset[v+1]=indicatorOffset[v]+domain.size(v);
+	}
+
+	IntList[] containing=new IntList[domain.size()];
+	for(int v=0;v<domain.size();v++){
+	    containing[v]=new IntList();
+	}
+	for(int i=0;i<n;i++){
+	    for(int j=0;j<clusters[i].size();j++){
+		containing[clusters[i].get(j)].add(i);
+	    }
+	}
+	IntList[] assignedTables=new IntList[n];
+	IntList[] assignedVars=new IntList[n];
+	for(int i=0;i<n;i++){
+	    assignedTables[i]=new IntList();
+	    assignedVars[i]=new IntList();
+	}
+	for(int t=0;t<tables.length;t++){
+	    int k=smallestContaining(domain,clusters,containing,tables[t].vars());
+	    if(k<0){
+		throw new IllegalStateException("no cluster contains table "+t);
+	    }
+	    assignedTables[k].add(t);
+	}
+	for(int v=0;v<domain.size();v++){
+	    int k=smallestContaining(domain,clusters,containing,IntSet.singleton(v));
+	    if(k>=0){
+		assignedVars[k].add(v);
+	    }
+	}
+
+	//root every component of the forest, parents before children
+	int[] parent=new int[n];
+	Arrays.fill(parent,-2);
+	int[] order=new int[n];
+	int size=0;
+	IntList roots=new IntList();
+	for(int r=0;r<n;r++){
+	    if(parent[r]!=-2){
+		continue;
+	    }
+	    parent[r]=-1;
+	    roots.add(r);
+	    order[size++]=r;
+	    for(int head=size-1;head<size;head++){
+		IntSet nb=tree.neighbors(order[head]);
+		for(int j=0;j<nb.size();j++){
+		    int m=nb.get(j);
+		    if(parent[m]==-2){
+			parent[m]=order[head];
+			order[size++]=m;
+		    }
+		}
+	    }
+	}
+	IntList[] childClusters=new IntList[n];
+	for(int i=0;i<n;i++){
+	    childClusters[i]=new IntList();
+	}
+	for(int i=0;i<n;i++){
+	    if(parent[i]>=0){
+		childClusters[parent[i]].add(i);
+	    }
+	}
+
+	Builder b=new Builder(indicatorOffset[domain.size()]);
+	IntSet[] separators=new IntSet[n-roots.size()];
+	int numSeparators=0;
+	Index[] sepIndex=new Index[n];
+	int[][] messages=new int[n][];
+	IntList rootSums=new IntList();
+	for(int o=n-1;o>=0;o--){
+	    int k=order[o];
+	    Index ci=new Index(domain,clusters[k]);
+	    int entries=ci.sizeInt();
+	    IntList ch=childClusters[k];
+	    int numFactors=assignedTables[k].size()+assignedVars[k].size()+ch.size();
+	    int[][] maps=new int[numFactors][];
+	    int[] bases=new int[numFactors];
+	    int[][] ids=new int[numFactors][];
+	    int f=0;
+	    for(int j=0;j<assignedTables[k].size();j++,f++){
+		int t=assignedTables[k].get(j);
+		maps[f]=entryMap(ci,tables[t]);
+		bases[f]=tableOffset[t];
+	    }
+	    for(int j=0;j<assignedVars[k].size();j++,f++){
+		int v=assignedVars[k].get(j);
+		maps[f]=entryMap(ci,new Index(domain,v));
+		bases[f]=indicatorOffset[v];
+	    }
+	    for(int j=0;j<ch.size();j++,f++){
+		maps[f]=entryMap(ci,sepIndex[ch.get(j)]);
+		ids[f]=messages[ch.get(j)];
+	    }
+
+	    int[] terms=new int[entries];
+	    int[] factors=new int[numFactors];
+	    for(int i=0;i<entries;i++){
+		for(f=0;f<numFactors;f++){
+		    factors[f]=ids[f]==null ? bases[f]+maps[f][i] : ids[f][maps[f][i]];
+		}
+		terms[i]=numFactors==1 ? factors[0] : b.add(true,factors,numFactors);
+	    }
+
+	    if(parent[k]<0){
+		rootSums.add(entries==1 ? terms[0] : b.add(false,terms,entries));
+		continue;
+	    }
+	    IntSet sep=clusters[k].intersection(clusters[parent[k]]);
+	    separators[numSeparators++]=sep;
+	    sepIndex[k]=new Index(domain,sep);
+	    int[] map=entryMap(ci,sepIndex[k]);
+	    int sepEntries=sepIndex[k].sizeInt();
+	    int[] start=new int[sepEntries+1];
+	    for(int i=0;i<entries;i++){
+		start[map[i]+1]++;
+	    }
+	    for(int s=0;s<sepEntries;s++){
+		start[s+1]+=start[s];
+	    }
+	    int[] bucket=new int[entries];
+	    int[] fill=Arrays.copyOf(start,sepEntries);
+	    for(int i=0;i<entries;i++){
+		bucket[fill[map[i]]++]=terms[i];
+	    }
+	    int[] message=new int[sepEntries];
+	    for(int s=0;s<sepEntries;s++){
+		int count=start[s+1]-start[s];
+		message[s]=count==1 ? bucket[start[s]] : b.add(false,Arrays.copyOfRange(bucket,start[s],start[s+1]),count);
+	    }
+	    messages[k]=message;
+	    for(int j=0;j<ch.size();j++){
+		messages[ch.get(j)]=null;
+	    }
+	}
+	int root=rootSums.size()==1 ? rootSums.get(0) : b.add(true,rootSums.toArray(),rootSums.size());
+	return new FlatCircuit(domain,clusters,separators,tableOffset,indicatorOffset,b,root);
+    }
+
+    private static int smallestContaining(Domain domain,IntSet[] clusters,IntList[] containing,IntSet vars){
+	int best=-1;
+	double bestSize=Double.POSITIVE_INFINITY;
+	int num=vars.size()==0 ? clusters.length : containing[vars.get(0)].size();
+	for(int j=0;j<num;j++){
+	    int i=vars.size()==0 ? j : containing[vars.get(0)].get(j);
+	    if(clusters[i].containsAll(vars)){
+		double s=domain.size(clusters[i]);
+		if(s<bestSize){
+		    best=i;
+		    bestSize=s;
+		}
+	    }
+	}
+	return best;
+    }
+
+    /** For each entry of <b>big</b>, the entry of <b>sub</b>, over a
+	subset of its variables, that it agrees with. */
+    private static int[] entryMap(Index big,Index sub){
+	int[] map=new int[big.sizeInt()];
+	int[] fc=sub.flipChange(big);
+	int[] current=new int[big.vars().size()];
+	int ind=0;
+	int bound=map.length-1;
+	for(int i=0;i<bound;i++){
+	    map[i]=ind;
+	    ind+=fc[big.next(current)];
+	}
+	map[bound]=ind;
+	return map;
+    }
+
+    /** the internal nodes, appended in topological order */
+    private static class Builder{
+	int base;
+	int nodes=0;
+	int edges=0;
+	boolean[] isProduct=new boolean[1024];
+	int[] childStart=new int[1025];
+	int[] children=new int[4096];
+
+	Builder(int base){
+	    this.base=base;
+	}
+
+	int add(boolean product,int[] kids,int count){
+	    if(nodes+1==isProduct.length){
+		isProduct=Arrays.copyOf(isProduct,2*isProduct.length);
+		childStart=Arrays.copyOf(childStart,2*childStart.length);
+	    }
+	    while(edges+count>children.length){
+		children=Arrays.copyOf(children,2*children.length);
+	    }
+	    System.arraycopy(kids,0,children,edges,count);
+	    edges+=count;
+	    isProduct[nodes]=product;
+	    childStart[++nodes]=edges;
+	    return base+nodes-1;
+	}
+    }
+
+    public Domain domain(){
+	return domain;
+    }
+
+    public int numNodes(){
+	return firstInternal+isProduct.length;
+    }
+
+    public int numEdges(){
+	return children.length;
+    }
+
+    public int numLeaves(){
+	return firstInternal;
+    }
+
+    public int root(){
+	return root;
+    }
+
+    public int parameterLeaf(int table,int entry){
+	return tableOffset[table]+entry;
+    }
+
+    public int indicatorLeaf(int var,int state){
+	return indicatorOffset[var]+state;
+    }
+
+    /** the scratch differentiate() needs for a given width */
+    public int scratchSize(int width){
+	return (maxDegree+1)*width;
+    }
+
+    public IntSet[] clusters(){
+	return clusters;
+    }
+
+    public IntSet[] separators(){
+	return separators;
+    }
+
+    /** Write the entries of table <b>t</b> into every case of <b>values</b>. */
+    public void loadTable(double[] values,int width,int t,Table table){
+	double[] vals=table.values();
+	int node=tableOffset[t];
+	if(vals.length!=tableOffset[t+1]-node){
+	    throw new IllegalArgumentException("table "+t+" has "+vals.length+" entries, not "+(tableOffset[t+1]-node));
+	}
+	for(int i=0;i<vals.length;i++,node++){
+	    Arrays.fill(values,node*width,(node+1)*width,vals[i]);
+	}
+    }
+
+    /** Set the indicators of case <b>lane</b> of <b>values</b> to <b>evidence</b>. */
+    public void loadEvidence(double[] values,int width,int lane,IntMap evidence){
+	for(int v=0;v<domain.size();v++){
+	    int observed=evidence.get(v,-1);
+	    for(int node=indicatorOffset[v];node<indicatorOffset[v+1];node++){
+		values[node*width+lane]=observed<0 || node-indicatorOffset[v]==observed ? 1 : 0;
+	    }
+	}
+    }
+
+    /** Compute the internal nodes of every case from the leaves. */
+    public void evaluate(double[] values,int width){
+	for(int k=0;k<isProduct.length;k++){
+	    int out=(firstInternal+k)*width;
+	    int s=childStart[k];
+	    int e=childStart[k+1];
+	    if(s==e){
+		Arrays.fill(values,out,out+width,isProduct[k] ? 1 : 0);
+		continue;
+	    }
+	    System.arraycopy(values,children[s]*width,values,out,width);
+	    if(isProduct[k]){
+		for(int j=s+1;j<e;j++){
+		    int in=children[j]*width;
+		    for(int c=0;c<width;c++){
+			values[out+c]*=values[in+c];
+		    }
+		}
+	    }else{
+		for(int j=s+1;j<e;j++){
+		    int in=children[j]*width;
+		    for(int c=0;c<width;c++){
+			values[out+c]+=values[in+c];
+		    }
+		}
+	    }
+	}
+    }
+
+    /** Set <b>derivatives</b> to the partial derivative of the root with
+	respect to every node, for every case of <b>values</b>, which
+	evaluate() must have computed.  Products take the derivative of a
+	child as the product of its siblings, from prefix and suffix
+	products, so zeros need no special case.
+	@param scratch at least scratchSize(width) long */
+    public void differentiate(double[] values,double[] derivatives,int width,double[] scratch){
+	Arrays.fill(derivatives,0,numNodes()*width,0);
+	Arrays.fill(derivatives,root*width,(root+1)*width,1);
+	int suffix=maxDegree*width;
+	for(int k=isProduct.length-1;k>=0;k--){
+	    int out=(firstInternal+k)*width;
+	    int s=childStart[k];
+	    int e=childStart[k+1];
+	    if(!isProduct[k] || e-s==1){
+		for(int j=s;j<e;j++){
+		    int in=children[j]*width;
+		    for(int c=0;c<width;c++){
+			derivatives[in+c]+=derivatives[out+c];
+		    }
+		}
+		continue;
+	    }
+	    //scratch row j-s: the derivative of this node times the children before j
+	    System.arraycopy(derivatives,out,scratch,0,width);
+	    for(int j=s+1;j<e;j++){
+		int row=(j-s)*width;
+		int in=children[j-1]*width;
+		for(int c=0;c<width;c++){
+		    scratch[row+c]=scratch[row-width+c]*values[in+c];
+		}
+	    }
+	    Arrays.fill(scratch,suffix,suffix+width,1);
+	    for(int j=e-1;j>=s;j--){
+		int row=(j-s)*width;
+		int in=children[j]*width;
+		for(int c=0;c<width;c++){
+		    derivatives[in+c]+=scratch[row+c]*scratch[suffix+c];
+		    scratch[suffix+c]*=values[in+c];
+		}
+	    }
+	}
+    }
+}
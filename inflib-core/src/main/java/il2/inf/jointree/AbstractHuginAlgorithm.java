@@ -18,7 +18,7 @@ public abstract class AbstractHuginAlgorithm extends JoinTreeAlgorithm{
     private void allocateClusters(){
 	clusterTables=new Table[clusters.length];
 	for(int i=0;i<clusterTables.length;i++){
-	    clusterTables[i]=new Table(domain,clusters[i]);
+	    clusterTables[i]=OffHeapTable.create(domain,clusters[i]);
 	}
     }
     private void allocateSeparators(){
@@ -29,9 +29,7 @@ public abstract class AbstractHuginAlgorithm extends JoinTreeAlgorithm{
     }
 
     protected void initialize(){
-	for(int i=0;i<clusterTables.length;i++){
-	    initializeCluster(i);
-	}
+	initializeClusters();
     }
 
     protected double computePrE(){
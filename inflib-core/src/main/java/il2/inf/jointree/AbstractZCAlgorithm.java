@@ -22,7 +22,7 @@ public abstract class AbstractZCAlgorithm extends JoinTreeAlgorithm implements P
 	clusterTables=new Table[clusters.length];
 	clusterZeroFree=new boolean[clusters.length][];
 	for(int i=0;i<clusterTables.length;i++){
-	    clusterTables[i]=new Table(domain,clusters[i]);
+	    clusterTables[i]=new SparseTable(domain,clusters[i]);
 	    clusterZeroFree[i]=new boolean[clusterTables[i].sizeInt()];
 	}
     }
@@ -34,9 +34,7 @@ public abstract class AbstractZCAlgorithm extends JoinTreeAlgorithm implements P
     }
 
     protected void initialize(){
-	for(int i=0;i<clusterTables.length;i++){
-	    initializeCluster(i);
-	}
+	initializeClusters();
     }
 
     protected double computePrE(){
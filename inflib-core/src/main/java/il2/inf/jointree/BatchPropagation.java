@@ -0,0 +1,246 @@
+package il2.inf.jointree;
+
+import il2.util.*;
+import il2.model.*;
+import il2.inf.BatchResult;
+
+/** Hugin propagation of several evidence cases at once over the
+    structure of a {@link JoinTreeAlgorithm}.
+
+    Every cluster and separator table gets a batch dimension, stored
+    innermost: entry i of case b lives at values[i*width+b].  The index
+    arithmetic (next()/flipChange()) is then done once per entry for the
+    whole batch, and the per-case work is a contiguous inner loop.
+    Per case, the arithmetic is exactly that of
+    {@link UnindexedHuginAlgorithm}.
+
+    @since 20261018 */
+class BatchPropagation{
+    private final JoinTreeAlgorithm jt;
+    private final int width;
+
+    private final Index[] clusterIndices;
+    private final double[][] clusterValues;
+    private final double[][] separatorValues;
+    private final double[] scratch;
+    private final int[][] fromS1;//flip changes of each separator over cluster s1
+    private final int[][] fromS2;//flip changes of each separator over cluster s2
+    private final int[][][] assignedFlips;
+
+    BatchPropagation(JoinTreeAlgorithm jt,int width){
+	this.jt=jt;
+	this.width=width;
+	Domain domain=jt.domain;
+	int n=jt.clusters.length;
+	clusterIndices=new Index[n];
+	clusterValues=new double[n][];
+	assignedFlips=new int[n][][];
+	for(int c=0;c<n;c++){
+	    clusterIndices[c]=new Index(domain,jt.clusters[c]);
+	    clusterValues[c]=new double[clusterIndices[c].sizeInt()*width];
+	    Table[] assigned=jt.assignedTables[c];
+	    assignedFlips[c]=new int[assigned.length][];
+	    for(int i=0;i<assigned.length;i++){
+		assignedFlips[c][i]=assigned[i].flipChange(clusterIndices[c]);
+	    }
+	}
+	Pair[] order=jt.messageOrder;
+	separatorValues=new double[order.length][];
+	fromS1=new int[order.length][];
+	fromS2=new int[order.length][];
+	int largest=0;
+	for(int i=0;i<order.length;i++){
+	    Index sep=new Index(domain,(IntSet)jt.separators.get(new UPair(order[i])));
+	    separatorValues[i]=new double[sep.sizeInt()*width];
+	    largest=Math.max(largest,separatorValues[i].length);
+	    fromS1[i]=sep.flipChange(clusterIndices[order[i].s1]);
+	    fromS2[i]=sep.flipChange(clusterIndices[order[i].s2]);
+	}
+	scratch=new double[largest];
+    }
+
+    /** Cases [offset,offset+count) of <b>cases</b>, count no more than the width. */
+    void propagate(IntMap[] cases,int offset,int count){
+	for(int c=0;c<clusterValues.length;c++){
+	    initializeCluster(c,cases,offset,count);
+	}
+	Pair[] order=jt.messageOrder;
+	for(int i=0;i<order.length;i++){
+	    project(clusterIndices[order[i].s1],clusterValues[order[i].s1],separatorValues[i],fromS1[i]);
+	    multiply(clusterIndices[order[i].s2],clusterValues[order[i].s2],separatorValues[i],fromS2[i]);
+	}
+	for(int i=order.length-1;i>=0;i--){
+	    double[] sv=separatorValues[i];
+	    System.arraycopy(sv,0,scratch,0,sv.length);
+	    project(clusterIndices[order[i].s2],clusterValues[order[i].s2],sv,fromS2[i]);
+	    for(int j=0;j<sv.length;j++){
+		if(scratch[j]==0){
+		    sv[j]=0;
+		}else{
+		    sv[j]/=scratch[j];
+		}
+	    }
+	    multiply(clusterIndices[order[i].s1],clusterValues[order[i].s1],sv,fromS1[i]);
+	}
+    }
+
+    private void initializeCluster(int c,IntMap[] cases,int offset,int count){
+	double[] vals=clusterValues[c];
+	java.util.Arrays.fill(vals,1.0);
+	Index index=clusterIndices[c];
+	Table[] assigned=jt.assignedTables[c];
+	for(int t=0;t<assigned.length;t++){
+	    broadcastMultiply(index,vals,assigned[t].values(),assignedFlips[c][t]);
+	}
+	IntSet evars=jt.assignedEvidence[c];
+	int[] observed=new int[width];
+	for(int i=0;i<evars.size();i++){
+	    int var=evars.get(i);
+	    boolean any=false;
+	    for(int b=0;b<width;b++){
+		observed[b]=b<count ? cases[offset+b].get(var,-1) : -1;
+		any|=observed[b]>=0;
+	    }
+	    if(any){
+		applyEvidence(index,vals,var,observed);
+	    }
+	}
+    }
+
+    /** multiply every case of the cluster by one shared table */
+    private void broadcastMultiply(Index index,double[] big,double[] small,int[] fc){
+	int[] current=new int[index.vars().size()];
+	int size=index.sizeInt();
+	int ind=0;
+	for(int i=0,base=0;i<size;i++,base+=width){
+	    double v=small[ind];
+	    for(int b=0;b<width;b++){
+		big[base+b]*=v;
+	    }
+	    if(i+1<size){
+		ind+=fc[index.next(current)];
+	    }
+	}
+    }
+
+    /** zero the entries inconsistent with each case's observed value of <b>var</b> */
+    private void applyEvidence(Index index,double[] vals,int var,int[] observed){
+	int pos=index.vars().indexOf(var);
+	int ss=index.stepSizes()[pos];
+	int valc=index.sizes()[pos];
+	int size=index.sizeInt();
+	for(int i=0;i<size;){
+	    for(int s=0;s<valc;s++){
+		int bound=i+ss;
+		for(;i<bound;i++){
+		    int base=i*width;
+		    for(int b=0;b<width;b++){
+			if(observed[b]>=0 && observed[b]!=s){
+			    vals[base+b]=0;
+			}
+		    }
+		}
+	    }
+	}
+    }
+
+    private void project(Index bigIndex,double[] big,double[] small,int[] fc){
+	java.util.Arrays.fill(small,0);
+	int[] current=new int[bigIndex.vars().size()];
+	int size=bigIndex.sizeInt();
+	int ind=0;
+	for(int i=0,base=0;i<size;i++,base+=width){
+	    int dest=ind*width;
+	    for(int b=0;b<width;b++){
+		small[dest+b]+=big[base+b];
+	    }
+	    if(i+1<size){
+		ind+=fc[bigIndex.next(current)];
+	    }
+	}
+    }
+
+    private void multiply(Index bigIndex,double[] big,double[] small,int[] fc){
+	int[] current=new int[bigIndex.vars().size()];
+	int size=bigIndex.sizeInt();
+	int ind=0;
+	for(int i=0,base=0;i<size;i++,base+=width){
+	    int src=ind*width;
+	    for(int b=0;b<width;b++){
+		big[base+b]*=small[src+b];
+	    }
+	    if(i+1<size){
+		ind+=fc[bigIndex.next(current)];
+	    }
+	}
+    }
+
+    /** batched {@link Table#projectOnto(int)}, summing in the same order */
+    private double[] projectOnto(Index index,double[] vals,int var){
+	int pos=index.vars().indexOf(var);
+	int ss=index.stepSizes()[pos];
+	int valc=index.sizes()[pos];
+	int size=index.sizeInt();
+	double[] result=new double[valc*width];
+	double[] total=new double[width];
+	int current=0;
+	for(int i=0;i<size;){
+	    java.util.Arrays.fill(total,0);
+	    for(int j=0;j<ss;j++,i++){
+		int base=i*width;
+		for(int b=0;b<width;b++){
+		    total[b]+=vals[base+b];
+		}
+	    }
+	    int dest=current*width;
+	    for(int b=0;b<width;b++){
+		result[dest+b]+=total[b];
+	    }
+	    current=(current+1)%valc;
+	}
+	return result;
+    }
+
+    /** read Pr(e) and the requested marginals for the batch just propagated */
+    void collect(IntSet vars,int offset,int count,double[] pe,Table[][] marginals){
+	double[] root=clusterValues[jt.smallestCluster];
+	int rootSize=clusterIndices[jt.smallestCluster].sizeInt();
+	for(int b=0;b<count;b++){
+	    double total=0;
+	    for(int i=0;i<rootSize;i++){
+		total+=root[i*width+b];
+	    }
+	    pe[offset+b]=total;
+	}
+	for(int k=0;k<vars.size();k++){
+	    int var=vars.get(k);
+	    int c=jt.containingClusters[var].get(0);
+	    Index varIndex=new Index(jt.domain,var);
+	    double[] batch=projectOnto(clusterIndices[c],clusterValues[c],var);
+	    for(int b=0;b<count;b++){
+		double[] vals=new double[varIndex.sizeInt()];
+		for(int s=0;s<vals.length;s++){
+		    vals[s]=batch[s*width+b];
+		}
+		Table t=new Table(varIndex,vals);
+		t.normalizeInPlace();
+		marginals[offset+b][k]=t;
+	    }
+	}
+    }
+
+    static BatchResult query(JoinTreeAlgorithm jt,IntMap[] cases,IntSet vars,int width){
+	double[] pe=new double[cases.length];
+	Table[][] marginals=new Table[cases.length][vars.size()];
+	if(cases.length==0){
+	    return new BatchResult(pe,vars,marginals);
+	}
+	BatchPropagation bp=new BatchPropagation(jt,Math.min(width,cases.length));
+	for(int offset=0;offset<cases.length;offset+=bp.width){
+	    int count=Math.min(bp.width,cases.length-offset);
+	    bp.propagate(cases,offset,count);
+	    bp.collect(vars,offset,count,pe,marginals);
+	}
+	return new BatchResult(pe,vars,marginals);
+    }
+}
@@ -0,0 +1,171 @@
+package il2.inf.jointree;
+
+import il2.bridge.*;
+import il2.util.*;
+import il2.inf.structure.*;
+import il2.model.*;
+import java.util.Arrays;
+import java.util.Collection;
+
+/** Hugin propagation, as in {@link UnindexedHuginAlgorithm}, over
+    cluster and separator tables of single precision {@link FloatTable
+    FloatTables}, which take half the memory and bandwidth.
+
+    Projections accumulate in double, every message is scaled by a
+    power of two before it is multiplied in, and each table carries its
+    own exponent, so nothing underflows that would not in double
+    precision; answers agree with the double engine to about single
+    precision, relative to the largest entry of each table.  Because of
+    the exponents, {@link #logPrEvidence()} is accurate even where
+    {@link #prEvidence()} underflows.
+
+    @since 20261018 */
+public class FloatHuginAlgorithm extends JoinTreeAlgorithm{
+
+    public static FloatHuginAlgorithm create( Converter c, BayesianNetwork bn2, IntList eliminationOrder ){
+	Table[] tables=bn2.cpts();
+	long start=System.currentTimeMillis();
+	Collection subdomains = Arrays.asList(tables);
+	if( eliminationOrder == null ) eliminationOrder = EliminationOrders.minFill(subdomains,1,(java.util.Random)null).order;
+	EliminationOrders.JT jt=EliminationOrders.traditionalJoinTree( subdomains, eliminationOrder, c, bn2 );
+	FloatHuginAlgorithm result=new FloatHuginAlgorithm(jt,tables);
+	long finish=System.currentTimeMillis();
+	result.compilationTime=(finish-start)/(1000.0);
+	return result;
+    }
+
+    public static FloatHuginAlgorithm create( Converter c, BayesianNetwork bn2 ){
+	return create( c, bn2, (IntList)null );
+    }
+
+    public static FloatHuginAlgorithm create( BayesianNetwork bn, EliminationOrders.JT jt ){
+	return create( bn.cpts(), jt );
+    }
+
+    public static FloatHuginAlgorithm create( Table[] tables, EliminationOrders.JT jt ){
+	long start=System.currentTimeMillis();
+	FloatHuginAlgorithm result=new FloatHuginAlgorithm(jt,tables);
+	long finish=System.currentTimeMillis();
+	result.compilationTime=(finish-start)/(1000.0);
+	return result;
+    }
+
+    FloatTable[] clusterTables;
+    FloatTable[] separatorTables;
+    private int[][] fromS1;//flip changes of each separator over cluster s1
+    private int[][] fromS2;//flip changes of each separator over cluster s2
+    private double[] scratch1;
+    private double[] scratch2;
+
+    protected FloatHuginAlgorithm(EliminationOrders.JT jointree,Table[] tables){
+	super(jointree,tables);
+	clusterTables=new FloatTable[clusters.length];
+	for(int i=0;i<clusterTables.length;i++){
+	    clusterTables[i]=new FloatTable(domain,clusters[i]);
+	}
+	separatorTables=new FloatTable[messageOrder.length];
+	fromS1=new int[messageOrder.length][];
+	fromS2=new int[messageOrder.length][];
+	int largest=0;
+	for(int i=0;i<messageOrder.length;i++){
+	    FloatTable sep=new FloatTable(domain,(IntSet)separators.get(new UPair(messageOrder[i])));
+	    separatorTables[i]=sep;
+	    fromS1[i]=sep.flipChange(clusterTables[messageOrder[i].s1]);
+	    fromS2[i]=sep.flipChange(clusterTables[messageOrder[i].s2]);
+	    largest=Math.max(largest,sep.sizeInt());
+	}
+	scratch1=new double[largest];
+	scratch2=new double[largest];
+    }
+
+    protected void initialize(){
+	initializeClusters();
+    }
+
+    protected void initializeCluster(int c){
+	Table[] tables=assignedTables[c];
+	IntSet assigned=assignedEvidence[c];
+	IntList indicators=new IntList();
+	for(int i=0;i<assigned.size();i++){
+	    if(evidence.get(assigned.get(i),-1)>=0){
+		indicators.add(assigned.get(i));
+	    }
+	}
+	Table[] all=new Table[tables.length+indicators.size()];
+	System.arraycopy(tables,0,all,0,tables.length);
+	for(int i=0;i<indicators.size();i++){
+	    int var=indicators.get(i);
+	    all[tables.length+i]=Table.evidenceTable(domain,var,evidence.get(var));
+	}
+	clusterTables[c].setToProduct(all);
+    }
+
+    protected void sendMessage(int mind,boolean inward){
+	FloatTable sep=separatorTables[mind];
+	int size=sep.sizeInt();
+	double[] message=scratch1;
+	Arrays.fill(message,0,size,0);
+	if(inward){
+	    FloatTable from=clusterTables[messageOrder[mind].s1];
+	    from.projectInto(message,fromS1[mind]);
+	    int exp=from.exponent()+FloatTable.normalize(message,size);
+	    sep.set(message,exp);
+	    float[] stored=sep.values();
+	    for(int i=0;i<size;i++){
+		message[i]=stored[i];
+	    }
+	    clusterTables[messageOrder[mind].s2].multiplyInto(message,exp,fromS2[mind]);
+	}else{
+	    FloatTable from=clusterTables[messageOrder[mind].s2];
+	    from.projectInto(message,fromS2[mind]);
+	    int exp=from.exponent()+FloatTable.normalize(message,size);
+	    double[] ratio=scratch2;
+	    float[] old=sep.values();
+	    for(int i=0;i<size;i++){
+		ratio[i]=old[i]==0 ? 0 : message[i]/old[i];
+	    }
+	    int ratioExp=exp-sep.exponent()+FloatTable.normalize(ratio,size);
+	    clusterTables[messageOrder[mind].s1].multiplyInto(ratio,ratioExp,fromS1[mind]);
+	    sep.set(message,exp);
+	}
+    }
+
+    protected double computePrE(){
+	FloatTable root=clusterTables[smallestCluster];
+	return Math.scalb(root.sum(),root.exponent());
+    }
+
+    public double logPrEvidence(){
+	makeValid(smallestCluster);
+	FloatTable root=clusterTables[smallestCluster];
+	return Math.log(root.sum())+root.exponent()*Math.log(2);
+    }
+
+    protected Table computeVarJoint(int var){
+	return clusterTables[containingClusters[var].get(0)].projectOnto(var);
+    }
+
+    protected Table computeTableJoint(int t){
+	Table result=Table.createCompatible(originalTables[t]);
+	clusterTables[tableClusterAssignments[t]].projectInto(result);
+	return result;
+    }
+
+    /** {@link #batchQuery(IntMap[],IntSet) Batches} would propagate in
+	double precision with a copy of every cluster per case, so cases
+	are asserted one at a time instead. */
+    protected boolean supportsBatchPropagation(){
+	return false;
+    }
+
+    public double getMemoryRequirements(){
+	double entries=0;
+	for(int i=0;i<clusterTables.length;i++){
+	    entries+=clusterTables[i].sizeDouble();
+	}
+	for(int i=0;i<separatorTables.length;i++){
+	    entries+=separatorTables[i].sizeDouble();
+	}
+	return (4*entries+8*(scratch1.length+scratch2.length))/1024/1024;
+    }
+}
@@ -6,6 +6,8 @@ import il2.inf.structure.*;
 
 import java.util.*;
 import java.math.BigInteger;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public abstract class JoinTreeAlgorithm implements il2.inf.JointEngine{
 
@@ -34,6 +36,19 @@ public abstract class JoinTreeAlgorithm implements il2.inf.JointEngine{
     protected double compilationTime=Double.NaN;
     protected double propagationTime=Double.NaN;
 
+    private boolean flagIncremental=false;
+    private boolean[][] validMessages;//[0] inward s1->s2, [1] outward s2->s1; null until incremental propagation starts
+    private boolean[] dirtyClusters;//clusters awaiting re-initialization
+    private IntList[] incidentMessages;//for each cluster, the messages on its edges
+    private IntMap assertedEvidence;//copy of the evidence last asserted
+
+    private int batchWidth=INT_BATCH_WIDTH_DEFAULT;
+    public static final int INT_BATCH_WIDTH_DEFAULT=16;
+
+    private ForkJoinPool propagationPool;
+    private MessageSchedule inwardSchedule;
+    private MessageSchedule outwardSchedule;
+
     public JoinTreeAlgorithm(EliminationOrders.JT jointree,Table[] tables)
     {
     	myJoinTree = jointree;
@@ -223,14 +238,38 @@ public abstract class JoinTreeAlgorithm implements il2.inf.JointEngine{
 
     protected void makeValid(){
     	//System.out.println( "("+getClass().getName()+")JoinTreeAlgorithm.makeValid()" );
-	if(!isValid){
+	if(isIncrementalPropagation()){
 	    long start=System.currentTimeMillis();
-	    initialize();
+	    prepareIncremental();
 	    for(int i=0;i<messageOrder.length;i++){
-		sendMessage(i,true);
+		if(!validMessages[0][i]){
+		    sendMessage(i,true);
+		    validMessages[0][i]=true;
+		}
 	    }
 	    for(int i=messageOrder.length-1;i>=0;i--){
-		sendMessage(i,false);
+		if(!validMessages[1][i]){
+		    sendMessage(i,false);
+		    validMessages[1][i]=true;
+		}
+	    }
+	    long finish=System.currentTimeMillis();
+	    propagationTime=(finish-start)/1000.0;
+	    return;
+	}
+	if(!isValid){
+	    long start=System.currentTimeMillis();
+	    initialize();
+	    if(propagationPool!=null){
+		inwardSchedule.run(propagationPool,this,true);
+		outwardSchedule.run(propagationPool,this,false);
+	    }else{
+		for(int i=0;i<messageOrder.length;i++){
+		    sendMessage(i,true);
+		}
+		for(int i=messageOrder.length-1;i>=0;i--){
+		    sendMessage(i,false);
+		}
 	    }
 	    isValid=true;
 	    long finish=System.currentTimeMillis();
@@ -238,8 +277,123 @@ public abstract class JoinTreeAlgorithm implements il2.inf.JointEngine{
 	}
     }
 
+    /** Make every message into <b>cluster</b> valid.  Propagating
+	incrementally, only the invalid messages on the way to <b>cluster</b>
+	are sent, otherwise this is the same as makeValid().
+	@since 20261018 */
+    protected void makeValid(int cluster){
+	if(!isIncrementalPropagation()){
+	    makeValid();
+	    return;
+	}
+	long start=System.currentTimeMillis();
+	prepareIncremental();
+	collect(cluster,-1);
+	long finish=System.currentTimeMillis();
+	propagationTime=(finish-start)/1000.0;
+    }
+
+    private void collect(int cluster,int parent){
+	IntList incident=incidentMessages[cluster];
+	for(int j=0;j<incident.size();j++){
+	    int i=incident.get(j);
+	    Pair p=messageOrder[i];
+	    boolean inward=p.s2==cluster;
+	    int other=inward ? p.s1 : p.s2;
+	    int direction=inward ? 0 : 1;
+	    if(other!=parent && !validMessages[direction][i]){
+		collect(other,cluster);
+		sendMessage(i,inward);
+		validMessages[direction][i]=true;
+	    }
+	}
+    }
+
+    /** Re-initialize the clusters whose evidence or tables changed,
+	setting up the bookkeeping first if necessary. */
+    private void prepareIncremental(){
+	if(validMessages==null){
+	    validMessages=new boolean[2][messageOrder.length];
+	    dirtyClusters=new boolean[clusters.length];
+	    java.util.Arrays.fill(dirtyClusters,true);
+	    incidentMessages=new IntList[clusters.length];
+	    for(int c=0;c<clusters.length;c++){
+		incidentMessages[c]=new IntList();
+	    }
+	    for(int i=0;i<messageOrder.length;i++){
+		incidentMessages[messageOrder[i].s1].add(i);
+		incidentMessages[messageOrder[i].s2].add(i);
+	    }
+	    assertedEvidence=new IntMap(evidence);
+	}
+	for(int c=0;c<dirtyClusters.length;c++){
+	    if(dirtyClusters[c]){
+		initializeCluster(c);
+		dirtyClusters[c]=false;
+	    }
+	}
+    }
+
+    /** Mark cluster <b>c</b> for re-initialization and every message
+	whose value depends on it, i.e. every message directed away from it,
+	as invalid. */
+    private void invalidateCluster(int c){
+	dirtyClusters[c]=true;
+	invalidateFrom(c,-1);
+    }
+
+    private void invalidateFrom(int cluster,int parent){
+	IntList incident=incidentMessages[cluster];
+	for(int j=0;j<incident.size();j++){
+	    int i=incident.get(j);
+	    Pair p=messageOrder[i];
+	    boolean inward=p.s1==cluster;
+	    int other=inward ? p.s2 : p.s1;
+	    int direction=inward ? 0 : 1;
+	    //everything downstream of an invalid message is already invalid
+	    if(other!=parent && validMessages[direction][i]){
+		validMessages[direction][i]=false;
+		invalidateFrom(other,cluster);
+	    }
+	}
+    }
+
+    /** True if this algorithm can re-initialize single clusters with
+	{@link #initializeCluster(int)} and its messages depend on nothing
+	but the sending cluster's tables, evidence and other incoming
+	messages, so that only invalidated messages need to be resent.
+	@since 20261018 */
+    protected boolean supportsIncrementalPropagation(){
+	return false;
+    }
+
+    /** Propagation is incremental, once {@link
+	#setIncrementalPropagation(boolean) turned on}, when the algorithm
+	{@link #supportsIncrementalPropagation() supports} it and there is no
+	{@link #setPropagationPool(ForkJoinPool) propagation pool}: setEvidence()
+	and setTable() invalidate only the messages leaving the clusters they
+	affect, and a query resends only the invalid messages it needs.
+	@since 20261018 */
+    public boolean isIncrementalPropagation(){
+	return flagIncremental && propagationPool==null && supportsIncrementalPropagation();
+    }
+
+    /** @since 20261018 */
+    public void setIncrementalPropagation(boolean flag){
+	if(flag!=flagIncremental){
+	    flagIncremental=flag;
+	    resetValidity();
+	}
+    }
+
+    private void resetValidity(){
+	isValid=false;
+	validMessages=null;
+	dirtyClusters=null;
+    }
+
     public double prEvidence(){
-	makeValid();
+	makeValid(smallestCluster);
 	return computePrE();
     }
 
@@ -248,7 +402,7 @@ public abstract class JoinTreeAlgorithm implements il2.inf.JointEngine{
     }
 
     public Table tableJoint(int table){
-	makeValid();
+	makeValid(tableClusterAssignments[table]);
 	return computeTableJoint(table);
     }
 
@@ -261,7 +415,7 @@ public abstract class JoinTreeAlgorithm implements il2.inf.JointEngine{
 
 
     public Table varJoint(int var){
-	makeValid();
+	makeValid(containingClusters[var].get(0));
 	return computeVarJoint(var);
     }
 
@@ -271,11 +425,67 @@ public abstract class JoinTreeAlgorithm implements il2.inf.JointEngine{
 	return t;
     }
 
+    /** Propagates the cases through this jointree's structure in
+	batches of {@link #getBatchWidth()}, Hugin style, without disturbing
+	the evidence asserted on this engine.  Clusters too big for a
+	batch, or algorithms that do not {@link #supportsBatchPropagation()
+	support} it, fall back to asserting the cases one at a time.
+	@since 20261018 */
+    public il2.inf.BatchResult batchQuery(IntMap[] cases,IntSet vars){
+	if(!supportsBatchPropagation()){
+	    return il2.inf.JointEngine.super.batchQuery(cases,vars);
+	}
+	double limit=(double)OffHeapTable.getThreshold()/Math.max(1,Math.min(batchWidth,cases.length));
+	for(int c=0;c<clusters.length;c++){
+	    if(domain.size(clusters[c])>limit){
+		return il2.inf.JointEngine.super.batchQuery(cases,vars);
+	    }
+	}
+	return BatchPropagation.query(this,cases,vars,batchWidth);
+    }
+
+    /** True if batched Hugin propagation in double precision answers
+	the same queries as this algorithm.
+	@since 20261018 */
+    protected boolean supportsBatchPropagation(){
+	return true;
+    }
+
+    /** The number of evidence cases {@link #batchQuery(IntMap[],IntSet) batchQuery()}
+	propagates together.  Each case in a batch needs its own copy of
+	every cluster and separator table.
+	@since 20261018 */
+    public int getBatchWidth(){
+	return batchWidth;
+    }
+
+    /** @since 20261018 */
+    public void setBatchWidth(int width){
+	if(width<1){
+	    throw new IllegalArgumentException("batch width must be positive");
+	}
+	batchWidth=width;
+    }
+
     public void setEvidence(IntMap e){
 	isValid=false;
+	if(validMessages!=null){
+	    invalidateEvidence(assertedEvidence,e);
+	    assertedEvidence=new IntMap(e);
+	}
 	this.evidence=e;
     }
 
+    private void invalidateEvidence(IntMap before,IntMap after){
+	IntSet changed=before.keys().union(after.keys());
+	for(int i=0;i<changed.size();i++){
+	    int var=changed.get(i);
+	    if(before.get(var,-1)!=after.get(var,-1) && var<containingClusters.length && containingClusters[var]!=null && containingClusters[var].size()>0){
+		invalidateCluster(containingClusters[var].get(0));
+	    }
+	}
+    }
+
     public void setTable(int i,Table t){
 	Table oldT=originalTables[i];
 	if(t.vars().size()!=oldT.vars().size() || !t.vars().containsAll(oldT.vars())){
@@ -284,6 +494,106 @@ public abstract class JoinTreeAlgorithm implements il2.inf.JointEngine{
 	originalTables[i]=t;
 	assignedTables[tableClusterAssignments[i]][assignmentIndex[i]]=t;
 	isValid=false;
+	if(validMessages!=null){
+	    invalidateCluster(tableClusterAssignments[i]);
+	}
+    }
+
+    /** Propagate on the given pool instead of on the calling thread, or
+	pass null to return to sequential propagation.  Messages are
+	scheduled as a dependency graph, so independent subtrees of the
+	jointree are handled concurrently, while every cluster still
+	receives its messages in the sequential order; answers are
+	identical to those of sequential propagation.
+	@throws UnsupportedOperationException if this algorithm does not
+	{@link #supportsParallelPropagation() support} parallel propagation
+	@since 20261018 */
+    public void setPropagationPool(ForkJoinPool pool){
+	if(pool!=null){
+	    if(!supportsParallelPropagation()){
+		throw new UnsupportedOperationException(getClass().getName()+" does not support parallel propagation");
+	    }
+	    if(inwardSchedule==null){
+		inwardSchedule=MessageSchedule.inward(messageOrder,clusters.length);
+		outwardSchedule=MessageSchedule.outward(messageOrder,clusters.length);
+	    }
+	    allocateParallelScratch();
+	}
+	if(pool!=propagationPool){
+	    resetValidity();
+	}
+	propagationPool=pool;
+    }
+
+    /** @since 20261018 */
+    public ForkJoinPool getPropagationPool(){
+	return propagationPool;
+    }
+
+    /** True if {@link #projectMessage(int,boolean) projectMessage()} and
+	{@link #absorbMessage(int,boolean) absorbMessage()} together are
+	equivalent to {@link #sendMessage(int,boolean) sendMessage()} and may
+	run concurrently for messages touching different clusters.
+	@since 20261018 */
+    protected boolean supportsParallelPropagation(){
+	return false;
+    }
+
+    /** Allocate whatever per-message working storage concurrent
+	propagation needs in place of shared scratch arrays.
+	@since 20261018 */
+    protected void allocateParallelScratch(){}
+
+    /** First half of sendMessage(): compute the message from the sending
+	cluster, writing nothing but the message's own storage.
+	@since 20261018 */
+    protected void projectMessage(int ind,boolean isInward){
+	throw new UnsupportedOperationException();
+    }
+
+    /** Second half of sendMessage(): incorporate the message computed by
+	projectMessage() into the receiving cluster.
+	@since 20261018 */
+    protected void absorbMessage(int ind,boolean isInward){
+	throw new UnsupportedOperationException();
+    }
+
+    /** Initialize every cluster with {@link #initializeCluster(int)},
+	concurrently when there is a propagation pool.
+	@since 20261018 */
+    protected void initializeClusters(){
+	if(propagationPool==null){
+	    for(int i=0;i<clusters.length;i++){
+		initializeCluster(i);
+	    }
+	}else{
+	    propagationPool.invoke(new ClusterInitialization(0,clusters.length));
+	}
+    }
+
+    /** Algorithms that keep one table per cluster initialize each
+	independently of the others.
+	@since 20261018 */
+    protected void initializeCluster(int c){
+	throw new UnsupportedOperationException();
+    }
+
+    private final class ClusterInitialization extends RecursiveAction{
+	final int low,high;
+	ClusterInitialization(int low,int high){
+	    this.low=low;
+	    this.high=high;
+	}
+	protected void compute(){
+	    if(high-low<=1){
+		if(low<high){
+		    initializeCluster(low);
+		}
+	    }else{
+		int mid=(low+high)>>>1;
+		invokeAll(new ClusterInitialization(low,mid),new ClusterInitialization(mid,high));
+	    }
+	}
     }
 
     /** @since 012904 */
@@ -50,6 +50,12 @@ public class MPEAlgorithm extends UnindexedSSAlgorithm
         }
     }
 
+    /** {@link #batchQuery(IntMap[],IntSet) Batches}
+        propagate sum-product, not max-product. */
+    protected boolean supportsBatchPropagation(){
+        return false;
+    }
+
     /** @author keith cascio
     	@since 20060123 */
     public MPE getMPE(){
@@ -115,43 +121,29 @@ public class MPEAlgorithm extends UnindexedSSAlgorithm
         return flipPoints;
     }
 
-    protected void initialize() {
-        setUpEvidence();
-    }
-
     protected double computePrE() {
-	makeValid();
+	makeValid(smallestCluster);
         MPETable dest = MPETable.constantMPETable(domain, 0);
         dest.multiplyAndProjectInto(getAllTables(smallestCluster));
         return dest.values()[0];
     }
 
     protected MPE computeMPE() {
-	makeValid();
+	makeValid(smallestCluster);
         MPETable dest = MPETable.constantMPETable(domain, 0);
         dest.multiplyAndProjectInto(getAllTables(smallestCluster));
         return dest.mpeInstantiations()[0];
     }
 
     public Table tablePartial(int table) {
-	makeValid();
         int cluster=tableClusterAssignments[table];
+	makeValid(cluster);
         MPETable dest=MPETable.createCompatibleMPE(originalTables[table]);
         dest.multiplyAndProjectInto(remove(getAllTables(cluster),originalTables[table]));
         return dest;
     }
 
-    protected void setUpEvidence(){
-        evidenceIndicators=new Table[clusters.length][];
-        IntSet eKeys=evidence.keys();
-        for(int i=0;i<assignedEvidence.length;i++){
-            IntSet is=eKeys.intersection(assignedEvidence[i]);
-            Table[] t=new Table[is.size()];
-            for(int j=0;j<is.size();j++){
-                int var=is.get(j);
-                t[j]=MPETable.evidenceMPETable(domain,var,evidence.get(var));
-            }
-            evidenceIndicators[i]=t;
-        }
+    protected Table evidenceTable(int var,int val){
+        return MPETable.evidenceMPETable(domain,var,val);
     }
 }
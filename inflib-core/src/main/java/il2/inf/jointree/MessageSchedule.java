@@ -0,0 +1,163 @@
+package il2.inf.jointree;
+
+import il2.util.*;
+
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/** Dependency graph over the steps of one pass of jointree propagation,
+    executed on a fork-join pool.
+
+    Every message contributes two steps: step 2i projects message i out of
+    the sending cluster, step 2i+1 absorbs it into the receiving cluster.
+    A projection waits until every message into its sending cluster has
+    been absorbed.  On the inward pass the absorptions into a cluster are
+    additionally chained in messageOrder, so each cluster table sees
+    exactly the same sequence of products as under sequential propagation.
+
+    @since 20261018 */
+class MessageSchedule{
+
+    private final int[][] successors;
+    private final int[] dependencyCounts;
+    private final int[] roots;
+
+    private MessageSchedule(IntList[] succ,int[] counts){
+	successors=new int[succ.length][];
+	IntList r=new IntList();
+	for(int i=0;i<succ.length;i++){
+	    successors[i]=succ[i].toArray();
+	    if(counts[i]==0){
+		r.add(i);
+	    }
+	}
+	dependencyCounts=counts;
+	roots=r.toArray();
+    }
+
+    static int projectStep(int mind){
+	return 2*mind;
+    }
+
+    static int absorbStep(int mind){
+	return 2*mind+1;
+    }
+
+    static MessageSchedule inward(Pair[] messageOrder,int clusterCount){
+	IntList[] succ=allocate(messageOrder.length);
+	int[] counts=new int[succ.length];
+	int[] lastInto=new int[clusterCount];
+	java.util.Arrays.fill(lastInto,-1);
+	for(int i=0;i<messageOrder.length;i++){
+	    Pair p=messageOrder[i];
+	    //messageOrder is a postorder, so every message into s1 is already recorded
+	    if(lastInto[p.s1]>=0){
+		addEdge(succ,counts,absorbStep(lastInto[p.s1]),projectStep(i));
+	    }
+	    addEdge(succ,counts,projectStep(i),absorbStep(i));
+	    if(lastInto[p.s2]>=0){
+		addEdge(succ,counts,absorbStep(lastInto[p.s2]),absorbStep(i));
+	    }
+	    lastInto[p.s2]=i;
+	}
+	return new MessageSchedule(succ,counts);
+    }
+
+    static MessageSchedule outward(Pair[] messageOrder,int clusterCount){
+	IntList[] succ=allocate(messageOrder.length);
+	int[] counts=new int[succ.length];
+	int[] outInto=new int[clusterCount];
+	java.util.Arrays.fill(outInto,-1);
+	for(int i=0;i<messageOrder.length;i++){
+	    outInto[messageOrder[i].s1]=i;
+	}
+	for(int i=0;i<messageOrder.length;i++){
+	    int k=outInto[messageOrder[i].s2];
+	    if(k>=0){
+		addEdge(succ,counts,absorbStep(k),projectStep(i));
+	    }
+	    addEdge(succ,counts,projectStep(i),absorbStep(i));
+	}
+	return new MessageSchedule(succ,counts);
+    }
+
+    private static IntList[] allocate(int messageCount){
+	IntList[] succ=new IntList[2*messageCount];
+	for(int i=0;i<succ.length;i++){
+	    succ[i]=new IntList(2);
+	}
+	return succ;
+    }
+
+    private static void addEdge(IntList[] succ,int[] counts,int from,int to){
+	succ[from].add(to);
+	counts[to]++;
+    }
+
+    /** Runs every step of the pass, returning once all have completed. */
+    void run(ForkJoinPool pool,JoinTreeAlgorithm jt,boolean isInward){
+	if(successors.length==0){
+	    return;
+	}
+	pool.invoke(new Pass(jt,isInward));
+    }
+
+    private final class Pass extends CountedCompleter<Void>{
+	final JoinTreeAlgorithm jt;
+	final boolean isInward;
+	final AtomicIntegerArray pending;
+
+	Pass(JoinTreeAlgorithm jt,boolean isInward){
+	    this.jt=jt;
+	    this.isInward=isInward;
+	    this.pending=new AtomicIntegerArray(dependencyCounts);
+	}
+
+	public void compute(){
+	    for(int i=0;i<roots.length;i++){
+		addToPendingCount(1);
+		new Step(this,roots[i]).fork();
+	    }
+	    tryComplete();
+	}
+    }
+
+    private final class Step extends CountedCompleter<Void>{
+	final Pass pass;
+	final int first;
+
+	Step(CountedCompleter<?> parent,int step){
+	    super(parent);
+	    this.pass=parent instanceof Pass ? (Pass)parent : ((Step)parent).pass;
+	    this.first=step;
+	}
+
+	public void compute(){
+	    int step=first;
+	    while(step>=0){
+		int mind=step>>1;
+		if((step&1)==0){
+		    pass.jt.projectMessage(mind,pass.isInward);
+		}else{
+		    pass.jt.absorbMessage(mind,pass.isInward);
+		}
+		//continue with the first released successor, fork the rest
+		int next=-1;
+		int[] succ=successors[step];
+		for(int i=0;i<succ.length;i++){
+		    if(pass.pending.decrementAndGet(succ[i])==0){
+			if(next<0){
+			    next=succ[i];
+			}else{
+			    addToPendingCount(1);
+			    new Step(this,succ[i]).fork();
+			}
+		    }
+		}
+		step=next;
+	    }
+	    tryComplete();
+	}
+    }
+}
@@ -80,7 +80,7 @@ public class UnindexedHuginAlgorithm extends AbstractHuginAlgorithm{
     protected void initializeCluster(int c){
 	Table[] tables=assignedTables[c];
 	Table ctable=clusterTables[c];
-	java.util.Arrays.fill(ctable.values(),1.0);
+	ctable.fill(1.0);
 	for(int i=0;i<tables.length;i++){
 	    ctable.multiplyInto2(tables[i]);
 	}
@@ -95,26 +95,58 @@ public class UnindexedHuginAlgorithm extends AbstractHuginAlgorithm{
     }
 
     protected void sendMessage(int mind,boolean inward){
+	projectMessage(mind,inward);
+	absorbMessage(mind,inward);
+    }
+
+    protected boolean supportsParallelPropagation(){
+	return true;
+    }
+
+    /** During parallel propagation, outward messages keep their old and
+	new separator values in per-message arrays instead of in
+	scratch1/scratch2. */
+    private double[][] oldSeparators;
+    private double[][] newSeparators;
+
+    protected void allocateParallelScratch(){
+	if(oldSeparators!=null){
+	    return;
+	}
+	oldSeparators=new double[separatorTables.length][];
+	newSeparators=new double[separatorTables.length][];
+	for(int i=0;i<separatorTables.length;i++){
+	    oldSeparators[i]=new double[separatorTables[i].sizeInt()];
+	    newSeparators[i]=new double[separatorTables[i].sizeInt()];
+	}
+    }
+
+    protected void projectMessage(int mind,boolean inward){
 	Table sepTable=separatorTables[mind];
-	Table fromTable;
-	Table toTable;
 	if(inward){
-	    fromTable=clusterTables[messageOrder[mind].s1];
-	    toTable=clusterTables[messageOrder[mind].s2];
-	    sepTable.projectInto2(fromTable);
-	    toTable.multiplyInto2(sepTable);
+	    sepTable.projectInto2(clusterTables[messageOrder[mind].s1]);
 	}else{
-	    fromTable=clusterTables[messageOrder[mind].s2];
-	    toTable=clusterTables[messageOrder[mind].s1];
+	    boolean parallel=getPropagationPool()!=null;
+	    double[] oldValues=parallel ? oldSeparators[mind] : scratch1;
+	    double[] newValues=parallel ? newSeparators[mind] : scratch2;
 	    double[] sv=sepTable.values();
-	    System.arraycopy(sv,0,scratch1,0,sv.length);
-	    sepTable.projectInto2(fromTable);
-	    System.arraycopy(sv,0,scratch2,0,sv.length);
-	    sepTable.divideRelevantInto(scratch1);
-	    toTable.multiplyInto2(sepTable);
-	    System.arraycopy(scratch2,0,sv,0,sv.length);
+	    System.arraycopy(sv,0,oldValues,0,sv.length);
+	    sepTable.projectInto2(clusterTables[messageOrder[mind].s2]);
+	    System.arraycopy(sv,0,newValues,0,sv.length);
+	    sepTable.divideRelevantInto(oldValues);
 	}
+    }
 
+    protected void absorbMessage(int mind,boolean inward){
+	Table sepTable=separatorTables[mind];
+	if(inward){
+	    clusterTables[messageOrder[mind].s2].multiplyInto2(sepTable);
+	}else{
+	    double[] newValues=getPropagationPool()!=null ? newSeparators[mind] : scratch2;
+	    clusterTables[messageOrder[mind].s1].multiplyInto2(sepTable);
+	    double[] sv=sepTable.values();
+	    System.arraycopy(newValues,0,sv,0,sv.length);
+	}
     }
 
     protected Table computeTableJoint(int t){
@@ -124,6 +156,12 @@ public class UnindexedHuginAlgorithm extends AbstractHuginAlgorithm{
     }
 
     public double getMemoryRequirements(){
-	return (8*(scratch1.length+scratch2.length)+getTableSizes())/1024/1024;
+	double scratch=scratch1.length+scratch2.length;
+	if(oldSeparators!=null){
+	    for(int i=0;i<oldSeparators.length;i++){
+		scratch+=oldSeparators[i].length+newSeparators[i].length;
+	    }
+	}
+	return (8*scratch+getTableSizes())/1024/1024;
     }
 }
@@ -78,9 +78,24 @@ public class UnindexedSSAlgorithm extends AbstractSSAlgorithm{
 
     protected UnindexedSSAlgorithm(EliminationOrders.JT jointree,Table[] tables){
 	super(jointree,tables);
+	evidenceIndicators=new Table[clusters.length][];
     }
 
     protected void sendMessage(int ind,boolean isInward){
+	projectMessage(ind,isInward);
+    }
+
+    protected boolean supportsParallelPropagation(){
+	return true;
+    }
+
+    protected boolean supportsIncrementalPropagation(){
+	return true;
+    }
+
+    /** Shenoy-Shafer messages have their own tables, so projecting one
+	is all there is to sending it. */
+    protected void projectMessage(int ind,boolean isInward){
 	if(isInward){
 	    sendMessage(messageOrder[ind].s1,messages[0][ind],messages[1][ind]);
 	}else{
@@ -88,6 +103,8 @@ public class UnindexedSSAlgorithm extends AbstractSSAlgorithm{
 	}
     }
 
+    protected void absorbMessage(int ind,boolean isInward){}
+
     protected Table[] getAllTables(int cluster){
 	Table[] e=evidenceIndicators[cluster];
 	Table[] assigned=assignedTables[cluster];
@@ -122,8 +139,8 @@ public class UnindexedSSAlgorithm extends AbstractSSAlgorithm{
 	return dest;
     }
     public Table tablePartial(int table){
-	makeValid();
 	int cluster=tableClusterAssignments[table];
+	makeValid(cluster);
 	Table dest=Table.createCompatible(originalTables[table]);
 	dest.multiplyAndProjectInto(remove(getAllTables(cluster),originalTables[table]));
 	return dest;
@@ -136,11 +153,11 @@ public class UnindexedSSAlgorithm extends AbstractSSAlgorithm{
 	return dest;
     }
     public Table varPartial(int var){
-	makeValid();
+	int cluster=containingClusters[var].get(0);
+	makeValid(cluster);
 	if(!evidence.keys().contains(var)){
 	    return computeVarJoint(var);
 	}
-	int cluster=containingClusters[var].get(0);
 	Table dest=Table.varTable(domain,var);
 	Table excluded=findEvidenceTable(var);
 	dest.multiplyAndProjectInto(remove(getAllTables(cluster),excluded));
@@ -164,21 +181,23 @@ public class UnindexedSSAlgorithm extends AbstractSSAlgorithm{
     }
 
     protected void initialize(){
-	setUpEvidence();
+	initializeClusters();
     }
 
-    private void setUpEvidence(){
-	evidenceIndicators=new Table[clusters.length][];
-	IntSet eKeys=evidence.keys();
-	for(int i=0;i<assignedEvidence.length;i++){
-	    IntSet is=eKeys.intersection(assignedEvidence[i]);
-	    Table[] t=new Table[is.size()];
-	    for(int j=0;j<is.size();j++){
-		int var=is.get(j);
-		t[j]=Table.evidenceTable(domain,var,evidence.get(var));
-	    }
-	    evidenceIndicators[i]=t;
+    /** set up the evidence indicators of one cluster */
+    protected void initializeCluster(int c){
+	IntSet is=evidence.keys().intersection(assignedEvidence[c]);
+	Table[] t=new Table[is.size()];
+	for(int j=0;j<is.size();j++){
+	    int var=is.get(j);
+	    t[j]=evidenceTable(var,evidence.get(var));
 	}
+	evidenceIndicators[c]=t;
+    }
+
+    /** @since 20261018 */
+    protected Table evidenceTable(int var,int val){
+	return Table.evidenceTable(domain,var,val);
     }
 
     public double getMemoryRequirements(){
@@ -83,6 +83,7 @@ public class UnindexedZCAlgorithm extends AbstractZCAlgorithm{
 	Table[] tables=assignedTables[c];
 	Table ctable=clusterTables[c];
 	boolean[] zfc=clusterZeroFree[c];
+	((SparseTable)ctable).makeDense();
 	java.util.Arrays.fill(ctable.values(),1.0);
 	java.util.Arrays.fill(zfc,true);
 	for(int i=0;i<tables.length;i++){
@@ -96,35 +97,76 @@ public class UnindexedZCAlgorithm extends AbstractZCAlgorithm{
 		ctable.zeroConciousMultiplyVarIndicators(var,val,zfc);
 	    }
 	}
+	((SparseTable)ctable).findRuns(zfc);
     }
 
     protected void sendMessage(int mind,boolean inward){
+	projectMessage(mind,inward);
+	absorbMessage(mind,inward);
+    }
+
+    protected boolean supportsParallelPropagation(){
+	return true;
+    }
+
+    /** During parallel propagation, outward messages keep their old and
+	new separator values and zero flags in per-message arrays instead
+	of in scratch1/scratch2/zeroFreeScratch. */
+    private double[][] oldSeparators;
+    private double[][] newSeparators;
+    private boolean[][] separatorZeroFree;
+
+    protected void allocateParallelScratch(){
+	if(oldSeparators!=null){
+	    return;
+	}
+	oldSeparators=new double[separatorTables.length][];
+	newSeparators=new double[separatorTables.length][];
+	separatorZeroFree=new boolean[separatorTables.length][];
+	for(int i=0;i<separatorTables.length;i++){
+	    int size=separatorTables[i].sizeInt();
+	    oldSeparators[i]=new double[size];
+	    newSeparators[i]=new double[size];
+	    separatorZeroFree[i]=new boolean[size];
+	}
+    }
+
+    protected void projectMessage(int mind,boolean inward){
 	Table sepTable=separatorTables[mind];
-	Table fromTable;
-	Table toTable;
 	if(inward){
 	    int from=messageOrder[mind].s1;
-	    int to=messageOrder[mind].s2;
-	    fromTable=clusterTables[from];
-	    toTable=clusterTables[to];
-	    sepTable.zeroConciousRealProjectInto(fromTable,clusterZeroFree[from]);
-	    toTable.zeroConciousMultiplyInto(sepTable,clusterZeroFree[to]);
-
+	    // every inward message into from has arrived, and with it most of its zeros
+	    ((SparseTable)clusterTables[from]).findRuns(clusterZeroFree[from]);
+	    sepTable.zeroConciousRealProjectInto(clusterTables[from],clusterZeroFree[from]);
 	}else{
 	    int from=messageOrder[mind].s2;
-	    int to=messageOrder[mind].s1;
-	    fromTable=clusterTables[from];
-	    toTable=clusterTables[to];
+	    boolean parallel=getPropagationPool()!=null;
+	    double[] oldValues=parallel ? oldSeparators[mind] : scratch1;
+	    double[] newValues=parallel ? newSeparators[mind] : scratch2;
+	    boolean[] zf=parallel ? separatorZeroFree[mind] : zeroFreeScratch;
 	    double[] sv=sepTable.values();
-	    System.arraycopy(sv,0,scratch1,0,sv.length);
-	    sepTable.zeroConciousProjectInto(fromTable,clusterZeroFree[from],zeroFreeScratch);
-	    System.arraycopy(sv,0,scratch2,0,sv.length);
-	    sepTable.zeroConciousDivideRelevantInto(scratch1,zeroFreeScratch);
-	    toTable.zeroConciousMultiplyInto(sepTable,clusterZeroFree[to]);
-	    System.arraycopy(scratch2,0,sv,0,sv.length);
-	    sepTable.zeroConciousMakeReal(zeroFreeScratch);
+	    System.arraycopy(sv,0,oldValues,0,sv.length);
+	    sepTable.zeroConciousProjectInto(clusterTables[from],clusterZeroFree[from],zf);
+	    System.arraycopy(sv,0,newValues,0,sv.length);
+	    sepTable.zeroConciousDivideRelevantInto(oldValues,zf);
 	}
+    }
 
+    protected void absorbMessage(int mind,boolean inward){
+	Table sepTable=separatorTables[mind];
+	if(inward){
+	    int to=messageOrder[mind].s2;
+	    clusterTables[to].zeroConciousMultiplyInto(sepTable,clusterZeroFree[to]);
+	}else{
+	    int to=messageOrder[mind].s1;
+	    boolean parallel=getPropagationPool()!=null;
+	    double[] newValues=parallel ? newSeparators[mind] : scratch2;
+	    boolean[] zf=parallel ? separatorZeroFree[mind] : zeroFreeScratch;
+	    clusterTables[to].zeroConciousMultiplyInto(sepTable,clusterZeroFree[to]);
+	    double[] sv=sepTable.values();
+	    System.arraycopy(newValues,0,sv,0,sv.length);
+	    sepTable.zeroConciousMakeReal(zf);
+	}
     }
 
     protected Table computeTableJoint(int t){
@@ -144,6 +186,12 @@ public class UnindexedZCAlgorithm extends AbstractZCAlgorithm{
     }
 
     public double getMemoryRequirements(){
-	return (zeroFreeScratch.length/8+ 8*(scratch1.length+scratch2.length)+getTableSizes())/1024/1024;
+	double scratch=8*(scratch1.length+scratch2.length)+zeroFreeScratch.length/8;
+	if(oldSeparators!=null){
+	    for(int i=0;i<oldSeparators.length;i++){
+		scratch+=8*(oldSeparators[i].length+newSeparators[i].length)+separatorZeroFree[i].length/8;
+	    }
+	}
+	return (scratch+getTableSizes())/1024/1024;
     }
 }
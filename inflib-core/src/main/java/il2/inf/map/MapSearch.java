@@ -5,6 +5,11 @@ import il2.bridge.Converter;
 import il2.util.*;
 import java.util.*;
 import il2.model.*;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 /**
  *
@@ -72,10 +77,11 @@ public class MapSearch {
       if (ub <= 0.0) {
         return false;
       }
+      double best = shared.bestScore;
       if (slop < 0.0) {
-        return ub > bestScore;
+        return ub > best;
       }
-      return ub >= bestScore - slop;
+      return ub >= best - slop;
     }
 
     /**
@@ -91,6 +97,27 @@ public class MapSearch {
     public static MapInfo computeMAP (
      Collection potentials, IntSet mapvars, IntList order,
      double timeAllowed, double promotionWidthBound, double slop) {
+      return
+        computeMAP (
+          potentials, mapvars, order, timeAllowed, promotionWidthBound, slop,
+          null);
+    }
+
+    /**
+     * computeMAP (), searching in parallel on <b>pool</b>, or on the
+     * calling thread if <b>pool</b> is null.  Idle threads steal subtrees of
+     * the search, each searching with a jointree of its own, and every
+     * thread prunes against the best score found by any of them.  With
+     * slop < 0, which of several instantiations of the same probability is
+     * returned may vary from run to run.
+     *
+     * @since 20261018
+     */
+
+    public static MapInfo computeMAP (
+     Collection potentials, IntSet mapvars, IntList order,
+     double timeAllowed, double promotionWidthBound, double slop,
+     ForkJoinPool pool) {
 
       // First, perform the search.
 
@@ -104,6 +131,7 @@ public class MapSearch {
       long iStop = System.currentTimeMillis ();
       long sStart = iStop;
       long sstart_cpu_ms = JVMProfiler.getCurrentThreadCpuTimeMS();
+      ms.pool = pool;
       ms.hardSearch();
       long sstop_cpu_ms = JVMProfiler.getCurrentThreadCpuTimeMS();
       long sStop = System.currentTimeMillis ();
@@ -116,7 +144,7 @@ public class MapSearch {
       return
         new MapInfo (
           ms.results, iElapsed, iProfiled, sElapsed, sProfiled, !ms.timeExpired,
-          ms.probOfEvidence, ms.numSearchNodesVisited);
+          ms.probOfEvidence, ms.totalSearchNodesVisited ());
 
     }
 
@@ -128,14 +156,16 @@ public class MapSearch {
     private void newInstantiation (double score) {
       long foundTime = System.currentTimeMillis ();
       IntMap instance = new IntMap (currentInstance);
-      if (score > bestScore) {
-        bestScore = score;
-        bestInstance = instance;
-        while (!heap.isEmpty () && !consider (-heap.maxScore ())) {
-          heap.extractMax ();
+      synchronized (shared) {
+        if (score > shared.bestScore) {
+          shared.bestScore = score;
+          shared.bestInstance = instance;
+          while (!shared.heap.isEmpty () && !consider (-shared.heap.maxScore ())) {
+            shared.heap.extractMax ();
+          }
         }
+        shared.heap.insert (new MapResult (instance, score, foundTime), -score);
       }
-      heap.insert (new MapResult (instance, score, foundTime), -score);
     }
 
     /**
@@ -182,8 +212,25 @@ public class MapSearch {
     IntSet candidates;
     IntList selectedVars;
     IntList selectedVarsProgress;
-    double bestScore;
-    boolean timeExpired;
+    volatile double bestScore;
+    volatile boolean timeExpired;
+
+    //======================
+    // Parallel search.  The search that computeMAP () creates is also
+    // the shared state of its workers: the incumbent, the results heap,
+    // and the idle workers.  Each worker is a MapSearch with a jointree
+    // of its own.
+    //======================
+
+    private final MapSearch shared;
+    private Collection potentials;
+    private IntSet mapvars;
+    private IntList initialOrder;
+    private double promotionWidthBound;
+    private ForkJoinPool pool;
+    private final ConcurrentLinkedDeque idle = new ConcurrentLinkedDeque ();
+    private final ConcurrentLinkedQueue forked = new ConcurrentLinkedQueue ();
+    private final ArrayList workers = new ArrayList ();
 
     public static MapInfo computeMAP(Collection potentials,IntSet mapvars,IntList order,double timeAllowed,double promotionWidthBound){
       return computeMAP(potentials,mapvars,order,timeAllowed,promotionWidthBound,-1);
@@ -191,7 +238,12 @@ public class MapSearch {
 
     private MapSearch(Collection potentials,IntSet mapvars,IntList initialOrder,double timeAllowed,double promotionWidthBound,double slop){
 
+        this.shared=this;
         this.stopTime=System.currentTimeMillis()+(long)(timeAllowed*1000);
+        this.potentials=potentials;
+        this.mapvars=mapvars;
+        this.initialOrder=initialOrder;
+        this.promotionWidthBound=promotionWidthBound;
 
         // 2004-08-27 : Change to use less memory.  Before, created search
         // jointree, then seed jointree, then find seed, then release seed
@@ -228,6 +280,106 @@ public class MapSearch {
 
     }
 
+    /** a worker of <b>shared</b> */
+    private MapSearch(MapSearch shared){
+        this.shared=shared;
+        this.stopTime=shared.stopTime;
+        this.slop=shared.slop;
+        jt=MapOrderMaker.mapJoinTree(shared.potentials, shared.mapvars, shared.initialOrder, shared.promotionWidthBound);
+        candidates=new IntSet(shared.mapvars.size());
+        selectedVars=new IntList(shared.mapvars.size());
+        selectedVarsProgress=new IntList(shared.mapvars.size());
+        currentInstance=new IntMap(shared.mapvars.size());
+    }
+
+    private MapSearch borrowWorker(){
+        MapSearch worker=(MapSearch)idle.pollFirst();
+        if(worker==null){
+            synchronized(workers){
+                worker=new MapSearch(this);
+                workers.add(worker);
+            }
+        }
+        return worker;
+    }
+
+    private long totalSearchNodesVisited(){
+        long total=numSearchNodesVisited;
+        synchronized(workers){
+            for(int i=0;i<workers.size();i++){
+                total+=((MapSearch)workers.get(i)).numSearchNodesVisited;
+            }
+        }
+        return total;
+    }
+
+    /** Split when this thread's own queue is nearly empty, so that idle
+        threads have something to steal. */
+    private boolean shouldSplit(){
+        return shared.pool!=null && ForkJoinTask.inForkJoinPool() && ForkJoinTask.getSurplusQueuedTaskCount()<2;
+    }
+
+    /** A subtree of the search: the likelihoods of the map variables, the
+        instantiation so far, and the candidates left. */
+    private class Subtree extends RecursiveAction{
+        final double[][] likelihoods;
+        final IntMap instance;
+        final IntSet remaining;
+
+        Subtree(){
+            IntSet mv=shared.mapvars;
+            likelihoods=new double[mv.size()][];
+            for(int i=0;i<mv.size();i++){
+                likelihoods[i]=jt.getLikelihood(mv.get(i));
+            }
+            instance=new IntMap(currentInstance);
+            remaining=new IntSet(candidates);
+        }
+
+        protected void compute(){
+            MapSearch worker=shared.borrowWorker();
+            try{
+                worker.load(this);
+                worker.search();
+            }catch(TimeExpiredException tee){
+                shared.timeExpired=true;
+            }finally{
+                shared.idle.offerFirst(worker);
+            }
+        }
+    }
+
+    private void load(Subtree subtree){
+        IntSet mv=shared.mapvars;
+        for(int i=0;i<mv.size();i++){
+            if(!Arrays.equals(jt.getLikelihood(mv.get(i)),subtree.likelihoods[i])){
+                jt.setLikelihood(mv.get(i),subtree.likelihoods[i]);
+            }
+        }
+        currentInstance=new IntMap(subtree.instance);
+        candidates=new IntSet(subtree.remaining);
+        selectedVars.clear();
+        selectedVarsProgress.clear();
+    }
+
+    /** Search the root here, then join every subtree forked along the way,
+        including those forked by other subtrees. */
+    private void parallelSearch(){
+        pool.invoke(new RecursiveAction(){
+            protected void compute(){
+                try{
+                    search();
+                }catch(TimeExpiredException tee){
+                    timeExpired=true;
+                }
+                idle.offerFirst(MapSearch.this);
+                for(ForkJoinTask t;(t=(ForkJoinTask)forked.poll())!=null;){
+                    t.join();
+                }
+            }
+        });
+    }
+
 
     private class ChangeElement{
         IntList modifiedVars;
@@ -308,7 +460,13 @@ public class MapSearch {
 
       // Perform the search.
 
-      try{
+      if(pool!=null){
+          timeExpired=false;
+          parallelSearch();
+          if(!timeExpired){
+              stopTime=System.currentTimeMillis();
+          }
+      }else try{
           timeExpired=false;
           search();
           stopTime=System.currentTimeMillis();
@@ -388,7 +546,23 @@ public class MapSearch {
             int ind=selectedVars.size();
             selectedVars.add(jt.domain().size(var));
             selectedVarsProgress.add(jt.domain().size(var));
-            for(int i=0;i<order.length;i++){
+            int inline=order.length;
+            if(shouldSplit()){
+                // Fork all but the best value, worst first: this thread pops
+                // its own forks last in first out, so best first, while
+                // thieves take the worst.
+                for(int i=order.length-1;i>0;i--){
+                    if(consider (hscores[order[i]])){
+                        currentInstance.put(var,order[i]);
+                        jt.setLikelihood(var,lik(var,order[i]));
+                        Subtree subtree=new Subtree();
+                        shared.forked.add(subtree);
+                        subtree.fork();
+                    }
+                }
+                inline=1;
+            }
+            for(int i=0;i<inline;i++){
                 selectedVarsProgress.set(ind, i+1);
                 if(consider (hscores[order[i]])){
                     currentInstance.put(var,order[i]);
@@ -0,0 +1,171 @@
+package il2.inf.sampling;
+
+import il2.model.*;
+import il2.util.*;
+
+import java.util.SplittableRandom;
+
+/** Forward (logic) sampling compiled from the cpts of a
+    {@link BayesianNetwork}.
+
+    Every cpt is turned into cumulative distributions in place: for each
+    instantiation of the parents, the entries of the child's states hold
+    running sums, so drawing a state is one uniform and a short scan.
+    Instantiations are written to int[] buffers, indexed by variable, and
+    nothing is allocated per sample.  A sampler is immutable once built
+    and may be shared between threads, each with its own random stream.
+
+    @since 20261018 */
+public class ForwardSampler{
+    final int size;
+    final int[] order;//topological
+    private final int[][] parents;
+    private final int[][] parentStrides;//step of each parent in the cpt
+    final int[] childStride;
+    final int[] cardinality;
+    private final double[][] cumulative;
+
+    public ForwardSampler(BayesianNetwork bn){
+	this(bn.cpts());
+    }
+
+    /** Sample from <b>cpts</b>, one per variable, which need not be
+	normalized: each row is drawn in proportion to its entries. */
+    ForwardSampler(Table[] cpts){
+	size=cpts.length;
+	order=topologicalOrder(cpts);
+	parents=new int[size][];
+	parentStrides=new int[size][];
+	childStride=new int[size];
+	cardinality=new int[size];
+	cumulative=new double[size][];
+	for(int v=0;v<size;v++){
+	    Table t=cpts[v];
+	    IntSet vars=t.vars();
+	    int[] steps=t.stepSizes();
+	    int ind=vars.indexOf(v);
+	    if(ind<0){
+		throw new IllegalArgumentException("cpt "+v+" does not contain its variable");
+	    }
+	    childStride[v]=steps[ind];
+	    cardinality[v]=t.sizes()[ind];
+	    parents[v]=new int[vars.size()-1];
+	    parentStrides[v]=new int[vars.size()-1];
+	    for(int i=0,j=0;i<vars.size();i++){
+		if(i!=ind){
+		    parents[v][j]=vars.get(i);
+		    parentStrides[v][j]=steps[i];
+		    j++;
+		}
+	    }
+	    cumulative[v]=cumulate(t.values(),childStride[v],cardinality[v]);
+	}
+    }
+
+    private static double[] cumulate(double[] vals,int stride,int card){
+	double[] cum=new double[vals.length];
+	int block=stride*card;
+	for(int base=0;base<vals.length;base+=block){
+	    for(int offset=0;offset<stride;offset++){
+		double total=0;
+		for(int s=0,i=base+offset;s<card;s++,i+=stride){
+		    total+=vals[i];
+		    cum[i]=total;
+		}
+	    }
+	}
+	return cum;
+    }
+
+    private static int[] topologicalOrder(Table[] cpts){
+	int n=cpts.length;
+	int[] pending=new int[n];
+	IntList[] children=new IntList[n];
+	for(int v=0;v<n;v++){
+	    children[v]=new IntList();
+	}
+	for(int v=0;v<n;v++){
+	    IntSet vars=cpts[v].vars();
+	    for(int i=0;i<vars.size();i++){
+		int p=vars.get(i);
+		if(p!=v){
+		    children[p].add(v);
+		    pending[v]++;
+		}
+	    }
+	}
+	int[] result=new int[n];
+	int count=0;
+	for(int v=0;v<n;v++){
+	    if(pending[v]==0){
+		result[count++]=v;
+	    }
+	}
+	for(int done=0;done<count;done++){
+	    IntList ch=children[result[done]];
+	    for(int i=0;i<ch.size();i++){
+		if(--pending[ch.get(i)]==0){
+		    result[count++]=ch.get(i);
+		}
+	    }
+	}
+	if(count!=n){
+	    throw new IllegalArgumentException("network is not acyclic");
+	}
+	return result;
+    }
+
+    /** the number of variables, i.e. the width of one instantiation */
+    public int size(){
+	return size;
+    }
+
+    /** Draw one instantiation into dest[offset+var] for every var.
+	Where <b>fixed</b>, if not null, holds a state (not negative) the
+	variable is set to that state instead of being sampled. */
+    public void sample(SplittableRandom random,int[] fixed,int[] dest,int offset){
+	for(int k=0;k<size;k++){
+	    int v=order[k];
+	    if(fixed!=null && fixed[v]>=0){
+		dest[offset+v]=fixed[v];
+		continue;
+	    }
+	    dest[offset+v]=draw(v,random,base(v,dest,offset));
+	}
+    }
+
+    /** offset into the cpt of <b>v</b> of the row selected by the
+	parents' states in inst[offset+parent] */
+    int base(int v,int[] inst,int offset){
+	int base=0;
+	int[] ps=parents[v];
+	int[] st=parentStrides[v];
+	for(int i=0;i<ps.length;i++){
+	    base+=inst[offset+ps[i]]*st[i];
+	}
+	return base;
+    }
+
+    int draw(int v,SplittableRandom random,int base){
+	return draw(random,cumulative[v],base,childStride[v],cardinality[v]);
+    }
+
+    private static int draw(SplittableRandom random,double[] cum,int base,int stride,int card){
+	int last=card-1;
+	double u=random.nextDouble()*cum[base+last*stride];
+	for(int s=0,i=base;s<last;s++,i+=stride){
+	    if(u<cum[i]){
+		return s;
+	    }
+	}
+	return last;
+    }
+
+    /** Draw <b>count</b> instantiations into dest, one after another,
+	instantiation c starting at offset+c*size(). */
+    public void sample(SplittableRandom random,int[] fixed,int[] dest,int offset,int count){
+	for(int c=0;c<count;c++,offset+=size){
+	    sample(random,fixed,dest,offset);
+	}
+    }
+}
@@ -0,0 +1,537 @@
+package il2.inf.sampling;
+
+import il2.inf.JointEngine;
+import il2.inf.structure.JoinTreeStats;
+import il2.model.*;
+import il2.util.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/** Approximate inference by importance sampling.
+
+    Variables are sampled in topological order from an importance
+    function with the layout of the cpts; evidence variables are clamped
+    and every sample is weighted by Pr(x,e)/Q(x).  With the cpts
+    themselves as the importance function this is likelihood weighting.
+    In adaptive mode the importance function is first learned the way
+    AIS-BN does: it starts from the cpts, with uniform rows for the
+    parents of evidence and small probabilities raised to a cutoff, and
+    is then moved toward Pr(x_v|pa_v,e) over a number of stages, each
+    estimating that posterior from its own weighted samples.
+
+    Estimates are anytime.  A query draws samples until the configured
+    {@link #setSampleCount(long) count} is reached or the
+    {@link #setTimeoutMillis(long) time limit} expires, and
+    {@link #sample(long)} or {@link #sampleFor(long)} refine them
+    further; samples accumulate until the evidence or a table changes.
+    The standard errors of Pr(e) and of the posterior marginals give
+    confidence intervals of estimate +/- z*error.
+
+    Samples are drawn in blocks of {@link #INT_BLOCK_SIZE}, each from its
+    own stream split from the seed, and the blocks' sums are added in
+    order, so for a given seed and sample count the estimates do not
+    depend on the number of threads.
+
+    @since 20261018 */
+public class ImportanceSampler implements JointEngine{
+    public static final int INT_BLOCK_SIZE=0x1000;
+    public static final int INT_STAGES_DEFAULT=10;
+    public static final int INT_STAGE_SAMPLES_DEFAULT=0x1000;
+    public static final long LONG_SAMPLE_COUNT_DEFAULT=100000;
+
+    /** learning rate a*(b/a)^(k/stages) of stage k, from AIS-BN */
+    private static final double DOUBLE_RATE_A=0.4,DOUBLE_RATE_B=0.14;
+    /** AIS-BN's cutoff for small probabilities of binary variables */
+    private static final double DOUBLE_CUTOFF=0.04;
+
+    private final Table[] cpts;
+    private final int size;
+    private ForwardSampler model;
+    private final int[] evidence;
+
+    private boolean adaptive;
+    private long sampleCount=LONG_SAMPLE_COUNT_DEFAULT;
+    private long timeoutMillis;
+    private int stages=INT_STAGES_DEFAULT;
+    private int stageSamples=INT_STAGE_SAMPLES_DEFAULT;
+    private int threads=Runtime.getRuntime().availableProcessors();
+    private ForkJoinPool pool=ForkJoinPool.commonPool();
+    private long seed=System.nanoTime();
+
+    private double[][] proposal;//null for likelihood weighting
+    private ForwardSampler importance;
+    private SplittableRandom random;
+    private Sums sums;
+
+    private double compilationTime=Double.NaN;
+    private double propagationTime=Double.NaN;
+
+    public ImportanceSampler(BayesianNetwork bn){
+	long start=System.currentTimeMillis();
+	cpts=bn.cpts().clone();
+	size=cpts.length;
+	model=new ForwardSampler(cpts);
+	evidence=new int[size];
+	java.util.Arrays.fill(evidence,-1);
+	compilationTime=(System.currentTimeMillis()-start)/1000.0;
+    }
+
+    /** Use AIS-BN's learned importance function rather than the cpts. */
+    public void setAdaptive(boolean flag){
+	if(flag!=adaptive){
+	    adaptive=flag;
+	    invalidate();
+	}
+    }
+
+    public boolean isAdaptive(){
+	return adaptive;
+    }
+
+    /** The number of samples a query ensures have been drawn. */
+    public void setSampleCount(long count){
+	if(count<1){
+	    throw new IllegalArgumentException("sample count must be positive");
+	}
+	sampleCount=count;
+    }
+
+    public long getSampleCount(){
+	return sampleCount;
+    }
+
+    /** Bound the time a query spends sampling; 0 for no bound. */
+    public void setTimeoutMillis(long millis){
+	timeoutMillis=Math.max(millis,0);
+    }
+
+    public long getTimeoutMillis(){
+	return timeoutMillis;
+    }
+
+    /** The number of AIS-BN learning stages and the samples drawn in each. */
+    public void setLearningStages(int stages,int samplesPerStage){
+	if(stages<0 || samplesPerStage<1){
+	    throw new IllegalArgumentException();
+	}
+	this.stages=stages;
+	this.stageSamples=samplesPerStage;
+	if(adaptive){
+	    invalidate();
+	}
+    }
+
+    public int getLearningStages(){
+	return stages;
+    }
+
+    public int getStageSamples(){
+	return stageSamples;
+    }
+
+    public void setThreadCount(int count){
+	threads=Math.max(count,1);
+    }
+
+    public int getThreadCount(){
+	return threads;
+    }
+
+    /** Draw the blocks of a round on the given pool, the common pool by
+	default, or pass null to draw them on the calling thread.  The
+	estimates do not depend on the pool. */
+    public void setPropagationPool(ForkJoinPool pool){
+	this.pool=pool;
+    }
+
+    public ForkJoinPool getPropagationPool(){
+	return pool;
+    }
+
+    /** Restart sampling from the stream of <b>seed</b>. */
+    public void setSeed(long seed){
+	this.seed=seed;
+	invalidate();
+    }
+
+    public long getSeed(){
+	return seed;
+    }
+
+    public void setEvidence(IntMap e){
+	boolean changed=false;
+	for(int v=0;v<size;v++){
+	    int val=e.get(v,-1);
+	    if(evidence[v]!=val){
+		evidence[v]=val;
+		changed=true;
+	    }
+	}
+	if(changed){
+	    invalidate();
+	}
+    }
+
+    public void setTable(int t,Table table){
+	cpts[t]=table;
+	model=new ForwardSampler(cpts);
+	invalidate();
+    }
+
+    private void invalidate(){
+	sums=null;
+	proposal=null;
+	importance=null;
+    }
+
+    /** the number of samples behind the current estimates */
+    public long samplesDrawn(){
+	return sums==null ? 0 : sums.count;
+    }
+
+    /** Draw <b>count</b> more samples. */
+    public void sample(long count){
+	prepare();
+	draw(count,Long.MAX_VALUE);
+    }
+
+    /** Draw more samples for <b>millis</b> milliseconds. */
+    public void sampleFor(long millis){
+	prepare();
+	draw(Long.MAX_VALUE,System.currentTimeMillis()+millis);
+    }
+
+    private void makeValid(){
+	prepare();
+	long needed=sampleCount-sums.count;
+	if(needed>0){
+	    draw(needed,timeoutMillis>0 ? System.currentTimeMillis()+timeoutMillis : Long.MAX_VALUE);
+	}
+    }
+
+    private void prepare(){
+	if(sums!=null){
+	    return;
+	}
+	long start=System.currentTimeMillis();
+	random=new SplittableRandom(seed);
+	if(adaptive){
+	    learn();
+	}else{
+	    importance=model;
+	}
+	sums=new Sums(cpts);
+	propagationTime=(System.currentTimeMillis()-start)/1000.0;
+    }
+
+    /** Draw up to <b>count</b> samples, stopping at the first whole round
+	after <b>deadline</b>. */
+    private void draw(long count,long deadline){
+	long start=System.currentTimeMillis();
+	long round=(long)INT_BLOCK_SIZE*threads;
+	while(count>0){
+	    long n=Math.min(count,round);
+	    run(n,sums);
+	    count-=n;
+	    if(System.currentTimeMillis()>=deadline){
+		break;
+	    }
+	}
+	propagationTime+=(System.currentTimeMillis()-start)/1000.0;
+    }
+
+    /** Draw <b>n</b> samples from the current importance function into
+	<b>total</b>.  A round has at most one block per thread, so that
+	many run at once on the {@link #setPropagationPool(ForkJoinPool) pool}. */
+    private void run(long n,Sums total){
+	int blocks=(int)((n+INT_BLOCK_SIZE-1)/INT_BLOCK_SIZE);
+	List tasks=new ArrayList(blocks);
+	for(int b=0;b<blocks;b++){
+	    tasks.add(new Block(random.split(),(int)Math.min(INT_BLOCK_SIZE,n-(long)b*INT_BLOCK_SIZE)));
+	}
+	if(blocks<2 || pool==null){
+	    for(int b=0;b<blocks;b++){
+		total.add(((Block)tasks.get(b)).call());
+	    }
+	    return;
+	}
+	List futures=pool.invokeAll(tasks);
+	try{
+	    for(int b=0;b<blocks;b++){
+		total.add((Sums)((Future)futures.get(b)).get());
+	    }
+	}catch(InterruptedException ie){
+	    Thread.currentThread().interrupt();
+	    throw new IllegalStateException("sampling interrupted");
+	}catch(ExecutionException ee){
+	    throw new IllegalStateException("sampling failed: "+ee.getCause());
+	}
+    }
+
+    private final class Block implements Callable{
+	private final SplittableRandom stream;
+	private final int count;
+
+	Block(SplittableRandom stream,int count){
+	    this.stream=stream;
+	    this.count=count;
+	}
+
+	public Sums call(){
+	    Sums result=new Sums(cpts);
+	    int[] inst=new int[size];
+	    int[] bases=new int[size];
+	    for(int c=0;c<count;c++){
+		result.add(inst,bases,model.childStride,weigh(stream,inst,bases));
+	    }
+	    return result;
+	}
+    }
+
+    /** one sample into inst, and the cpt row of every variable into bases
+	@return the sample's weight */
+    private double weigh(SplittableRandom stream,int[] inst,int[] bases){
+	double w=1;
+	int[] order=model.order;
+	for(int k=0;k<size;k++){
+	    int v=order[k];
+	    int base=model.base(v,inst,0);
+	    bases[v]=base;
+	    if(evidence[v]>=0){
+		inst[v]=evidence[v];
+		w*=cpts[v].values()[base+evidence[v]*model.childStride[v]];
+	    }else{
+		int s=importance.draw(v,stream,base);
+		inst[v]=s;
+		if(proposal!=null){
+		    int i=base+s*model.childStride[v];
+		    w*=cpts[v].values()[i]/proposal[v][i];
+		}
+	    }
+	}
+	return w;
+    }
+
+    /** The AIS-BN stages, leaving the learned function in proposal. */
+    private void learn(){
+	proposal=new double[size][];
+	boolean[] evidenceParent=new boolean[size];
+	for(int v=0;v<size;v++){
+	    if(evidence[v]>=0){
+		IntSet vars=cpts[v].vars();
+		for(int i=0;i<vars.size();i++){
+		    evidenceParent[vars.get(i)]=true;
+		}
+	    }
+	}
+	for(int v=0;v<size;v++){
+	    proposal[v]=cpts[v].values().clone();
+	    if(evidence[v]>=0){
+		continue;
+	    }
+	    if(evidenceParent[v]){
+		java.util.Arrays.fill(proposal[v],1.0/model.cardinality[v]);
+	    }else{
+		cutoff(proposal[v],model.childStride[v],model.cardinality[v]);
+	    }
+	}
+	importance=sampler();
+	for(int k=0;k<stages;k++){
+	    Sums stage=new Sums(cpts);
+	    for(long left=stageSamples;left>0;left-=INT_BLOCK_SIZE*(long)threads){
+		run(Math.min(left,INT_BLOCK_SIZE*(long)threads),stage);
+	    }
+	    double rate=DOUBLE_RATE_A*Math.pow(DOUBLE_RATE_B/DOUBLE_RATE_A,(double)k/stages);
+	    for(int v=0;v<size;v++){
+		if(evidence[v]<0){
+		    update(proposal[v],stage.family[v],model.childStride[v],model.cardinality[v],rate);
+		}
+	    }
+	    importance=sampler();
+	}
+    }
+
+    private ForwardSampler sampler(){
+	Table[] tables=new Table[size];
+	for(int v=0;v<size;v++){
+	    tables[v]=new Table(cpts[v],proposal[v]);
+	}
+	return new ForwardSampler(tables);
+    }
+
+    /** raise every entry below the cutoff to it, renormalizing each row */
+    private static void cutoff(double[] vals,int stride,int card){
+	double theta=Math.min(DOUBLE_CUTOFF,0.5/card);
+	int block=stride*card;
+	for(int base=0;base<vals.length;base+=block){
+	    for(int offset=0;offset<stride;offset++){
+		double total=0;
+		for(int s=0,i=base+offset;s<card;s++,i+=stride){
+		    vals[i]=Math.max(vals[i],theta);
+		    total+=vals[i];
+		}
+		for(int s=0,i=base+offset;s<card;s++,i+=stride){
+		    vals[i]/=total;
+		}
+	    }
+	}
+    }
+
+    /** q += rate*(estimate-q) in every row the stage's samples reached */
+    private static void update(double[] q,double[] weights,int stride,int card,double rate){
+	int block=stride*card;
+	for(int base=0;base<q.length;base+=block){
+	    for(int offset=0;offset<stride;offset++){
+		double total=0;
+		for(int s=0,i=base+offset;s<card;s++,i+=stride){
+		    total+=weights[i];
+		}
+		if(total>0){
+		    for(int s=0,i=base+offset;s<card;s++,i+=stride){
+			q[i]+=rate*(weights[i]/total-q[i]);
+		    }
+		}
+	    }
+	}
+    }
+
+    /** Weight sums: the total and its square, and per family instantiation. */
+    private static final class Sums{
+	long count;
+	double weight;
+	double squares;
+	final double[][] family;
+	final double[][] stateSquares;//per variable and state, the sum of squared weights
+
+	Sums(Table[] cpts){
+	    family=new double[cpts.length][];
+	    stateSquares=new double[cpts.length][];
+	    for(int v=0;v<cpts.length;v++){
+		family[v]=new double[cpts[v].values().length];
+		stateSquares[v]=new double[cpts[v].domain().size(v)];
+	    }
+	}
+
+	void add(int[] inst,int[] bases,int[] strides,double w){
+	    count++;
+	    if(w==0){
+		return;
+	    }
+	    double w2=w*w;
+	    weight+=w;
+	    squares+=w2;
+	    for(int v=0;v<family.length;v++){
+		family[v][bases[v]+inst[v]*strides[v]]+=w;
+		stateSquares[v][inst[v]]+=w2;
+	    }
+	}
+
+	void add(Sums other){
+	    count+=other.count;
+	    weight+=other.weight;
+	    squares+=other.squares;
+	    for(int v=0;v<family.length;v++){
+		double[] f=family[v],of=other.family[v];
+		for(int i=0;i<f.length;i++){
+		    f[i]+=of[i];
+		}
+		double[] q=stateSquares[v],oq=other.stateSquares[v];
+		for(int i=0;i<q.length;i++){
+		    q[i]+=oq[i];
+		}
+	    }
+	}
+    }
+
+    public double prEvidence(){
+	makeValid();
+	return sums.weight/sums.count;
+    }
+
+    public double logPrEvidence(){
+	return Math.log(prEvidence());
+    }
+
+    /** the standard error of {@link #prEvidence()} */
+    public double prEvidenceError(){
+	makeValid();
+	double n=sums.count;
+	double mean=sums.weight/n;
+	return Math.sqrt(Math.max(sums.squares/n-mean*mean,0)/n);
+    }
+
+    /** Kish's effective sample size, (sum w)^2/(sum w^2). */
+    public double effectiveSampleSize(){
+	makeValid();
+	return sums.squares==0 ? 0 : sums.weight*sums.weight/sums.squares;
+    }
+
+    public Table tableJoint(int table){
+	makeValid();
+	double[] f=sums.family[table];
+	double[] vals=new double[f.length];
+	for(int i=0;i<vals.length;i++){
+	    vals[i]=f[i]/sums.count;
+	}
+	return new Table(cpts[table],vals);
+    }
+
+    public Table tableConditional(int table){
+	return tableJoint(table).normalize();
+    }
+
+    public Table varJoint(int var){
+	return tableJoint(var).projectOnto(var);
+    }
+
+    public Table varConditional(int var){
+	return varJoint(var).normalize();
+    }
+
+    /** The standard errors of {@link #varConditional(int)}, by the delta
+	method for a ratio of weighted sums. */
+    public Table varConditionalError(int var){
+	Table p=varConditional(var);
+	double[] vals=p.values();
+	double[] q=sums.stateSquares[var];
+	double[] err=new double[vals.length];
+	double w2=sums.weight*sums.weight;
+	for(int s=0;s<err.length;s++){
+	    double x=vals[s];
+	    double variance=w2==0 ? 0 : ((1-2*x)*q[s]+x*x*sums.squares)/w2;
+	    err[s]=Math.sqrt(Math.max(variance,0));
+	}
+	return new Table(p,err);
+    }
+
+    public JoinTreeStats.Stat getClusterStats(){
+	return (JoinTreeStats.Stat)null;
+    }
+
+    public JoinTreeStats.Stat getSeparatorStats(){
+	return (JoinTreeStats.Stat)null;
+    }
+
+    public double getCompilationTime(){
+	return compilationTime;
+    }
+
+    public double getPropagationTime(){
+	return propagationTime;
+    }
+
+    public double getMemoryRequirements(){
+	double entries=0;
+	for(int v=0;v<size;v++){
+	    entries+=cpts[v].values().length;
+	}
+	//cumulative tables, the importance function, and the sums of each thread
+	return entries*8*(3+threads)/1024/1024;
+    }
+}
@@ -103,6 +103,23 @@ public class EliminationOrders{
      * @author Mark Chavira
      */
     public static Record minfill2( Collection subDomains, IntSet[] vars, int reps, Random seed ){
+      return minfill2( subDomains, vars, reps, seed, 0L );
+    }
+
+    /**
+     * minfill2 with the repetitions spread over the common fork-join pool.
+     * Each repetition shuffles with its own generator, seeded from
+     * <b>seed</b> up front, and is abandoned once one of its clusters is
+     * bigger than the best order found so far.  The order kept is the
+     * smallest, ties going to the earliest repetition, so for a given seed
+     * the result does not depend on the number of threads.
+     *
+     * @param budgetMillis if positive, repetitions not started within this
+     *   many milliseconds are skipped, and the result then depends on
+     *   timing; the first repetition always runs.
+     * @since 20261018
+     */
+    public static Record minfill2( Collection subDomains, IntSet[] vars, int reps, Random seed, long budgetMillis ){
 
       if( reps < 1 ) throw new IllegalArgumentException( "reps must be >= 1" );
 
@@ -143,22 +160,9 @@ public class EliminationOrders{
       if( seed == null ) seed = new Random();
 
       try {
-        il2.inf.structure.minfill2.MinfillEoe engine = new il2.inf.structure.minfill2.MinfillEoe();
-        int[] ans = null, best = null, worst = null;
-        double logmaxclustersize = Double.NaN, min = Double.MAX_VALUE, max = (double)0;
-        for( int i=0; i<reps; i++ ){
-          ans = engine.order( seed, cardinalities, g, partition );
-          logmaxclustersize = il2.inf.structure.minfill2.Util.logMaxClusterSize( ans, cardinalities, g );
-          if( logmaxclustersize < min ){
-            min = logmaxclustersize;
-            best = ans;
-          }
-          if( logmaxclustersize > max ){
-            max = logmaxclustersize;
-            worst = ans;
-          }
-        }
-        //System.out.println( "minfill2, best of " + reps + ": " + min + ", worst: " + max );
+        int[] best;
+        if( reps == 1 ) best = new il2.inf.structure.minfill2.MinfillEoe().order( seed, cardinalities, g, partition );
+        else best = bestMinfill2( cardinalities, g, partition, reps, seed, budgetMillis );
         return createRecord( subDomains, new IntList( best ) );
       }catch( Exception e ){
         System.err.println( e );
@@ -167,6 +171,58 @@ public class EliminationOrders{
 
     }
 
+    /** @since 20261018 */
+    private static int[] bestMinfill2( final int[] cardinalities, final int[][] g, final int[][] partition, int reps, Random seed, long budgetMillis ) throws Exception {
+      final long[] seeds = new long[reps];
+      for( int i=0; i<reps; i++ ) seeds[i] = seed.nextLong();
+      final long deadline = budgetMillis > 0 ? System.currentTimeMillis() + budgetMillis : Long.MAX_VALUE;
+      final il2.inf.structure.minfill2.EliminationOrderEngine.Bound bound = new il2.inf.structure.minfill2.EliminationOrderEngine.Bound( Double.POSITIVE_INFINITY );
+      final int[][] orders = new int[reps][];
+      final double[] sizes = new double[reps];
+
+      List attempts = new ArrayList( reps );
+      for( int i=0; i<reps; i++ ){
+        final int rep = i;
+        attempts.add( new java.util.concurrent.Callable(){
+          public Object call() throws Exception {
+            sizes[rep] = Double.POSITIVE_INFINITY;
+            if( rep > 0 && System.currentTimeMillis() >= deadline ) return null;
+            int[][] nodes = new int[partition.length][];
+            for( int j=0; j<nodes.length; j++ ) nodes[j] = (int[]) partition[j].clone();
+            int[] ans = new il2.inf.structure.minfill2.MinfillEoe().order( new Random( seeds[rep] ), cardinalities, g, nodes, bound );
+            if( ans == null ) return null;
+            sizes[rep] = il2.inf.structure.minfill2.Util.logMaxClusterSize( ans, cardinalities, g );
+            orders[rep] = ans;
+            bound.lower( sizes[rep] );
+            return null;
+          }
+        } );
+      }
+
+      java.util.concurrent.ForkJoinPool pool = java.util.concurrent.ForkJoinPool.commonPool();
+      if( pool.getParallelism() < 2 ){
+        for( Iterator it = attempts.iterator(); it.hasNext(); ) ((java.util.concurrent.Callable) it.next()).call();
+      }
+      else{
+        List futures = pool.invokeAll( attempts );
+        for( Iterator it = futures.iterator(); it.hasNext(); ){
+          try{
+            ((java.util.concurrent.Future) it.next()).get();
+          }catch( java.util.concurrent.ExecutionException ee ){
+            Throwable cause = ee.getCause();
+            if( cause instanceof Exception ) throw (Exception) cause;
+            throw ee;
+          }
+        }
+      }
+
+      int best = 0;
+      for( int i=1; i<reps; i++ ){
+        if( sizes[i] < sizes[best] ) best = i;
+      }
+      return orders[best];
+    }
+
     public static Record constrainedMinFill (Collection subDomains,IntSet eliminateLast) {
       IntSet all = variables (subDomains);
       IntSet eliminateFirst = new IntSet ();
@@ -432,6 +488,13 @@ public class EliminationOrders{
         return new JT( order, tree, clusterMap, domain, c, bn2 );
     }
 
+	/** A jointree computed earlier, e.g. one read back by il2.bridge.CompiledModel.
+		@since 20261018 */
+	public static JT joinTree( IntList order, Graph tree, Map clusters, Domain domain, il2.bridge.Converter c, BayesianNetwork bn2 )
+	{
+		return new JT( order, tree, clusters, domain, c, bn2 );
+	}
+
 	/** @since 012904 */
 	public static JT traditionalJoinTree( BayesianNetwork bn2, il2.bridge.Converter c, IntList order )
 	{
@@ -115,6 +115,50 @@ public abstract class EliminationOrderEngine {
   public int[] order (
    java.util.Random r, int[] cardinalities, int[][] g, int[][] nodes)
    throws Exception {
+    return order (r, cardinalities, g, nodes, null);
+  }
+
+  /**
+   * A lower bound shared by concurrent calls to order: the log base two of
+   * the smallest maximum cluster size found so far.
+   *
+   * @since 20261018
+   */
+
+  public static final class Bound {
+    private volatile double value;
+
+    public Bound (double value) {
+      this.value = value;
+    }
+
+    public double get () {
+      return value;
+    }
+
+    /** Lowers the bound to value if that is smaller. */
+    public synchronized void lower (double value) {
+      if (value < this.value) {
+        this.value = value;
+      }
+    }
+  }
+
+  /**
+   * Like order(r, cardinalities, g, nodes), but gives up as soon as a
+   * cluster is strictly bigger than the bound, since the order can then no
+   * longer beat the best order found so far.  Clusters are sized exactly as
+   * in Util.logMaxClusterSize.
+   *
+   * @param bound the bound; may be null, in which case the order is always
+   *   completed.
+   * @return the order, or null if it was abandoned.
+   * @since 20261018
+   */
+
+  public int[] order (
+   java.util.Random r, int[] cardinalities, int[][] g, int[][] nodes,
+   Bound bound) throws Exception {
 
     // Create some data structures for use throughout.  N is the number of
     // nodes.  At various times, we will mark a certain nodes n by setting
@@ -148,6 +192,8 @@ public abstract class EliminationOrderEngine {
     int ansIndex = 0;
     IntPriorityQueue pq =
       new IntPriorityQueue (N);
+    double[] logCardinalities =
+      bound == null ? null : Util.logCardinalities (cardinalities);
     begin (cardinalities, adj, adjSize, marked);
 
     // For each element of the partition of the subset of nodes we are to
@@ -190,6 +236,17 @@ public abstract class EliminationOrderEngine {
         int removed = pq.remove ();
         ans[ansIndex++] = removed;
 
+        if (bound != null) {
+          double clusterSize = logCardinalities[removed];
+          for (int j = 0; j < adjSize[removed]; j++) {
+            clusterSize += logCardinalities[adj[removed][j]];
+          }
+          if (clusterSize > bound.get ()) {
+            end ();
+            return null;
+          }
+        }
+
         //java.io.PrintStream out = System.out;
         //out.println ("Removing " + removed);
         Util.prepareForUpdate (adj, adjSize, removed, marked, marked2);
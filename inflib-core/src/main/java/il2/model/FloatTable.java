@@ -0,0 +1,170 @@
+package il2.model;
+
+import il2.util.*;
+
+/** A table of single precision entries scaled by a power of two:
+    entry i stands for values[i]*2^exponent.
+
+    Kernels compute in double and round once when they store, and they
+    keep the largest entry in [1,2) by moving powers of two into the
+    exponent.  Entries therefore underflow only relative to the largest
+    entry of their own table, never in absolute terms, and a table takes
+    half the memory of a {@link Table}.
+
+    @since 20261018 */
+public class FloatTable extends Index{
+    float[] values;
+    int exponent;
+
+    public FloatTable(Domain d,IntSet vars){
+	super(d,vars);
+	values=new float[this.sizeInt()];
+    }
+
+    public float[] values(){
+	return values;
+    }
+
+    public int exponent(){
+	return exponent;
+    }
+
+    public double get(int i){
+	return Math.scalb((double)values[i],exponent);
+    }
+
+    /** Set this table to the product of <b>tables</b>, whose variables
+	are all among this table's. */
+    public void setToProduct(Table[] tables){
+	double[][] vals=new double[tables.length][];
+	int[][] fc=new int[tables.length][];
+	for(int j=0;j<tables.length;j++){
+	    vals[j]=tables[j].values();
+	    fc[j]=tables[j].flipChange(this);
+	}
+	int[] current=new int[vars.size()];
+	int[] inds=new int[tables.length];
+	double max=0;
+	for(int i=0;i<values.length;i++){
+	    max=Math.max(max,Math.abs(product(vals,inds)));
+	    advance(current,inds,fc);
+	}
+	int shift=max==0 ? 0 : Math.getExponent(max);
+	java.util.Arrays.fill(inds,0);
+	for(int i=0;i<values.length;i++){
+	    values[i]=(float)Math.scalb(product(vals,inds),-shift);
+	    advance(current,inds,fc);
+	}
+	exponent=shift;
+    }
+
+    private static double product(double[][] vals,int[] inds){
+	double v=1;
+	for(int j=0;j<vals.length;j++){
+	    v*=vals[j][inds[j]];
+	}
+	return v;
+    }
+
+    private void advance(int[] current,int[] inds,int[][] fc){
+	int f=next(current);
+	if(f>=0){
+	    for(int j=0;j<inds.length;j++){
+		inds[j]+=fc[j][f];
+	    }
+	}
+    }
+
+    /** Multiply by the entries small[k]*2^smallExponent of a table over a
+	subset of this table's variables, whose flip changes over this
+	table are <b>fc</b>.  A first pass finds the largest product, so
+	that the products are scaled before they are rounded. */
+    public void multiplyInto(double[] small,int smallExponent,int[] fc){
+	int[] current=new int[vars.size()];
+	int ind=0;
+	double max=0;
+	int bound=values.length-1;
+	for(int i=0;i<bound;i++){
+	    max=Math.max(max,Math.abs(values[i]*small[ind]));
+	    ind+=fc[next(current)];
+	}
+	max=Math.max(max,Math.abs(values[bound]*small[ind]));
+	int shift=max==0 ? 0 : Math.getExponent(max);
+	java.util.Arrays.fill(current,0);
+	ind=0;
+	for(int i=0;i<bound;i++){
+	    values[i]=(float)Math.scalb(values[i]*small[ind],-shift);
+	    ind+=fc[next(current)];
+	}
+	values[bound]=(float)Math.scalb(values[bound]*small[ind],-shift);
+	exponent+=smallExponent+shift;
+    }
+
+    /** Sum the entries, without the exponent, into dest[k] of a table
+	over a subset of this table's variables whose flip changes over
+	this table are <b>fc</b>; dest must hold zeros. */
+    public void projectInto(double[] dest,int[] fc){
+	int[] current=new int[vars.size()];
+	int ind=0;
+	int bound=values.length-1;
+	for(int i=0;i<bound;i++){
+	    dest[ind]+=values[i];
+	    ind+=fc[next(current)];
+	}
+	dest[ind]+=values[bound];
+    }
+
+    /** Set <b>dest</b>, over a subset of this table's variables, to the
+	projection of this table, exponent included. */
+    public void projectInto(Table dest){
+	double[] dv=dest.values();
+	java.util.Arrays.fill(dv,0);
+	projectInto(dv,dest.flipChange(this));
+	for(int i=0;i<dv.length;i++){
+	    dv[i]=Math.scalb(dv[i],exponent);
+	}
+    }
+
+    /** Store src[k]*2^exp, for a table with the same variables. */
+    public void set(double[] src,int exp){
+	for(int i=0;i<values.length;i++){
+	    values[i]=(float)src[i];
+	}
+	exponent=exp;
+    }
+
+    /** the sum of the entries without the exponent */
+    public double sum(){
+	double total=0;
+	for(int i=0;i<values.length;i++){
+	    total+=values[i];
+	}
+	return total;
+    }
+
+    public Table projectOnto(int var){
+	Table result=new Table(domain,IntSet.singleton(var));
+	projectInto(result);
+	return result;
+    }
+
+    /** Scale the first <b>length</b> entries of <b>vals</b> by a power of
+	two so the largest lies in [1,2).
+	@return the power of two divided out */
+    public static int normalize(double[] vals,int length){
+	double max=0;
+	for(int i=0;i<length;i++){
+	    max=Math.max(max,Math.abs(vals[i]));
+	}
+	if(max==0 || Double.isInfinite(max) || Double.isNaN(max)){
+	    return 0;
+	}
+	int shift=Math.getExponent(max);
+	if(shift!=0){
+	    for(int i=0;i<length;i++){
+		vals[i]=Math.scalb(vals[i],-shift);
+	    }
+	}
+	return shift;
+    }
+}
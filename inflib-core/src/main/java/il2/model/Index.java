@@ -18,6 +18,7 @@ public class Index implements SubDomain
     private double mySizeDouble;
     private boolean myFlagOverflowsDouble = true;
     private BigInteger mySizeBig;
+    private long[] myStepSizesLong;
 
     public static final BigInteger BIGINTEGER_INT_MAX_VALUE = BigInteger.valueOf( (long)(Integer.MAX_VALUE-((int)2)) );
     public static final BigInteger BIGINTEGER_LONG_MAX_VALUE = BigInteger.valueOf( Long.MAX_VALUE-((long)2) );
@@ -90,6 +91,21 @@ public class Index implements SubDomain
 	return stepSizes;
     }
 
+    /** True if the number of entries does not fit an int, so only the
+	long-indexed operations apply.
+	@since 20261018 */
+    public boolean overflowsInt(){
+	return myFlagOverflowsInt;
+    }
+
+    /** {@link #stepSizes()} as longs, for indices too big for an int.
+	@since 20261018 */
+    public long[] stepSizesLong(){
+	if( myFlagOverflowsLong ) throw new IllegalStateException( makeOverflowMessage( "long" ) );
+	if( myStepSizesLong == null ) myStepSizesLong = ArrayUtils.cumProdAsLong( sizes );
+	return myStepSizesLong;
+    }
+
     public int sizeInt(){
     	if( myFlagOverflowsInt ) throw new IllegalStateException( makeOverflowMessage( "int" ) );
 	return stepSizes[stepSizes.length-1];
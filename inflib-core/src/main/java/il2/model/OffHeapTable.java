@@ -0,0 +1,226 @@
+package il2.model;
+
+import il2.util.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+
+/** A {@link Table} whose entries live outside the Java heap and are
+    indexed with longs, for cluster tables too big for a double[].
+
+    Entries are kept in pages of direct (or, with a {@link
+    #setDirectory(File) directory}, memory mapped) buffers, 2^27 doubles
+    each.  Only the operations the Hugin join tree needs are supported on
+    the table itself: {@link #fill(double)}, {@link
+    #multiplyInto2(Table)}, {@link #multiplyVarIndicators(int,double[])},
+    {@link #sum()} and {@link #projectOnto(int)}, plus {@link
+    Table#projectInto2(Table)} with an off-heap table as the source.
+    Each visits the entries in the same order as the on-heap loop, so
+    the results are the same.  {@link #values()} throws.
+
+    Direct buffers count against -XX:MaxDirectMemorySize; mapped files do
+    not.
+
+    @since 20261018 */
+public class OffHeapTable extends Table{
+    /** default for {@link #getThreshold()}: the largest size an int index allows */
+    public static final long LONG_THRESHOLD_DEFAULT=Index.BIGINTEGER_INT_MAX_VALUE.longValue();
+
+    private static final int INT_PAGE_SHIFT=27;
+    private static final int INT_PAGE_SIZE=1<<INT_PAGE_SHIFT;
+
+    private static volatile long threshold=LONG_THRESHOLD_DEFAULT;
+    private static volatile File directory;
+
+    private final long size;
+    private final DoubleBuffer[] pages;
+
+    /** Tables of more than this many entries are allocated off-heap by
+	{@link #create(Domain,IntSet)}. */
+    public static long getThreshold(){
+	return threshold;
+    }
+
+    public static void setThreshold(long entries){
+	if(entries<0 || entries>LONG_THRESHOLD_DEFAULT){
+	    throw new IllegalArgumentException("threshold must be between 0 and "+LONG_THRESHOLD_DEFAULT);
+	}
+	threshold=entries;
+    }
+
+    /** where new tables map their backing files, or null (the default)
+	for anonymous direct memory */
+    public static File getDirectory(){
+	return directory;
+    }
+
+    public static void setDirectory(File dir){
+	directory=dir;
+    }
+
+    /** An on-heap table if it is small enough, otherwise an off-heap one. */
+    public static Table create(Domain d,IntSet vars){
+	Index index=new Index(d,vars);
+	if(!index.overflowsInt() && index.sizeLong()<=threshold){
+	    return new Table(d,vars);
+	}
+	return new OffHeapTable(d,vars);
+    }
+
+    public OffHeapTable(Domain d,IntSet vars){
+	super(d,vars,null);
+	size=sizeLong();
+	pages=new DoubleBuffer[(int)((size+INT_PAGE_SIZE-1)>>>INT_PAGE_SHIFT)];
+	File dir=directory;
+	try{
+	    if(dir==null){
+		for(int p=0;p<pages.length;p++){
+		    pages[p]=ByteBuffer.allocateDirect(pageLength(p)*8).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+		}
+	    }else{
+		map(dir);
+	    }
+	}catch(IOException e){
+	    throw new IllegalStateException("cannot map "+size+" entries in "+dir+": "+e.getMessage(),e);
+	}
+    }
+
+    /** The mapping outlives the file, which is deleted straight away. */
+    private void map(File dir) throws IOException{
+	File file=File.createTempFile("il2table",".bin",dir);
+	try{
+	    RandomAccessFile raf=new RandomAccessFile(file,"rw");
+	    try{
+		FileChannel channel=raf.getChannel();
+		for(int p=0;p<pages.length;p++){
+		    long start=((long)p)<<INT_PAGE_SHIFT;
+		    pages[p]=channel.map(FileChannel.MapMode.READ_WRITE,start*8,pageLength(p)*8L).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+		}
+	    }finally{
+		raf.close();
+	    }
+	}finally{
+	    file.delete();
+	}
+    }
+
+    private int pageLength(int p){
+	long start=((long)p)<<INT_PAGE_SHIFT;
+	return (int)Math.min(INT_PAGE_SIZE,size-start);
+    }
+
+    public double[] values(){
+	throw new UnsupportedOperationException("the "+size+" entries of "+vars()+" are off-heap");
+    }
+
+    public double get(long i){
+	return pages[(int)(i>>>INT_PAGE_SHIFT)].get((int)i&(INT_PAGE_SIZE-1));
+    }
+
+    public void set(long i,double v){
+	pages[(int)(i>>>INT_PAGE_SHIFT)].put((int)i&(INT_PAGE_SIZE-1),v);
+    }
+
+    public void fill(double v){
+	for(int p=0;p<pages.length;p++){
+	    DoubleBuffer page=pages[p];
+	    for(int i=page.limit()-1;i>=0;i--){
+		page.put(i,v);
+	    }
+	}
+    }
+
+    public double sum(){
+	double total=0;
+	for(int p=0;p<pages.length;p++){
+	    DoubleBuffer page=pages[p];
+	    int len=page.limit();
+	    for(int i=0;i<len;i++){
+		total+=page.get(i);
+	    }
+	}
+	return total;
+    }
+
+    public void multiplyInto2(Table t){
+	double[] vals=t.values();
+	int[] fc=t.flipChange(this);
+	int[] current=new int[vars.size()];
+	int ind=0;
+	for(int p=0;p<pages.length;p++){
+	    DoubleBuffer page=pages[p];
+	    int len=page.limit();
+	    for(int i=0;i<len;i++){
+		page.put(i,page.get(i)*vals[ind]);
+		int f=next(current);
+		if(f>=0){
+		    ind+=fc[f];
+		}
+	    }
+	}
+    }
+
+    /** small.projectInto2(this) */
+    void sumInto(Table small){
+	double[] vals=small.values();
+	int[] fc=small.flipChange(this);
+	int[] current=new int[vars.size()];
+	int ind=0;
+	java.util.Arrays.fill(vals,0);
+	for(int p=0;p<pages.length;p++){
+	    DoubleBuffer page=pages[p];
+	    int len=page.limit();
+	    for(int i=0;i<len;i++){
+		vals[ind]+=page.get(i);
+		int f=next(current);
+		if(f>=0){
+		    ind+=fc[f];
+		}
+	    }
+	}
+    }
+
+    public void multiplyVarIndicators(int var,double[] vals){
+	int ind=vars.indexOf(var);
+	if(ind<0){
+	    throw new IllegalArgumentException(var+" not contained");
+	}
+	if(vals.length!=sizes[ind]){
+	    throw new IllegalArgumentException("vals wrong size");
+	}
+	long ss=stepSizesLong()[ind];
+	for(long i=0;i<size;){
+	    for(int j=0;j<vals.length;j++){
+		long bound=i+ss;
+		double v=vals[j];
+		if(v!=1){
+		    for(;i<bound;i++){
+			set(i,get(i)*v);
+		    }
+		}
+		i=bound;
+	    }
+	}
+    }
+
+    public Table projectOnto(int var){
+	int ind=vars().indexOf(var);
+	long ss=stepSizesLong()[ind];
+	double[] vals=new double[sizes()[ind]];
+	int current=0;
+	for(long i=0;i<size;){
+	    double total=0;
+	    for(long j=0;j<ss;j++,i++){
+		total+=get(i);
+	    }
+	    vals[current]+=total;
+	    current=(current+1)%vals.length;
+	}
+	return new Table(domain,IntSet.singleton(var),vals);
+    }
+}
@@ -0,0 +1,323 @@
+package il2.model;
+
+import il2.util.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/** Block-parallel versions of the {@link Table} kernels that walk a whole
+    index with next()/flipChange().
+
+    The enumeration index is split into <b>block variables</b> and the
+    remaining variables.  Each block is one instantiation of the block
+    variables; its starting offset into every table involved is computed
+    directly, and its entries are then enumerated with the usual
+    flip-change loop.  When a kernel projects, the block variables are
+    drawn from the destination's variables only, so no two blocks write
+    the same destination entry and every entry accumulates its terms in
+    the same order as the serial loop.  Results are therefore identical
+    to those of the serial kernels.
+
+    Kernels run on the fork-join pool of the calling thread if there is
+    one, otherwise on the common pool.
+
+    @since 20261018 */
+public class ParallelKernels{
+    /** default for {@link #getThreshold()} */
+    public static final int INT_THRESHOLD_DEFAULT=1<<20;
+
+    private static volatile int threshold=INT_THRESHOLD_DEFAULT;
+
+    private ParallelKernels(){}
+
+    /** Tables whose enumeration index is smaller than this many entries
+	use the serial loops.  Set to Integer.MAX_VALUE to disable the
+	parallel kernels altogether. */
+    public static int getThreshold(){
+	return threshold;
+    }
+
+    public static void setThreshold(int entries){
+	if(entries<1){
+	    throw new IllegalArgumentException("threshold must be positive");
+	}
+	threshold=entries;
+    }
+
+    private static int parallelism(){
+	ForkJoinPool pool=ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool() : ForkJoinPool.commonPool();
+	return pool.getParallelism();
+    }
+
+    /** True if an enumeration of <b>size</b> entries should be split. */
+    static boolean worthwhile(int size){
+	return size>=threshold && parallelism()>1;
+    }
+
+    private static void execute(RecursiveAction task){
+	if(ForkJoinTask.inForkJoinPool()){
+	    task.invoke();
+	}else{
+	    ForkJoinPool.commonPool().invoke(task);
+	}
+    }
+
+    /** Choose block variables from <b>candidates</b>, slowest first,
+	until there are enough blocks to keep every worker busy.
+	@return null if the candidates cannot be split usefully */
+    private static IntSet blockVars(Index enumeration,IntSet candidates){
+	int target=4*parallelism();
+	IntSet vars=enumeration.vars();
+	Domain d=enumeration.domain();
+	IntSet result=new IntSet();
+	long blocks=1;
+	for(int i=vars.size()-1;i>=0 && blocks<target;i--){
+	    int v=vars.get(i);
+	    if(candidates.contains(v)){
+		result.add(v);
+		blocks*=d.size(v);
+	    }
+	}
+	return blocks<2 ? null : result;
+    }
+
+    /** Offsets into a set of tables for every block, plus the flip
+	changes that walk the rest of the enumeration index. */
+    private static final class Plan{
+	final Index rest;
+	final int restSize;
+	final int blockCount;
+	final int[] blockSizes;
+	final int[][] blockStrides;
+	final int[][] flipChanges;
+
+	Plan(Index enumeration,IntSet blockVars,Index[] targets){
+	    Domain d=enumeration.domain();
+	    IntSet restVars=enumeration.vars().diff(blockVars);
+	    rest=new Index(d,restVars);
+	    restSize=rest.sizeInt();
+	    blockSizes=d.getSizes(blockVars);
+	    int count=1;
+	    for(int i=0;i<blockSizes.length;i++){
+		count*=blockSizes[i];
+	    }
+	    blockCount=count;
+	    blockStrides=new int[targets.length][blockSizes.length];
+	    flipChanges=new int[targets.length][restVars.size()];
+	    for(int t=0;t<targets.length;t++){
+		for(int i=0;i<blockSizes.length;i++){
+		    blockStrides[t][i]=stride(targets[t],blockVars.get(i));
+		}
+		int[] fc=flipChanges[t];
+		int reset=0;
+		for(int i=0;i<fc.length;i++){
+		    int v=restVars.get(i);
+		    int st=stride(targets[t],v);
+		    fc[i]=st-reset;
+		    reset+=st*(d.size(v)-1);
+		}
+	    }
+	}
+
+	private static int stride(Index target,int var){
+	    int ind=target.vars().indexOf(var);
+	    return ind<0 ? 0 : target.stepSizes()[ind];
+	}
+
+	/** starting offset of <b>block</b> into each target */
+	void offsets(int block,int[] dest){
+	    java.util.Arrays.fill(dest,0);
+	    for(int i=0;i<blockSizes.length;i++){
+		int digit=block%blockSizes[i];
+		block/=blockSizes[i];
+		for(int t=0;t<dest.length;t++){
+		    dest[t]+=digit*blockStrides[t][i];
+		}
+	    }
+	}
+    }
+
+    /** Visits blocks [low,high), splitting the range across the pool. */
+    private static abstract class Blocks extends RecursiveAction{
+	final Plan plan;
+	final int low,high;
+
+	Blocks(Plan plan,int low,int high){
+	    this.plan=plan;
+	    this.low=low;
+	    this.high=high;
+	}
+
+	protected void compute(){
+	    if(high-low>1){
+		int mid=(low+high)>>>1;
+		invokeAll(split(low,mid),split(mid,high));
+		return;
+	    }
+	    int[] start=new int[plan.flipChanges.length];
+	    int[] current=new int[plan.rest.vars().size()];
+	    for(int b=low;b<high;b++){
+		plan.offsets(b,start);
+		java.util.Arrays.fill(current,0);
+		block(start,current);
+	    }
+	}
+
+	abstract Blocks split(int low,int high);
+	abstract void block(int[] start,int[] current);
+    }
+
+    /** Parallel {@link Table#projectInto2(Table)}.
+	@return false, having done nothing, if the projection cannot be split */
+    static boolean projectInto(final Table small,final Table big){
+	IntSet bv=blockVars(big,small.vars());
+	if(bv==null){
+	    return false;
+	}
+	java.util.Arrays.fill(small.values,0);
+	execute(new ProjectBlocks(new Plan(big,bv,new Index[]{big,small}),small.values,big.values,0,-1));
+	return true;
+    }
+
+    private static final class ProjectBlocks extends Blocks{
+	final double[] small,big;
+	ProjectBlocks(Plan plan,double[] small,double[] big,int low,int high){
+	    super(plan,low,high<0 ? plan.blockCount : high);
+	    this.small=small;
+	    this.big=big;
+	}
+	Blocks split(int low,int high){
+	    return new ProjectBlocks(plan,small,big,low,high);
+	}
+	void block(int[] start,int[] current){
+	    int[] fcBig=plan.flipChanges[0];
+	    int[] fcSmall=plan.flipChanges[1];
+	    Index rest=plan.rest;
+	    int i=start[0];
+	    int ind=start[1];
+	    int bound=plan.restSize-1;
+	    for(int n=0;n<bound;n++){
+		small[ind]+=big[i];
+		int f=rest.next(current);
+		i+=fcBig[f];
+		ind+=fcSmall[f];
+	    }
+	    small[ind]+=big[i];
+	}
+    }
+
+    /** Parallel {@link Table#multiplyInto2(Table)}. */
+    static boolean multiplyInto(final Table big,final Table small){
+	IntSet bv=blockVars(big,big.vars());
+	if(bv==null){
+	    return false;
+	}
+	execute(new MultiplyBlocks(new Plan(big,bv,new Index[]{big,small}),big.values,small.values,0,-1));
+	return true;
+    }
+
+    private static final class MultiplyBlocks extends Blocks{
+	final double[] big,small;
+	MultiplyBlocks(Plan plan,double[] big,double[] small,int low,int high){
+	    super(plan,low,high<0 ? plan.blockCount : high);
+	    this.big=big;
+	    this.small=small;
+	}
+	Blocks split(int low,int high){
+	    return new MultiplyBlocks(plan,big,small,low,high);
+	}
+	void block(int[] start,int[] current){
+	    int[] fcBig=plan.flipChanges[0];
+	    int[] fcSmall=plan.flipChanges[1];
+	    Index rest=plan.rest;
+	    int i=start[0];
+	    int ind=start[1];
+	    int bound=plan.restSize-1;
+	    for(int n=0;n<bound;n++){
+		big[i]*=small[ind];
+		int f=rest.next(current);
+		i+=fcBig[f];
+		ind+=fcSmall[f];
+	    }
+	    big[i]*=small[ind];
+	}
+    }
+
+    /** Parallel {@link Table#setToProduct(Table[])}. */
+    static boolean setToProduct(Table dest,Table[] tables){
+	IntSet bv=blockVars(dest,dest.vars());
+	if(bv==null){
+	    return false;
+	}
+	execute(new ProductBlocks(plan(dest,bv,dest,tables),dest.values,values(tables),false,0,-1));
+	return true;
+    }
+
+    /** Parallel {@link Table#multiplyAndProjectInto(Table[])}, enumerating
+	<b>big</b>, the union of the variables of <b>dest</b> and <b>tables</b>. */
+    static boolean multiplyAndProjectInto(Table dest,Table[] tables,Index big){
+	IntSet bv=blockVars(big,dest.vars());
+	if(bv==null){
+	    return false;
+	}
+	java.util.Arrays.fill(dest.values,0);
+	execute(new ProductBlocks(plan(big,bv,dest,tables),dest.values,values(tables),true,0,-1));
+	return true;
+    }
+
+    private static Plan plan(Index enumeration,IntSet blockVars,Table dest,Table[] tables){
+	Index[] targets=new Index[tables.length+1];
+	targets[0]=dest;
+	System.arraycopy(tables,0,targets,1,tables.length);
+	return new Plan(enumeration,blockVars,targets);
+    }
+
+    private static double[][] values(Table[] tables){
+	double[][] vals=new double[tables.length][];
+	for(int i=0;i<vals.length;i++){
+	    vals[i]=tables[i].values;
+	}
+	return vals;
+    }
+
+    /** products of all the tables, either stored (dest has the same
+	variables as the enumeration) or summed into dest */
+    private static final class ProductBlocks extends Blocks{
+	final double[] dest;
+	final double[][] vals;
+	final boolean accumulate;
+	ProductBlocks(Plan plan,double[] dest,double[][] vals,boolean accumulate,int low,int high){
+	    super(plan,low,high<0 ? plan.blockCount : high);
+	    this.dest=dest;
+	    this.vals=vals;
+	    this.accumulate=accumulate;
+	}
+	Blocks split(int low,int high){
+	    return new ProductBlocks(plan,dest,vals,accumulate,low,high);
+	}
+	void block(int[] start,int[] current){
+	    int[][] fc=plan.flipChanges;
+	    Index rest=plan.rest;
+	    int[] inds=start;
+	    int count=plan.restSize;
+	    for(int n=0;n<count;n++){
+		double v=1;
+		for(int j=0;j<vals.length;j++){
+		    v*=vals[j][inds[j+1]];
+		}
+		if(accumulate){
+		    dest[inds[0]]+=v;
+		}else{
+		    dest[inds[0]]=v;
+		}
+		if(n+1<count){
+		    int f=rest.next(current);
+		    for(int j=0;j<inds.length;j++){
+			inds[j]+=fc[j][f];
+		    }
+		}
+	    }
+	}
+    }
+}
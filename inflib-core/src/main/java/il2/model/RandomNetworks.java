@@ -4,4 +4,30 @@ public class RandomNetworks{
     public static BayesianNetwork generate(int nodes,int width){
 	return new Converter().convert(edu.ucla.belief.RandomNetworks.randomNetwork(nodes,width));
     }
+
+    /** The same network, with the same variable numbering, for the same
+	arguments, e.g. for benchmarks.
+	@since 20261018 */
+    public static BayesianNetwork generate(int nodes,int width,long seed){
+	return convert(edu.ucla.belief.RandomNetworks.randomNetwork(nodes,width,new java.util.Random(seed)),new Converter());
+    }
+
+    /** Convert a network of edu.ucla.belief.RandomNetworks numbering
+	variable v<i>i</i> as i, a topological order, rather than by
+	{@link edu.ucla.belief.BeliefNetwork#topologicalOrder()}, which
+	varies from run to run.  <b>c</b> is left mapping between the two.
+	@since 20261018 */
+    public static BayesianNetwork convert(edu.ucla.belief.BeliefNetwork bn,Converter c){
+	java.util.List vars=new java.util.ArrayList(bn.size());
+	for(int i=0;i<bn.size();i++){
+	    vars.add(bn.forID("v"+i));
+	}
+	c.init(vars);
+	Table[] tables=new Table[vars.size()];
+	for(int i=0;i<tables.length;i++){
+	    edu.ucla.belief.FiniteVariable fv=(edu.ucla.belief.FiniteVariable)vars.get(i);
+	    tables[i]=c.convert(fv.getCPTShell(fv.getDSLNodeType()).getCPT());
+	}
+	return new BayesianNetwork(tables);
+    }
 }
@@ -0,0 +1,263 @@
+package il2.model;
+
+import il2.util.*;
+
+/** A zero concious {@link Table} that knows which of its entries can
+    be skipped, so that the zero concious kernels visit only the others.
+
+    An entry is dead when it is not zero free and its value is 0: it has
+    met at least two zeros.  Multiplying and projecting leave a dead
+    entry dead and add nothing to any other entry.  An entry that is not
+    zero free, dead or not, adds nothing to a real projection either.
+    {@link #findRuns(boolean[])} records the live entries, and the zero
+    free ones, as sorted runs [start,end).  If at least {@link
+    #getThreshold()} of the entries are dead, {@link
+    #zeroConciousMultiplyInto(Table,boolean[])} and, with this table as
+    the source, {@link Table#zeroConciousProjectInto(Table,boolean[],boolean[])}
+    visit only the live runs; if at least that fraction is not zero free,
+    {@link Table#zeroConciousRealProjectInto(Table,boolean[])} visits only
+    the zero free runs.  Otherwise, and from {@link #makeDense()} until
+    the next findRuns(), the kernels visit every entry.
+
+    Until the table is refilled, entries only die or stop being zero
+    free, so the runs stay a superset of what they stand for: entries
+    that change after findRuns() cost time, not correctness.  The values
+    stay in one dense array, so every other reader of the table is
+    unaffected.
+
+    @since 20261018 */
+public class SparseTable extends Table{
+    /** default for {@link #getThreshold()} */
+    public static final double DOUBLE_THRESHOLD_DEFAULT=0.5;
+
+    private static volatile double threshold=DOUBLE_THRESHOLD_DEFAULT;
+
+    private final Runs live=new Runs();
+    private final Runs zeroFree=new Runs();
+
+    /** the fraction of skippable entries at which {@link
+	#findRuns(boolean[])} makes a kernel sparse */
+    public static double getThreshold(){
+	return threshold;
+    }
+
+    /** @param fraction above 1 to keep every table dense */
+    public static void setThreshold(double fraction){
+	if(!(fraction>=0)){
+	    throw new IllegalArgumentException("threshold must be non-negative");
+	}
+	threshold=fraction;
+    }
+
+    public SparseTable(Domain d,IntSet vars){
+	super(d,vars);
+    }
+
+    /** Record the runs of live and of zero free entries under zero free
+	flags <b>zc</b>, in one pass. */
+    public void findRuns(boolean[] zc){
+	live.clear();
+	zeroFree.clear();
+	boolean inLive=false,inFree=false;
+	for(int i=0;i<values.length;i++){
+	    boolean free=zc[i];
+	    boolean alive=free || values[i]!=0;
+	    if(alive!=inLive){
+		live.mark(i);
+		inLive=alive;
+	    }
+	    if(free!=inFree){
+		zeroFree.mark(i);
+		inFree=free;
+	    }
+	    if(alive){
+		live.entries++;
+	    }
+	    if(free){
+		zeroFree.entries++;
+	    }
+	}
+	double t=threshold;
+	live.close(values.length,inLive,t);
+	zeroFree.close(values.length,inFree,t);
+    }
+
+    /** Visit every entry again, as before the table is refilled. */
+    public void makeDense(){
+	live.count=-1;
+	zeroFree.count=-1;
+    }
+
+    public boolean isSparse(){
+	return live.count>=0;
+    }
+
+    /** the fraction of entries live as of the last {@link #findRuns(boolean[])} */
+    public double liveFraction(){
+	return values.length==0 ? 1 : (double)live.entries/values.length;
+    }
+
+    /** the fraction of entries zero free as of the last {@link #findRuns(boolean[])} */
+    public double zeroFreeFraction(){
+	return values.length==0 ? 1 : (double)zeroFree.entries/values.length;
+    }
+
+    /** Sorted runs [starts[r],ends[r]) of the entries some kernel needs,
+	or count -1 for all of them. */
+    private static final class Runs{
+	int[] starts=new int[16];
+	int[] ends=new int[16];
+	int count=-1;
+	int entries;
+	private int marks;
+
+	void clear(){
+	    count=-1;
+	    entries=0;
+	    marks=0;
+	}
+
+	/** a run starts or ends at i */
+	void mark(int i){
+	    int r=marks>>1;
+	    if(r==starts.length){
+		starts=java.util.Arrays.copyOf(starts,2*r);
+		ends=java.util.Arrays.copyOf(ends,2*r);
+	    }
+	    if((marks&1)==0){
+		starts[r]=i;
+	    }else{
+		ends[r]=i;
+	    }
+	    marks++;
+	}
+
+	void close(int size,boolean open,double threshold){
+	    if(open){
+		mark(size);
+	    }
+	    if(size==0 || size-entries<threshold*size){
+		count=-1;
+	    }else{
+		count=marks>>1;
+	    }
+	}
+    }
+
+    /** for each of this table's variables, its step in <b>small</b>, or 0 */
+    private int[] stepsIn(Table small){
+	int[] steps=small.stepSizes();
+	int[] result=new int[vars.size()];
+	for(int k=0;k<result.length;k++){
+	    int pos=small.vars.indexOf(vars.get(k));
+	    if(pos>=0){
+		result[k]=steps[pos];
+	    }
+	}
+	return result;
+    }
+
+    private static int offset(int[] steps,int[] current){
+	int ind=0;
+	for(int k=0;k<current.length;k++){
+	    ind+=steps[k]*current[k];
+	}
+	return ind;
+    }
+
+    public void zeroConciousMultiplyInto(Table t,boolean[] zc){
+	if(live.count<0){
+	    super.zeroConciousMultiplyInto(t,zc);
+	    return;
+	}
+	Runs runs=live;
+	double[] vals=t.values();
+	int[] fc=t.flipChange(this);
+	int[] steps=stepsIn(t);
+	int[] current=new int[vars.size()];
+	for(int r=0;r<runs.count;r++){
+	    int end=runs.ends[r];
+	    setFullInstanceFromIndex(runs.starts[r],current);
+	    int ind=offset(steps,current);
+	    for(int i=runs.starts[r];;){
+		if(vals[ind]==0 & zc[i]){
+		    zc[i]=false;
+		}else{
+		    values[i]*=vals[ind];
+		}
+		if(++i==end){
+		    break;
+		}
+		ind+=fc[next(current)];
+	    }
+	}
+    }
+
+    /** Table.zeroConciousRealProjectInto( this, zc ), if the zero free
+	entries are sparse
+	@return false to project densely */
+    boolean zeroConciousRealProjectOut(Table small,boolean[] zc){
+	if(zeroFree.count<0){
+	    return false;
+	}
+	Runs runs=zeroFree;
+	double[] sv=small.values;
+	int[] fc=small.flipChange(this);
+	int[] steps=stepsIn(small);
+	int[] current=new int[vars.size()];
+	java.util.Arrays.fill(sv,0);
+	for(int r=0;r<runs.count;r++){
+	    int end=runs.ends[r];
+	    setFullInstanceFromIndex(runs.starts[r],current);
+	    int ind=offset(steps,current);
+	    for(int i=runs.starts[r];;){
+		if(zc[i]){
+		    sv[ind]+=values[i];
+		}
+		if(++i==end){
+		    break;
+		}
+		ind+=fc[next(current)];
+	    }
+	}
+	return true;
+    }
+
+    /** Table.zeroConciousProjectInto( this, zc, zcDest ), if the live
+	entries are sparse
+	@return false to project densely */
+    boolean zeroConciousProjectOut(Table small,boolean[] zc,boolean[] zcDest){
+	if(live.count<0){
+	    return false;
+	}
+	Runs runs=live;
+	double[] sv=small.values;
+	java.util.Arrays.fill(zcDest,0,sv.length,false);
+	int[] fc=small.flipChange(this);
+	int[] steps=stepsIn(small);
+	int[] current=new int[vars.size()];
+	java.util.Arrays.fill(sv,0);
+	for(int r=0;r<runs.count;r++){
+	    int end=runs.ends[r];
+	    setFullInstanceFromIndex(runs.starts[r],current);
+	    int ind=offset(steps,current);
+	    for(int i=runs.starts[r];;){
+		if(zc[i]){
+		    if(zcDest[ind]){
+			sv[ind]+=values[i];
+		    }else{
+			zcDest[ind]=true;
+			sv[ind]=values[i];
+		    }
+		}else if(!zcDest[ind]){
+		    sv[ind]+=values[i];
+		}
+		if(++i==end){
+		    break;
+		}
+		ind+=fc[next(current)];
+	    }
+	}
+	return true;
+    }
+}
@@ -253,6 +253,9 @@ public class Table extends Index{
     }
 
     public void setToProduct(Table[] tables){
+	if(ParallelKernels.worthwhile(values.length) && ParallelKernels.setToProduct(this,tables)){
+	    return;
+	}
 	double[][] vals=new double[tables.length][];
 	for(int i=0;i<vals.length;i++){
 	    vals[i]=tables[i].values;
@@ -281,6 +284,13 @@ public class Table extends Index{
     }
 
     public void  projectInto2(Table big){
+	if(big instanceof OffHeapTable){
+	    ((OffHeapTable)big).sumInto(this);
+	    return;
+	}
+	if(ParallelKernels.worthwhile(big.values.length) && ParallelKernels.projectInto(this,big)){
+	    return;
+	}
 	double[] vals=big.values();
 	int[] fc=flipChange(big);
 	int[] current=new int[big.vars.size()];
@@ -295,6 +305,9 @@ public class Table extends Index{
 	values[ind]+=vals[bound];
     }
     public void multiplyInto2(Table t){
+	if(ParallelKernels.worthwhile(values.length) && ParallelKernels.multiplyInto(this,t)){
+	    return;
+	}
 	double[] vals=t.values();
 	int[] fc=t.flipChange(this);
 	int[] current=new int[vars.size()];
@@ -318,6 +331,13 @@ public class Table extends Index{
 	wholeThing.addAll(Arrays.asList(tables));
 	wholeThing.add(this);
 	Index big=Index.createBigIndex(wholeThing);
+	if(big.overflowsInt()){
+	    multiplyAndProjectIntoLong(vals,tables,big);
+	    return;
+	}
+	if(ParallelKernels.worthwhile(big.sizeInt()) && ParallelKernels.multiplyAndProjectInto(this,tables,big)){
+	    return;
+	}
 	int[][] fc=new int[vals.length][];
 	for(int i=0;i<tables.length;i++){
 	    fc[i]=tables[i].flipChange(big);
@@ -346,6 +366,36 @@ public class Table extends Index{
 	values[destInd]+=v;
     }
 
+    /** multiplyAndProjectInto() over an enumeration of more entries
+	than an int can count; the tables themselves are small enough.
+	@since 20261018 */
+    private void multiplyAndProjectIntoLong(double[][] vals,Table[] tables,Index big){
+	int[][] fc=new int[vals.length][];
+	for(int i=0;i<tables.length;i++){
+	    fc[i]=tables[i].flipChange(big);
+	}
+	int[] destFc=flipChange(big);
+	int destInd=0;
+	int[] current=new int[big.vars().size()];
+	int[] inds=new int[vals.length];
+	long bound=big.sizeLong();
+	for(long i=0;i<bound;i++){
+	    double v=1;
+	    for(int j=0;j<vals.length;j++){
+		v*=vals[j][inds[j]];
+	    }
+	    values[destInd]+=v;
+	    int f=big.next(current);
+	    if(f<0){
+		break;
+	    }
+	    for(int j=0;j<inds.length;j++){
+		inds[j]+=fc[j][f];
+	    }
+	    destInd+=destFc[f];
+	}
+    }
+
 	// AC: check this
     public void multiplyAndProjectMaxInto(Table[] tables){
 	java.util.Arrays.fill(values,0);
@@ -388,6 +438,9 @@ public class Table extends Index{
     }
 
     public void setToProduct(Table t1,Table t2){
+	if(ParallelKernels.worthwhile(values.length) && ParallelKernels.setToProduct(this,new Table[]{t1,t2})){
+	    return;
+	}
 	double[] v1=t1.values;
 	double[] v2=t2.values;
 	int[] fc1=t1.flipChange(this);
@@ -588,6 +641,11 @@ public class Table extends Index{
 	return buf.toString();
     }
 
+    /** @since 20261018 */
+    public void fill(double v){
+	java.util.Arrays.fill(values,v);
+    }
+
     public double sum(){
 	double total=0;
 	for(int i=0;i<values.length;i++){
@@ -840,6 +898,9 @@ public class Table extends Index{
     }
 
     public void zeroConciousRealProjectInto(Table big,boolean[] zc){
+	if(big instanceof SparseTable && ((SparseTable)big).zeroConciousRealProjectOut(this,zc)){
+	    return;
+	}
 	double[] vals=big.values();
 	int[] fc=flipChange(big);
 	int[] current=new int[big.vars.size()];
@@ -858,6 +919,9 @@ public class Table extends Index{
 	}
     }
     public void zeroConciousProjectInto(Table big,boolean[] zc,boolean[] zcDest){
+	if(big instanceof SparseTable && ((SparseTable)big).zeroConciousProjectOut(this,zc,zcDest)){
+	    return;
+	}
 	java.util.Arrays.fill(zcDest,0,values.length,false);
 	double[] vals=big.values();
 	int[] fc=flipChange(big);
@@ -111,6 +111,7 @@ public class CrouchingTiger{
 		edbp            ( edu.ucla.belief.approx.                EdgeDeletionEngineGenerator .class ),
 		loopybp         ( edu.ucla.belief.approx.                PropagationEngineGenerator  .class ),
 		random          ( edu.ucla.belief.inference.             RandomEngineGenerator       .class ),
+		sampling        ( edu.ucla.belief.inference.             SamplingEngineGenerator     .class ),
 		rcil1           ( edu.ucla.belief.recursiveconditioning. RCEngineGenerator           .class ),
 		rcil2           ( edu.ucla.belief.inference.             RCEngineGenerator           .class ),
 		shenoyshaferil1 ( edu.ucla.belief.inference.             JEngineGenerator            .class ),
@@ -6,6 +6,7 @@ import        il2.inf.structure.      EliminationOrders .JT;
 import        il2.inf.structure.      EliminationOrders .Record;
 import        il2.model.                                 BayesianNetwork;
 import        il2.inf.jointree.                          Flavor;
+import        il2.inf.jointree.                          FloatHuginAlgorithm;
 import        il2.inf.rc.                                RCEngine;
 import        il2.inf.rc.                                CachingScheme;
 import        il2.util.                                  IntList;
@@ -132,6 +133,16 @@ public enum Algorithm{
 		public static final Order2JoinTree DEFAULT = traditional;
 	}
 
+	/** numeric precision of join tree tables
+		@since 20261018 */
+	public enum Precision{
+		doubleprecision,
+		/** {@link il2.inf.jointree.FloatHuginAlgorithm float tables}, half the memory, hugin only */
+		singleprecision;
+
+		public static final Precision DEFAULT = doubleprecision;
+	}
+
 	/** keys to identify properties of {@link il2.inf.Algorithm.Setting Settings} */
 	public enum Key{
 		caption         (                        String .class ),
@@ -158,7 +169,8 @@ public enum Algorithm{
 		order2jointree              ( "join tree induction method",    "",   0,            Order2JoinTree.values().length,            Order2JoinTree.DEFAULT, null, null, false, 1, "inductions",  false ),
 		queries                     ( "supported queries",             "",   0,                     Query.values().length,                     Query.DEFAULT, null, null, false, 1, "queries",     false ),
 		memoryproportionceiling     ( "memory proportion ceiling",     "", 0.0,                                       1.0,                               1.0, null, null, false, 0, "proportions",  true ),
-		memoryentriesceiling        ( "memory entries ceiling",        "",  1L,                            Long.MAX_VALUE,                    Long.MAX_VALUE, null, null, false, 1, "ceilings",     true );
+		memoryentriesceiling        ( "memory entries ceiling",        "",  1L,                            Long.MAX_VALUE,                    Long.MAX_VALUE, null, null, false, 1, "ceilings",     true ),
+		precision                   ( "table precision",               "",   0,                 Precision.values().length,                 Precision.DEFAULT, null, null,  true, 1, "precisions",  false );
 
 		private Setting( Object ... values ){
 			Key[]                  keys = Key.values();
@@ -206,7 +218,8 @@ public enum Algorithm{
 		Record          eor  = order( bn, settings );
 		Order2JoinTree o2jt  = (Order2JoinTree) Setting.value( Setting.order2jointree, settings );
 		JT               jt  = o2jt.induce( bn, eor.order );
-		JointEngine      je  = flavor.compile( bn, jt );
+		Precision precision  = (Precision) Setting.value( Setting.precision, settings );
+		JointEngine      je  = (precision == Precision.singleprecision) && (flavor == Flavor.hugin) ? FloatHuginAlgorithm.create( bn, jt ) : flavor.compile( bn, jt );
 
 		Map<Result,Object> results = new EnumMap<Result,Object>( Result.class );
 		results.put( Result.jointengine,            je  );
@@ -0,0 +1,519 @@
+package il2.inf.bp;
+
+import il2.model.Domain;
+import il2.model.Table;
+import il2.util.IntMap;
+import il2.util.IntSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Synchronous (parallel schedule) sum-product belief propagation on
+ * the factor graph of a Table[] array, with the messages in primitive
+ * arrays.
+ *
+ * = every factor graph edge, between a variable and a table of two
+ * or more variables, has an id, and its two messages live at the
+ * same offset of preallocated arrays, one per direction.  Each
+ * direction has two buffers: an iteration reads the messages of the
+ * previous iteration from one and writes the new messages into the
+ * other, so no message is allocated or looked up while iterating.
+ *
+ * = as in BeliefPropagation, unit tables and evidence indicators are
+ * not factor graph nodes; they are multiplied into a potential on
+ * their variable.
+ *
+ * = since every message of an iteration depends only on the previous
+ * iteration, the variables and tables are divided into partitions
+ * of about equal work, and the partitions of an iteration run in
+ * parallel on the propagation pool, if one is set.  Each partition
+ * keeps the largest change among its own messages; the iteration
+ * has converged when every partition has.  Results do not depend on
+ * the pool.
+ *
+ * = prEvidence() is the Bethe approximation, which is exact when the
+ * factor graph is a tree.
+ */
+public class ArrayBeliefPropagation {
+    protected Domain domain;
+    protected Table[] tables;
+    protected IntMap evidence;
+
+    private int[] factors;        // tables of two or more variables
+    private int[] factorOfTable;  // -1 for other tables
+    private int[] edgeStart;      // edges of factor f: edgeStart[f] .. edgeStart[f+1]-1
+    private int[] edgeVar;
+    private int[] msgOffset;      // by edge
+    private int[] varEdgeStart;   // edges of var v: varEdges[varEdgeStart[v]] ..
+    private int[] varEdges;
+    private int[] phiOffset;      // by var, into phi
+    private double[] phi;         // unit tables times evidence indicators
+    private IntSet[] unitTables;  // by var
+
+    private double[][] toFactor;  // [buffer][msgOffset+state]
+    private double[][] toVar;
+    private int current;          // buffer holding the latest messages
+
+    private int[] partitionStart; // over units: vars, then factors
+    private double[] partitionResidual;
+    private int maxDegree;
+
+    private ForkJoinPool propagationPool;
+
+    protected boolean isValid;
+
+    protected int    maxIterations;
+    protected long   timeoutMillis;
+    protected double convThreshold;
+
+    protected boolean converged;
+    protected double  residual;
+    protected double  iterationTime;
+    protected int     numIterations;
+
+    protected double compilationTime = Double.NaN;
+    protected double propagationTime = Double.NaN;
+
+    public ArrayBeliefPropagation(Table[] tables, int mi, long tm, double ct) {
+        long start = System.nanoTime();
+
+        this.tables = tables.clone();
+        this.maxIterations = mi;
+        this.timeoutMillis = tm;
+        this.convThreshold = ct;
+        this.domain = tables[0].domain();
+        this.evidence = new IntMap();
+        this.isValid = false;
+
+        buildFactorGraph();
+        initializePhi();
+        initializeMessages();
+        setPartitions(1);
+
+        long finish = System.nanoTime();
+        compilationTime = (finish-start)*1e-6;
+    }
+
+    private void buildFactorGraph() {
+        int n = domain.size();
+        factorOfTable = new int[tables.length];
+        unitTables = new IntSet[n];
+        ArrayList<Integer> fs = new ArrayList<Integer>();
+        int numEdges = 0;
+        int[] degree = new int[n];
+        for (int i = 0; i < tables.length; i++) {
+            IntSet vars = tables[i].vars();
+            factorOfTable[i] = -1;
+            if ( vars.size() == 1 ) {
+                int var = vars.get(0);
+                if ( unitTables[var] == null ) unitTables[var] = new IntSet();
+                unitTables[var].add(i);
+            } else if ( vars.size() > 1 ) {
+                factorOfTable[i] = fs.size();
+                fs.add(i);
+                numEdges += vars.size();
+                for (int j = 0; j < vars.size(); j++) degree[vars.get(j)]++;
+                maxDegree = Math.max(maxDegree,vars.size());
+            }
+        }
+        factors = new int[fs.size()];
+        for (int f = 0; f < factors.length; f++) factors[f] = fs.get(f);
+
+        edgeStart = new int[factors.length+1];
+        edgeVar = new int[numEdges];
+        msgOffset = new int[numEdges+1];
+        for (int f = 0; f < factors.length; f++) {
+            IntSet vars = tables[factors[f]].vars();
+            edgeStart[f+1] = edgeStart[f] + vars.size();
+            for (int j = 0; j < vars.size(); j++) {
+                int e = edgeStart[f] + j;
+                edgeVar[e] = vars.get(j);
+                msgOffset[e+1] = msgOffset[e] + domain.size(vars.get(j));
+            }
+        }
+        varEdgeStart = new int[n+1];
+        for (int v = 0; v < n; v++) {
+            varEdgeStart[v+1] = varEdgeStart[v] + degree[v];
+            maxDegree = Math.max(maxDegree,degree[v]);
+        }
+        varEdges = new int[numEdges];
+        int[] fill = Arrays.copyOf(varEdgeStart,n);
+        for (int e = 0; e < numEdges; e++) varEdges[fill[edgeVar[e]]++] = e;
+
+        phiOffset = new int[n+1];
+        for (int v = 0; v < n; v++) phiOffset[v+1] = phiOffset[v] + domain.size(v);
+        phi = new double[phiOffset[n]];
+
+        int total = msgOffset[numEdges];
+        toFactor = new double[][]{ new double[total], new double[total] };
+        toVar = new double[][]{ new double[total], new double[total] };
+    }
+
+    /** uniform messages */
+    protected void initializeMessages() {
+        for (int e = 0; e < edgeVar.length; e++) {
+            double u = 1.0/domain.size(edgeVar[e]);
+            for (int b = 0; b < 2; b++) {
+                Arrays.fill(toFactor[b],msgOffset[e],msgOffset[e+1],u);
+                Arrays.fill(toVar[b],msgOffset[e],msgOffset[e+1],u);
+            }
+        }
+        current = 0;
+    }
+
+    private void initializePhi() {
+        for (int v = 0; v < domain.size(); v++) initializePhi(v);
+    }
+
+    private void initializePhi(int var) {
+        int off = phiOffset[var];
+        int size = domain.size(var);
+        Arrays.fill(phi,off,off+size,1.0);
+        if ( unitTables[var] != null ) {
+            for (int i = 0; i < unitTables[var].size(); i++) {
+                double[] vals = tables[unitTables[var].get(i)].values();
+                for (int x = 0; x < size; x++) phi[off+x] *= vals[x];
+            }
+        }
+        int val = evidence.get(var,-1);
+        if ( val >= 0 ) {
+            for (int x = 0; x < size; x++) if ( x != val ) phi[off+x] = 0;
+        }
+    }
+
+    /**
+     * Propagate on the given pool instead of on the calling thread,
+     * or pass null to return to the calling thread.
+     */
+    public void setPropagationPool(ForkJoinPool pool) {
+        propagationPool = pool;
+        setPartitions(pool == null ? 1 : 4*pool.getParallelism());
+    }
+
+    public ForkJoinPool getPropagationPool() { return propagationPool; }
+
+    /** divide the vars and factors into about count ranges of equal work */
+    private void setPartitions(int count) {
+        int n = domain.size();
+        int units = n + factors.length;
+        double[] cost = new double[units];
+        double total = 0;
+        for (int u = 0; u < units; u++) {
+            if ( u < n ) cost[u] = (varEdgeStart[u+1]-varEdgeStart[u]+1)*(double)domain.size(u);
+            else {
+                int f = u - n;
+                cost[u] = (edgeStart[f+1]-edgeStart[f]+1)*(double)tables[factors[f]].sizeInt();
+            }
+            total += cost[u];
+        }
+        ArrayList<Integer> starts = new ArrayList<Integer>();
+        starts.add(0);
+        double target = total/Math.max(1,count), acc = 0;
+        for (int u = 0; u < units; u++) {
+            acc += cost[u];
+            if ( acc >= target && u+1 < units ) {
+                starts.add(u+1);
+                acc = 0;
+            }
+        }
+        partitionStart = new int[starts.size()+1];
+        for (int p = 0; p < starts.size(); p++) partitionStart[p] = starts.get(p);
+        partitionStart[starts.size()] = units;
+        partitionResidual = new double[starts.size()];
+    }
+
+    public int numPartitions() { return partitionResidual.length; }
+
+    /** the largest message change of each partition in the last iteration */
+    public double[] partitionResiduals() { return partitionResidual.clone(); }
+
+    protected void makeValid() {
+        if ( ! this.isValid ) {
+            long start = System.nanoTime();
+            runBeliefPropagation();
+            propagationTime = (System.nanoTime()-start)*1e-6;
+            this.isValid = true;
+        }
+    }
+
+    protected void runBeliefPropagation() {
+        initializeIterations();
+        while ( iterationStatusOk() ) iteration();
+        if ( residual <= convThreshold ) converged = true;
+    }
+
+    /**
+     * This performs one synchronous BP iteration.
+     */
+    protected void iteration() {
+        if ( propagationPool == null || partitionResidual.length == 1 ) {
+            for (int p = 0; p < partitionResidual.length; p++) sweep(p);
+        } else {
+            propagationPool.invoke(new Sweep(0,partitionResidual.length));
+        }
+        current = 1 - current;
+        residual = 0;
+        for (int p = 0; p < partitionResidual.length; p++) {
+            if ( partitionResidual[p] > residual ) residual = partitionResidual[p];
+        }
+        updateIterationStatus();
+    }
+
+    private final class Sweep extends RecursiveAction {
+        private final int lo, hi;
+        Sweep(int lo, int hi) { this.lo = lo; this.hi = hi; }
+        protected void compute() {
+            if ( hi - lo == 1 ) sweep(lo);
+            else {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Sweep(lo,mid), new Sweep(mid,hi));
+            }
+        }
+    }
+
+    /** compute the next messages out of the units of partition p */
+    private void sweep(int p) {
+        int n = domain.size();
+        double[] prefix = new double[maxDegree+1];
+        int[] state = new int[maxDegree];
+        double res = 0;
+        for (int u = partitionStart[p]; u < partitionStart[p+1]; u++) {
+            double r = u < n ? sendFromVar(u,prefix) : sendFromFactor(u-n,prefix,state);
+            if ( r > res ) res = r;
+        }
+        partitionResidual[p] = res;
+    }
+
+    private double sendFromVar(int var, double[] prefix) {
+        double[] in = toVar[current], old = toFactor[current], out = toFactor[1-current];
+        int first = varEdgeStart[var], last = varEdgeStart[var+1];
+        int k = last - first;
+        if ( k == 0 ) return 0;
+        int size = domain.size(var);
+        int off = phiOffset[var];
+        for (int x = 0; x < size; x++) {
+            double pre = phi[off+x];
+            for (int j = 0; j < k; j++) {
+                prefix[j] = pre;
+                pre *= in[msgOffset[varEdges[first+j]]+x];
+            }
+            double suf = 1;
+            for (int j = k-1; j >= 0; j--) {
+                int m = msgOffset[varEdges[first+j]]+x;
+                out[m] = prefix[j]*suf;
+                suf *= in[m];
+            }
+        }
+        double res = 0;
+        for (int j = 0; j < k; j++) {
+            int e = varEdges[first+j];
+            res = Math.max(res,normalize(out,old,msgOffset[e],msgOffset[e+1]));
+        }
+        return res;
+    }
+
+    private double sendFromFactor(int f, double[] prefix, int[] state) {
+        double[] in = toFactor[current], old = toVar[current], out = toVar[1-current];
+        Table t = tables[factors[f]];
+        double[] vals = t.values();
+        int first = edgeStart[f], d = edgeStart[f+1] - first;
+        Arrays.fill(out,msgOffset[first],msgOffset[first+d],0);
+        Arrays.fill(state,0,d,0);
+        for (int i = 0; i < vals.length; i++) {
+            double theta = vals[i];
+            if ( theta != 0 ) {
+                prefix[0] = theta;
+                for (int j = 0; j < d; j++) prefix[j+1] = prefix[j]*in[msgOffset[first+j]+state[j]];
+                double suf = 1;
+                for (int j = d-1; j >= 0; j--) {
+                    int m = msgOffset[first+j]+state[j];
+                    out[m] += prefix[j]*suf;
+                    suf *= in[m];
+                }
+            }
+            // state may be longer than d; next() only reaches past d
+            // after the last entry
+            if ( i+1 < vals.length ) t.next(state);
+        }
+        double res = 0;
+        for (int j = 0; j < d; j++) {
+            res = Math.max(res,normalize(out,old,msgOffset[first+j],msgOffset[first+j+1]));
+        }
+        return res;
+    }
+
+    /** normalize msg[from..to) and return the largest change from old */
+    private static double normalize(double[] msg, double[] old, int from, int to) {
+        double sum = 0;
+        for (int i = from; i < to; i++) sum += msg[i];
+        double res = 0;
+        for (int i = from; i < to; i++) {
+            if ( sum > 0 ) msg[i] /= sum;
+            double delta = Math.abs(msg[i]-old[i]);
+            if ( delta > res ) res = delta;
+        }
+        return res;
+    }
+
+    protected long startTime;
+    protected void initializeIterations() {
+        this.converged = false;
+        this.residual = Double.POSITIVE_INFINITY;
+        this.numIterations = 0;
+        this.iterationTime = 0;
+        this.startTime = System.nanoTime();
+    }
+
+    /* returns false if last iteration converged or we exceed given
+     * limits, returns true otherwise */
+    protected boolean iterationStatusOk() {
+        if ( this.maxIterations != 0 &&
+             this.numIterations >= this.maxIterations )
+            return false;
+        if ( this.timeoutMillis != 0 &&
+             this.iterationTime >= this.timeoutMillis )
+            return false;
+
+        // we can't converge in the first iteration
+        if ( this.numIterations == 1 )
+            return true;
+
+        return residual > convThreshold;
+    }
+
+    /* this updates iteration status; to be executed at bottom of
+     * iteration */
+    protected void updateIterationStatus() {
+        this.numIterations++;
+        this.iterationTime = (System.nanoTime() - this.startTime)*1e-6;
+    }
+
+    public void setEvidence(IntMap e) {
+        this.isValid = false;
+        this.evidence = e;
+        initializePhi();
+        initializeMessages();
+    }
+
+    public void setTable(int i, Table t) {
+        Table old = tables[i];
+        if ( t.vars().size() != old.vars().size() ||
+             ! t.vars().containsAll(old.vars()) )
+            throw new IllegalArgumentException("Incompatible table");
+        tables[i] = t;
+        if ( t.vars().size() == 1 ) initializePhi(t.vars().get(0));
+        initializeMessages();
+        this.isValid = false;
+    }
+
+    /** the unnormalized belief of var, into dest */
+    private void varBelief(int var, double[] dest) {
+        double[] in = toVar[current];
+        int size = domain.size(var);
+        System.arraycopy(phi,phiOffset[var],dest,0,size);
+        for (int j = varEdgeStart[var]; j < varEdgeStart[var+1]; j++) {
+            int m = msgOffset[varEdges[j]];
+            for (int x = 0; x < size; x++) dest[x] *= in[m+x];
+        }
+    }
+
+    /** the unnormalized belief of factor f, into dest */
+    private void factorBelief(int f, double[] dest) {
+        double[] in = toFactor[current];
+        Table t = tables[factors[f]];
+        double[] vals = t.values();
+        int first = edgeStart[f], d = edgeStart[f+1] - first;
+        int[] cur = new int[d];
+        for (int i = 0; i < vals.length; i++) {
+            double b = vals[i];
+            for (int j = 0; j < d && b != 0; j++) b *= in[msgOffset[first+j]+cur[j]];
+            dest[i] = b;
+            if ( i+1 < vals.length ) t.next(cur);
+        }
+    }
+
+    public Table varConditional(int var) {
+        makeValid();
+        Table t = Table.varTable(domain,var);
+        varBelief(var,t.values());
+        t.normalizeInPlace();
+        return t;
+    }
+
+    public Table varJoint(int var) {
+        Table t = varConditional(var);
+        t.multiplyByConstant(prEvidence());
+        return t;
+    }
+
+    public Table tableConditional(int table) {
+        makeValid();
+        Table t = Table.createCompatible(tables[table]);
+        int f = factorOfTable[table];
+        IntSet vars = t.vars();
+        if ( f >= 0 ) factorBelief(f,t.values());
+        else if ( vars.size() == 1 ) varBelief(vars.get(0),t.values());
+        else t.values()[0] = 1;
+        t.normalizeInPlace();
+        return t;
+    }
+
+    public Table tableJoint(int table) {
+        Table t = tableConditional(table);
+        t.multiplyByConstant(prEvidence());
+        return t;
+    }
+
+    /**
+     * The Bethe free energy: the sum over tables of E[log table] plus
+     * the entropy of the table beliefs, less (degree-1) times the
+     * entropy of each variable belief.
+     */
+    public double logPrEvidence() {
+        makeValid();
+        double logZ = 0;
+        for (int i = 0; i < tables.length; i++) {
+            if ( tables[i].vars().size() == 0 ) logZ += Math.log(tables[i].values()[0]);
+        }
+        double[] buf = new double[0];
+        for (int f = 0; f < factors.length; f++) {
+            double[] vals = tables[factors[f]].values();
+            if ( buf.length < vals.length ) buf = new double[vals.length];
+            factorBelief(f,buf);
+            double sum = 0;
+            for (int i = 0; i < vals.length; i++) sum += buf[i];
+            for (int i = 0; i < vals.length; i++) {
+                double b = buf[i]/sum;
+                if ( b > 0 ) logZ += b*(Math.log(vals[i]) - Math.log(b));
+            }
+        }
+        for (int v = 0; v < domain.size(); v++) {
+            int size = domain.size(v);
+            if ( buf.length < size ) buf = new double[size];
+            varBelief(v,buf);
+            double sum = 0;
+            for (int x = 0; x < size; x++) sum += buf[x];
+            int k = varEdgeStart[v+1] - varEdgeStart[v];
+            for (int x = 0; x < size; x++) {
+                double b = buf[x]/sum;
+                if ( b > 0 ) logZ += b*(Math.log(phi[phiOffset[v]+x]) + (k-1)*Math.log(b));
+            }
+        }
+        return logZ;
+    }
+
+    public double prEvidence() {
+        return Math.exp(logPrEvidence());
+    }
+
+    public boolean converged() { return converged; }
+    public double residual() { return residual; }
+    public int iterations() { return numIterations; }
+    public long timeMillis() { return (long)iterationTime; }
+
+    public double getCompilationTime() { return compilationTime; }
+    public double getPropagationTime() { return propagationTime; }
+}
@@ -9,6 +9,10 @@ import il2.util.Pair;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * some implementation notes:
@@ -45,7 +49,9 @@ public abstract class BeliefPropagation {
     protected Table[] evidenceIndicators;
 
     protected MessagePassingScheduler scheduler;
-    protected HashMap<Pair,Table> messages;
+    protected Map<Pair,Table> messages;
+    protected Table[] nextMessages; // by ResidualSchedule id
+    protected Object[] nodeLocks;   // for concurrent residual BP
     // protected HashMap<Pair,Table> oldMessages;
 
     protected boolean isValid;
@@ -101,6 +107,10 @@ public abstract class BeliefPropagation {
      * This performs one BP iteration.
      */
     protected void iteration() {
+        if ( scheduler instanceof ResidualSchedule ) {
+            residualIteration((ResidualSchedule)scheduler);
+            return;
+        }
         residual = 0;
         for ( Pair pair : scheduler.nextIteration() ) {
             if ( isUnitTablePair(pair) ) continue;
@@ -115,6 +125,80 @@ public abstract class BeliefPropagation {
         updateIterationStatus();
     }
 
+    /**
+     * This performs one iteration of residual BP: it sends as many
+     * messages as a sweep would, largest residual first, and stops
+     * early once no residual exceeds the threshold.
+     *
+     * With a propagation pool, the threads each send their share of
+     * the messages.  A thread holds the lock of the target node while
+     * it sends a message and recomputes the messages out of the
+     * target.  Since residuals may then be slightly stale, a
+     * concurrent iteration that appears to converge recomputes every
+     * residual before reporting it.
+     */
+    protected void residualIteration(final ResidualSchedule rs) {
+        if ( nextMessages == null ) computeNextMessages(rs);
+        ForkJoinPool pool = rs.getPropagationPool();
+        if ( pool == null ) sendLargestResiduals(rs,rs.size());
+        else {
+            final int threads = pool.getParallelism();
+            final int share = (rs.size()+threads-1)/threads;
+            pool.invoke(new RecursiveAction() {
+                    protected void compute() {
+                        RecursiveAction[] tasks = new RecursiveAction[threads];
+                        for (int i = 0; i < threads; i++)
+                            tasks[i] = new RecursiveAction() {
+                                    protected void compute() {
+                                        sendLargestResiduals(rs,share);
+                                    }
+                                };
+                        invokeAll(tasks);
+                    }
+                });
+        }
+        residual = rs.maxResidual();
+        if ( pool != null && residual <= convThreshold ) {
+            computeNextMessages(rs);
+            residual = rs.maxResidual();
+        }
+        updateIterationStatus();
+    }
+
+    /* computes the next value and residual of every queued message */
+    private void computeNextMessages(ResidualSchedule rs) {
+        if ( nextMessages == null ) nextMessages = new Table[rs.size()];
+        for (int id = 0; id < rs.size(); id++) {
+            Pair pair = rs.pair(id);
+            Table msg = computeMessage(pair);
+            nextMessages[id] = msg;
+            rs.update(id,computeResidual(messages.get(pair),msg));
+        }
+    }
+
+    private void sendLargestResiduals(ResidualSchedule rs, int count) {
+        for (int sent = 0; sent < count; sent++) {
+            int id = rs.poll(convThreshold);
+            if ( id < 0 ) return;
+            if ( nodeLocks == null ) sendResidual(rs,id);
+            else synchronized ( nodeLocks[rs.pair(id).s2] ) {
+                sendResidual(rs,id);
+            }
+        }
+    }
+
+    private void sendResidual(ResidualSchedule rs, int id) {
+        Table msg = nextMessages[id];
+        messages.put(rs.pair(id),msg);
+        rs.update(id,computeResidual(msg,nextMessages[id]));
+        for (int dep : rs.dependents(id)) {
+            Pair pair = rs.pair(dep);
+            Table next = computeMessage(pair);
+            nextMessages[dep] = next;
+            rs.update(dep,computeResidual(messages.get(pair),next));
+        }
+    }
+
     protected void runBeliefPropagation() {
         initializeIterations();
         while ( iterationStatusOk() ) iteration();
@@ -170,7 +254,7 @@ public abstract class BeliefPropagation {
         // second, collect incoming messages
         // HashMap<Pair,Table> msgs = useCurMsgs ? messages : oldMessages;
         // HashMap<Pair,Table> msgs = oldMessages; // AC
-        HashMap<Pair,Table> msgs = messages;
+        Map<Pair,Table> msgs = messages;
         ArrayList<Pair> incoming = scheduler.messagesIncoming(node);
         for (Pair pair : incoming) {
             // if ( isUnitTablePair(pair) ) continue;
@@ -193,7 +277,13 @@ public abstract class BeliefPropagation {
      */
     protected void initializeMessages() {
         Pair[] pairs = scheduler.fgPairs();
-        messages = new HashMap<Pair,Table>(pairs.length);
+        if ( scheduler instanceof ResidualSchedule &&
+             ((ResidualSchedule)scheduler).getPropagationPool() != null ) {
+            messages = new ConcurrentHashMap<Pair,Table>(pairs.length);
+            nodeLocks = new Object[domain.size()+tables.length];
+            for (int i = 0; i < nodeLocks.length; i++) nodeLocks[i] = new Object();
+        } else
+            messages = new HashMap<Pair,Table>(pairs.length);
         for (Pair pair : pairs) {
             if ( isUnitTablePair(pair) ) continue;
             int var = scheduler.varOfPair(pair);
@@ -210,6 +300,7 @@ public abstract class BeliefPropagation {
 		this.numIterations = 0;
 		this.iterationTime = 0;
 		this.startTime = System.nanoTime();
+        this.nextMessages = null;
 	}
 
 	/* returns false if last iteration converged or we exceed given
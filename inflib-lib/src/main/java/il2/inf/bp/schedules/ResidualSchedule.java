@@ -0,0 +1,208 @@
+package il2.inf.bp.schedules;
+
+import il2.model.Table;
+import il2.util.Pair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Residual belief propagation: rather than sweeping over all
+ * messages, always send the message whose next value differs most
+ * from its current value, as measured by computeResidual().
+ *
+ * = BeliefPropagation drives this schedule itself.  It keeps the next
+ * value of every message, and after sending a message into a node it
+ * recomputes the messages out of that node (its dependents()) and
+ * reports their residuals with update().  One iteration sends as many
+ * messages as a sweep of the other schedules would.
+ *
+ * = unit table pairs are never queued (see BeliefPropagation).
+ *
+ * = with a propagation pool, the messages are spread over a relaxed
+ * multi-queue of 2p heaps for p threads, each heap with its own lock.
+ * poll() takes the larger top of two heaps chosen at random, so the
+ * threads rarely contend, at the price of sometimes sending a message
+ * other than the very largest.
+ */
+public class ResidualSchedule extends MessagePassingScheduler {
+    private final HashMap<Pair,Integer> ids;
+    private final Pair[] queued;      // by id
+    private final int[][] dependents; // by id
+    private final double[] keys;      // by id
+    private final int[] positions;    // by id, in its heap; -1 if polled
+    private final Heap[] heaps;
+    private final ForkJoinPool pool;
+
+    public ResidualSchedule(Table[] tables) {
+        this(tables,null);
+    }
+
+    /**
+     * @param pool the pool to propagate on, or null for the calling
+     * thread
+     */
+    public ResidualSchedule(Table[] tables, ForkJoinPool pool) {
+        super(tables);
+        this.pool = pool;
+
+        int n = domain.size();
+        ArrayList<Pair> qs = new ArrayList<Pair>(pairs.length);
+        for (Pair pair : pairs)
+            if ( tables[tableOfPair(pair)-n].vars().size() != 1 )
+                qs.add(pair);
+        queued = qs.toArray(new Pair[0]);
+        ids = new HashMap<Pair,Integer>(2*queued.length);
+        for (int id = 0; id < queued.length; id++) ids.put(queued[id],id);
+
+        // the messages out of the target of a pair, except the reverse
+        dependents = new int[queued.length][];
+        ArrayList<Integer> deps = new ArrayList<Integer>();
+        for (int id = 0; id < queued.length; id++) {
+            Pair pair = queued[id];
+            deps.clear();
+            for (Pair in : messagesIncoming(pair.s2)) {
+                if ( in.s1 == pair.s1 ) continue;
+                Integer out = ids.get(new Pair(in.s2,in.s1));
+                if ( out != null ) deps.add(out);
+            }
+            dependents[id] = new int[deps.size()];
+            for (int i = 0; i < deps.size(); i++) dependents[id][i] = deps.get(i);
+        }
+
+        keys = new double[queued.length];
+        positions = new int[queued.length];
+        int numHeaps = pool == null ? 1 : 2*pool.getParallelism();
+        heaps = new Heap[numHeaps];
+        for (int h = 0; h < numHeaps; h++)
+            heaps[h] = new Heap((queued.length+numHeaps-1)/numHeaps);
+        for (int id = 0; id < queued.length; id++) heaps[id % numHeaps].offer(id,0.0);
+    }
+
+    public ForkJoinPool getPropagationPool() { return pool; }
+
+    /** the number of queued messages */
+    public int size() { return queued.length; }
+    public Pair pair(int id) { return queued[id]; }
+    public int id(Pair pair) { return ids.get(pair); }
+
+    /** the messages whose next values depend on message id */
+    public int[] dependents(int id) { return dependents[id]; }
+
+    /** set the residual of message id, queueing it again if it was polled */
+    public void update(int id, double residual) {
+        heaps[id % heaps.length].offer(id,residual);
+    }
+
+    /**
+     * This removes a message with a large residual from the queue,
+     * the largest if there is one heap.  It returns -1 if no message
+     * has a residual above threshold.
+     */
+    public int poll(double threshold) {
+        if ( heaps.length == 1 ) return heaps[0].poll(threshold);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Heap h1 = heaps[random.nextInt(heaps.length)];
+        Heap h2 = heaps[random.nextInt(heaps.length)];
+        Heap h = h1.top() >= h2.top() ? h1 : h2;
+        int id = h.poll(threshold);
+        if ( id >= 0 ) return id;
+        for (Heap other : heaps) {
+            id = other.poll(threshold);
+            if ( id >= 0 ) return id;
+        }
+        return -1;
+    }
+
+    /** the largest queued residual */
+    public double maxResidual() {
+        double max = 0.0;
+        for (Heap h : heaps) max = Math.max(max,h.top());
+        return max;
+    }
+
+    /**
+     * For drivers other than BeliefPropagation: all queued messages,
+     * largest residual first.  The queue is left as it is.
+     */
+    public Iterable<Pair> nextIteration() {
+        Integer[] order = new Integer[queued.length];
+        for (int id = 0; id < order.length; id++) order[id] = id;
+        Arrays.sort(order,new Comparator<Integer>() {
+                public int compare(Integer a, Integer b) {
+                    return Double.compare(keys[b],keys[a]);
+                }
+            });
+        Pair[] result = new Pair[order.length];
+        for (int i = 0; i < order.length; i++) result[i] = queued[order[i]];
+        return Arrays.asList(result);
+    }
+    public boolean isAsynchronous() { return true; }
+
+    /** an indexed binary max-heap over keys */
+    private final class Heap {
+        int[] heap;
+        int size;
+
+        Heap(int capacity) { heap = new int[capacity]; }
+
+        synchronized double top() { return size == 0 ? 0.0 : keys[heap[0]]; }
+
+        synchronized void offer(int id, double key) {
+            if ( positions[id] >= 0 && positions[id] < size && heap[positions[id]] == id ) {
+                double old = keys[id];
+                keys[id] = key;
+                if ( key > old ) up(positions[id]); else down(positions[id]);
+            } else {
+                keys[id] = key;
+                heap[size] = id;
+                positions[id] = size;
+                up(size++);
+            }
+        }
+
+        synchronized int poll(double threshold) {
+            if ( size == 0 || keys[heap[0]] <= threshold ) return -1;
+            int id = heap[0];
+            positions[id] = -1;
+            if ( --size > 0 ) {
+                heap[0] = heap[size];
+                positions[heap[0]] = 0;
+                down(0);
+            }
+            return id;
+        }
+
+        private void up(int i) {
+            int id = heap[i];
+            while ( i > 0 ) {
+                int parent = (i-1) >>> 1;
+                if ( keys[heap[parent]] >= keys[id] ) break;
+                heap[i] = heap[parent];
+                positions[heap[i]] = i;
+                i = parent;
+            }
+            heap[i] = id;
+            positions[id] = i;
+        }
+
+        private void down(int i) {
+            int id = heap[i];
+            while ( true ) {
+                int child = 2*i+1;
+                if ( child >= size ) break;
+                if ( child+1 < size && keys[heap[child+1]] > keys[heap[child]] ) child++;
+                if ( keys[heap[child]] <= keys[id] ) break;
+                heap[i] = heap[child];
+                positions[heap[i]] = i;
+                i = child;
+            }
+            heap[i] = id;
+            positions[id] = i;
+        }
+    }
+}
@@ -75,6 +75,22 @@ public class NormalizedMaxSSAlgorithm extends UnindexedSSAlgorithm {
 	super(jointree,tables);
     }
 
+    /** sequential only: accumulates logPrE across messages */
+    protected boolean supportsParallelPropagation(){
+	return false;
+    }
+
+    /** logPrE is reset only by the first inward message, so every query propagates in full */
+    protected boolean supportsIncrementalPropagation(){
+	return false;
+    }
+
+    /** {@link #batchQuery(IntMap[],IntSet) Batches}
+	propagate sum-product, not max-product. */
+    protected boolean supportsBatchPropagation(){
+	return false;
+    }
+
     double logPrE;
     protected void sendMessage(int ind,boolean isInward){
 	if (ind == 0 && isInward) this.logPrE = 0.0;
@@ -38,6 +38,16 @@ public class NormalizedSSAlgorithm extends UnindexedSSAlgorithm {
         super.initialize();
     }
 
+    /** sequential only: accumulates logPrE across messages */
+    protected boolean supportsParallelPropagation(){
+	return false;
+    }
+
+    /** logPrE is reset only by initialize(), so every query propagates in full */
+    protected boolean supportsIncrementalPropagation(){
+	return false;
+    }
+
     double logPrE;
     protected void sendMessage(int ind,boolean isInward){
 	if(isInward){
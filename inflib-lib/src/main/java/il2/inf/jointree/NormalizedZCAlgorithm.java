@@ -32,6 +32,11 @@ public class NormalizedZCAlgorithm extends UnindexedZCAlgorithm{
 		super(jointree,tables);
     }
 
+    /** sequential only: normalizes in sendMessage() using the shared scratch arrays */
+    protected boolean supportsParallelPropagation(){
+	return false;
+    }
+
 	/**
 	 * for some reason here, I didn't need scratch2
 	 */